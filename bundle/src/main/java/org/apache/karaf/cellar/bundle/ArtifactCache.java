@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Local cache of the bundles artifacts, stored by SHA-256 digest.
+ */
+public class ArtifactCache {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(ArtifactCache.class);
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private File directory = new File(System.getProperty("karaf.data"), "cellar" + File.separator + "artifacts");
+
+    public void init() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            LOGGER.warn("CELLAR BUNDLE: can't create the artifacts cache directory {}", directory);
+        }
+    }
+
+    /**
+     * Get an artifact from the cache.
+     *
+     * @param digest the artifact digest.
+     * @return the artifact file, or {@code null} if the artifact is not in the cache.
+     */
+    public File get(String digest) {
+        if (digest == null || !isDigest(digest)) {
+            return null;
+        }
+        File artifact = new File(directory, digest);
+        return artifact.isFile() ? artifact : null;
+    }
+
+    /**
+     * Store an artifact in the cache.
+     *
+     * @param in the artifact content.
+     * @param expectedDigest the expected digest of the artifact, or {@code null} to accept any content.
+     * @return the artifact digest, or {@code null} if the content doesn't match the expected digest.
+     * @throws IOException in case of read or write failure.
+     */
+    public String put(InputStream in, String expectedDigest) throws IOException {
+        File temp = File.createTempFile("artifact", ".tmp", directory);
+        try {
+            MessageDigest messageDigest = newMessageDigest();
+            try (OutputStream out = new DigestOutputStream(new FileOutputStream(temp), messageDigest)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            String digest = toHex(messageDigest.digest());
+            if (expectedDigest != null && !expectedDigest.equals(digest)) {
+                return null;
+            }
+            File artifact = new File(directory, digest);
+            if (!artifact.isFile() && !temp.renameTo(artifact)) {
+                throw new IOException("Can't store the artifact " + digest);
+            }
+            return digest;
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Read a chunk of an artifact.
+     *
+     * @param digest the artifact digest.
+     * @param offset the position of the chunk in the artifact.
+     * @param length the maximum chunk length.
+     * @return the chunk (empty at the end of the artifact), or {@code null} if the artifact is not in the cache.
+     * @throws IOException in case of read failure.
+     */
+    public byte[] read(String digest, long offset, int length) throws IOException {
+        File artifact = get(digest);
+        if (artifact == null) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(artifact, "r")) {
+            long available = Math.max(0, file.length() - offset);
+            byte[] chunk = new byte[(int) Math.min(length, available)];
+            file.seek(offset);
+            file.readFully(chunk);
+            return chunk;
+        }
+    }
+
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported", e);
+        }
+    }
+
+    private static boolean isDigest(String digest) {
+        // the digest is used as file name, so only accept hexadecimal characters
+        for (int i = 0; i < digest.length(); i++) {
+            char c = digest.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return !digest.isEmpty();
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    public static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+}
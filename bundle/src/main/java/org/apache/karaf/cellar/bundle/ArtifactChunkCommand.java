@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
+
+import java.io.IOException;
+
+/**
+ * Request a chunk of a bundle artifact to a node.
+ * It is dispatched as a {@link PriorityEvent}: the bundle event handler waits for the chunks, so they can't be
+ * queued behind the bundle events.
+ */
+public class ArtifactChunkCommand extends Command<ArtifactChunkResult> implements PriorityEvent, CompactSerializable {
+
+    private String digest;
+    private long offset;
+    private int length;
+
+    public ArtifactChunkCommand() {
+    }
+
+    public ArtifactChunkCommand(String id) {
+        super(id);
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        this.length = length;
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeUTF(digest);
+        out.writeLong(offset);
+        out.writeInt(length);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        digest = in.readUTF();
+        offset = in.readLong();
+        length = in.readInt();
+    }
+
+}
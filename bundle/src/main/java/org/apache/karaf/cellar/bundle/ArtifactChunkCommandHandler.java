@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.command.CommandHandler;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Serve the chunks of the bundles artifacts present in the local cache.
+ */
+public class ArtifactChunkCommandHandler extends CommandHandler<ArtifactChunkCommand, ArtifactChunkResult> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(ArtifactChunkCommandHandler.class);
+
+    public static final String SWITCH_ID = "org.apache.karaf.cellar.bundle.artifact.switch";
+    // the chunks go through the cluster topics, they are kept small to not hold the topics
+    public static final int MAX_CHUNK_SIZE = 256 * 1024;
+
+    private final Switch commandSwitch = new BasicSwitch(SWITCH_ID);
+
+    private ArtifactCache artifactCache;
+
+    @Override
+    public ArtifactChunkResult execute(ArtifactChunkCommand command) {
+        ArtifactChunkResult result = new ArtifactChunkResult(command.getId());
+        File artifact = artifactCache.get(command.getDigest());
+        if (artifact != null) {
+            try {
+                int length = Math.min(Math.max(command.getLength(), 1), MAX_CHUNK_SIZE);
+                result.setData(artifactCache.read(command.getDigest(), command.getOffset(), length));
+                result.setSize(artifact.length());
+            } catch (IOException e) {
+                LOGGER.warn("CELLAR BUNDLE: can't read artifact {}", command.getDigest(), e);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Class<ArtifactChunkCommand> getType() {
+        return ArtifactChunkCommand.class;
+    }
+
+    @Override
+    public Switch getSwitch() {
+        return commandSwitch;
+    }
+
+    public ArtifactCache getArtifactCache() {
+        return artifactCache;
+    }
+
+    public void setArtifactCache(ArtifactCache artifactCache) {
+        this.artifactCache = artifactCache;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
+
+import java.io.IOException;
+
+/**
+ * Chunk of a bundle artifact, sent by a node having the artifact in its cache.
+ */
+public class ArtifactChunkResult extends Result implements PriorityEvent, CompactSerializable {
+
+    private byte[] data;
+    private long size = -1;
+
+    public ArtifactChunkResult() {
+    }
+
+    public ArtifactChunkResult(String id) {
+        super(id);
+    }
+
+    /**
+     * Get the chunk data.
+     *
+     * @return the chunk data, or {@code null} if the node doesn't have the artifact.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Get the total size of the artifact.
+     *
+     * @return the artifact size, or -1 if the node doesn't have the artifact.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeObject(data);
+        out.writeLong(size);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        data = in.readObject();
+        size = in.readLong();
+    }
+
+}
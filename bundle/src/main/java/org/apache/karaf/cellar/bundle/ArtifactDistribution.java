@@ -0,0 +1,318 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.command.ExecutionContext;
+import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Distribution of the bundles artifacts between the cluster nodes.
+ * The node installing a bundle keeps the bundle artifact in the local cache, and publishes the artifact digest in the
+ * cluster bundle state. The other nodes get the artifact by chunks from a node of the cluster group having it,
+ * verify it with the digest, and keep it in their cache, so an artifact is downloaded from its location only once.
+ */
+public class ArtifactDistribution {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(ArtifactDistribution.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private ClusterManager clusterManager;
+    private ExecutionContext executionContext;
+    private NodeConfiguration nodeConfiguration;
+    private ArtifactCache artifactCache;
+
+    private final Map<String, String> published = new ConcurrentHashMap<String, String>();
+    private volatile ExecutorService executor;
+
+    /**
+     * Check if the artifacts distribution is enabled in the node configuration.
+     *
+     * @return true if enabled, false else.
+     */
+    public boolean isEnabled() {
+        return nodeConfiguration != null && nodeConfiguration.getBoolean(Constants.DISTRIBUTION, false);
+    }
+
+    public void init() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cellar-bundle-artifacts");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Store the artifact of a local bundle in the cache and publish its digest in the cluster bundle state.
+     * The artifact is read in the background, so the bundle listener and the synchronizer don't wait for the artifact
+     * download. Until the digest is published, the other nodes install the bundle from its location.
+     *
+     * @param bundle the local bundle.
+     * @param group the cluster group where to publish the artifact digest.
+     * @param id the bundle id (symbolic name/version) in the cluster group.
+     */
+    public void publish(final Bundle bundle, final Group group, final String id) {
+        ExecutorService current = executor;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.execute(new Runnable() {
+                @Override
+                public void run() {
+                    byte[] digest = store(bundle);
+                    if (digest != null) {
+                        setDigest(bundle, group, id, digest);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("CELLAR BUNDLE: artifacts distribution stopped, artifact of bundle {} not published", bundle.getLocation());
+        }
+    }
+
+    /**
+     * Store the artifact of a local bundle in the cache, to serve it to the other nodes.
+     *
+     * @param bundle the local bundle.
+     * @return the artifact digest, or {@code null} if the artifact can't be read from the bundle location.
+     */
+    protected byte[] store(Bundle bundle) {
+        // the artifact is read again only when the bundle is updated
+        String key = bundle.getBundleId() + "@" + bundle.getLastModified();
+        String digest = published.get(key);
+        if (digest == null || artifactCache.get(digest) == null) {
+            try (InputStream in = new URL(bundle.getLocation()).openStream()) {
+                digest = artifactCache.put(in, null);
+                published.put(key, digest);
+            } catch (MalformedURLException e) {
+                LOGGER.debug("CELLAR BUNDLE: bundle location {} is not an URL, artifact not distributed", bundle.getLocation());
+                return null;
+            } catch (Exception e) {
+                LOGGER.warn("CELLAR BUNDLE: can't store the artifact of bundle {}", bundle.getLocation(), e);
+                return null;
+            }
+        }
+        return ArtifactCache.fromHex(digest);
+    }
+
+    /**
+     * Set the artifact digest in the cluster bundle state, if the state still describes the local bundle.
+     */
+    private void setDigest(Bundle bundle, Group group, String id, byte[] digest) {
+        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+        try {
+            Map<String, BundleState> clusterBundles = clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + group.getName());
+            BundleState state = clusterBundles.get(id);
+            if (state == null || !bundle.getLocation().equals(state.getLocation()) || Arrays.equals(digest, state.getData())) {
+                return;
+            }
+            state.setData(digest);
+            clusterBundles.put(id, state);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR BUNDLE: can't publish the artifact of bundle {} in cluster group {}", bundle.getLocation(), group.getName(), e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
+        }
+    }
+
+    /**
+     * Get an artifact from the local cache, or from a node of the cluster group.
+     *
+     * @param group the cluster group.
+     * @param digest the artifact digest.
+     * @return the artifact file, or {@code null} if no node can provide the artifact.
+     */
+    public File fetch(Group group, byte[] digest) {
+        String hexDigest = ArtifactCache.toHex(digest);
+        File artifact = artifactCache.get(hexDigest);
+        if (artifact != null) {
+            return artifact;
+        }
+        List<Node> peers = new ArrayList<Node>(clusterManager.listNodesByGroup(group));
+        peers.remove(clusterManager.getNode());
+        // spread the load on the nodes having the artifact
+        Collections.shuffle(peers);
+        for (Node peer : peers) {
+            try (InputStream in = new PeerInputStream(peer, hexDigest)) {
+                if (artifactCache.put(in, hexDigest) != null) {
+                    LOGGER.debug("CELLAR BUNDLE: artifact {} received from node {}", hexDigest, peer.getId());
+                    return artifactCache.get(hexDigest);
+                }
+                LOGGER.warn("CELLAR BUNDLE: artifact {} received from node {} doesn't match its digest", hexDigest, peer.getId());
+            } catch (IOException e) {
+                LOGGER.debug("CELLAR BUNDLE: artifact {} not available on node {}: {}", hexDigest, peer.getId(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private int getChunkSize() {
+        int chunkSize = nodeConfiguration.getInt(Constants.DISTRIBUTION_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
+        return chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    }
+
+    public ClusterManager getClusterManager() {
+        return clusterManager;
+    }
+
+    public void setClusterManager(ClusterManager clusterManager) {
+        this.clusterManager = clusterManager;
+    }
+
+    public ExecutionContext getExecutionContext() {
+        return executionContext;
+    }
+
+    public void setExecutionContext(ExecutionContext executionContext) {
+        this.executionContext = executionContext;
+    }
+
+    public NodeConfiguration getNodeConfiguration() {
+        return nodeConfiguration;
+    }
+
+    public void setNodeConfiguration(NodeConfiguration nodeConfiguration) {
+        this.nodeConfiguration = nodeConfiguration;
+    }
+
+    public ArtifactCache getArtifactCache() {
+        return artifactCache;
+    }
+
+    public void setArtifactCache(ArtifactCache artifactCache) {
+        this.artifactCache = artifactCache;
+    }
+
+    /**
+     * Stream of an artifact, requesting the chunks to a node as they are read.
+     */
+    private class PeerInputStream extends InputStream {
+
+        private final Node peer;
+        private final String digest;
+        private final int chunkSize = getChunkSize();
+        private long offset;
+        private long size = -1;
+        private byte[] chunk;
+        private int position;
+
+        PeerInputStream(Node peer, String digest) {
+            this.peer = peer;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, off, count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * Request the next chunk when the current one is consumed.
+         *
+         * @return false at the end of the artifact.
+         */
+        private boolean fill() throws IOException {
+            if (chunk != null && position < chunk.length) {
+                return true;
+            }
+            if (size >= 0 && offset >= size) {
+                return false;
+            }
+            ArtifactChunkCommand command = new ArtifactChunkCommand(clusterManager.generateId());
+            command.setDigest(digest);
+            command.setOffset(offset);
+            command.setLength(chunkSize);
+            command.setDestination(Collections.singleton(peer));
+            ArtifactChunkResult result;
+            try {
+                result = executionContext.execute(command).get(peer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for artifact chunk");
+            } catch (Exception e) {
+                throw new IOException("Can't request artifact chunk", e);
+            }
+            if (result == null) {
+                throw new IOException("no response");
+            }
+            if (result.getData() == null || result.getSize() < 0) {
+                throw new IOException("artifact not in cache");
+            }
+            if (result.getData().length == 0 && result.getSize() > offset) {
+                throw new IOException("empty chunk");
+            }
+            size = result.getSize();
+            chunk = result.getData();
+            position = 0;
+            offset += chunk.length;
+            return chunk.length > 0;
+        }
+
+    }
+
+}
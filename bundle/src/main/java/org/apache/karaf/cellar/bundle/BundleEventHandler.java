@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.bundle;
 
 import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
@@ -23,7 +24,6 @@ import org.apache.karaf.features.Feature;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleException;
 import org.osgi.framework.wiring.FrameworkWiring;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,15 +84,20 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
                         return;
                     }
                 }
+                // the event only carries the cluster group name, the artifact is fetched from the current group members
+                Group group = groupManager.findGroupByName(event.getSourceGroup().getName());
+                if (group == null) {
+                    group = event.getSourceGroup();
+                }
                 if (event.getType() == Bundle.INSTALLED) {
-                    installBundleFromLocation(event.getLocation(), event.getStartLevel());
+                    installBundleFromLocation(event.getLocation(), event.getStartLevel(), group, getArtifactDigest(event));
                     LOGGER.debug("CELLAR BUNDLE: installing {}/{}", event.getSymbolicName(), event.getVersion());
                 } else if (event.getType() == Bundle.UNINSTALLED) {
                     uninstallBundle(event.getSymbolicName(), event.getVersion());
                     LOGGER.debug("CELLAR BUNDLE: uninstalling {}/{}", event.getSymbolicName(), event.getVersion());
                 } else if (event.getType() == Bundle.ACTIVE) {
                     if (!isInstalled(event.getLocation())) {
-                        installBundleFromLocation(event.getLocation(), event.getStartLevel());
+                        installBundleFromLocation(event.getLocation(), event.getStartLevel(), group, getArtifactDigest(event));
                     }
                     try {
                         startBundle(event.getSymbolicName(), event.getVersion());
@@ -108,7 +113,7 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
                     }
                 } else if (event.getType() == Bundle.RESOLVED) {
                     if (!isInstalled(event.getLocation())) {
-                        installBundleFromLocation(event.getLocation(), event.getStartLevel());
+                        installBundleFromLocation(event.getLocation(), event.getStartLevel(), group, getArtifactDigest(event));
                         LOGGER.debug("CELLAR BUNDLE: installing {}/{}", event.getSymbolicName(), event.getVersion());
                     }
                     Bundle b = findBundle(event.getLocation());
@@ -135,6 +140,21 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
         }
     }
 
+    /**
+     * Get the digest of the bundle artifact from the cluster bundle state.
+     *
+     * @param event the cluster bundle event.
+     * @return the artifact digest, or {@code null} if the artifacts distribution is disabled or the digest is unknown.
+     */
+    private byte[] getArtifactDigest(ClusterBundleEvent event) {
+        if (getArtifactDistribution() == null || !getArtifactDistribution().isEnabled()) {
+            return null;
+        }
+        Map<String, BundleState> clusterBundles = clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + event.getSourceGroup().getName());
+        BundleState state = clusterBundles.get(event.getSymbolicName() + "/" + event.getVersion());
+        return state != null ? state.getData() : null;
+    }
+
     public void init() {
         // nothing to do
     }
@@ -152,14 +172,10 @@ public class BundleEventHandler extends BundleSupport implements EventHandler<Cl
     public Switch getSwitch() {
         // load the switch status from the config
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+            if (nodeConfiguration.getBoolean(Configurations.HANDLER + "." + this.getClass().getName(), eventSwitch.getStatus().getValue())) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
         } catch (Exception e) {
             // ignore
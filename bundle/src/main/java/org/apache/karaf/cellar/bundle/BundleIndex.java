@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Index of the local bundles, by location and by symbolic name/version.
+ * The index is maintained by a synchronous bundle listener, so a bundle is indexed before
+ * {@link BundleContext#installBundle(String)} returns.
+ */
+public class BundleIndex implements SynchronousBundleListener {
+
+    private BundleContext bundleContext;
+
+    private final Map<String, Bundle> bundlesByLocation = new ConcurrentHashMap<String, Bundle>();
+    private final Map<String, List<Bundle>> bundlesById = new ConcurrentHashMap<String, List<Bundle>>();
+    private final Map<Long, String> ids = new ConcurrentHashMap<Long, String>();
+
+    public void init() {
+        bundleContext.addBundleListener(this);
+        for (Bundle bundle : bundleContext.getBundles()) {
+            add(bundle);
+        }
+    }
+
+    public void destroy() {
+        bundleContext.removeBundleListener(this);
+        bundlesByLocation.clear();
+        bundlesById.clear();
+        ids.clear();
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        Bundle bundle = event.getBundle();
+        switch (event.getType()) {
+            case BundleEvent.INSTALLED:
+                add(bundle);
+                break;
+            case BundleEvent.UPDATED:
+                // the symbolic name and version may change with the update
+                remove(bundle);
+                add(bundle);
+                break;
+            case BundleEvent.UNINSTALLED:
+                remove(bundle);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private synchronized void add(Bundle bundle) {
+        if (bundle.getState() == Bundle.UNINSTALLED) {
+            return;
+        }
+        bundlesByLocation.put(bundle.getLocation(), bundle);
+        String id = getId(bundle.getSymbolicName(), bundle.getHeaders().get(org.osgi.framework.Constants.BUNDLE_VERSION));
+        ids.put(bundle.getBundleId(), id);
+        List<Bundle> bundles = bundlesById.get(id);
+        if (bundles == null) {
+            bundles = new CopyOnWriteArrayList<Bundle>();
+            bundlesById.put(id, bundles);
+        }
+        if (!bundles.contains(bundle)) {
+            bundles.add(bundle);
+        }
+    }
+
+    private synchronized void remove(Bundle bundle) {
+        bundlesByLocation.remove(bundle.getLocation());
+        String id = ids.remove(bundle.getBundleId());
+        if (id != null) {
+            List<Bundle> bundles = bundlesById.get(id);
+            if (bundles != null) {
+                bundles.remove(bundle);
+                if (bundles.isEmpty()) {
+                    bundlesById.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the local bundle installed from a location.
+     *
+     * @param location the bundle location.
+     * @return the local bundle or {@code null} if no bundle is installed from this location.
+     */
+    public Bundle getBundle(String location) {
+        if (location == null) {
+            return null;
+        }
+        return bundlesByLocation.get(location);
+    }
+
+    /**
+     * Get the local bundles with a symbolic name and version.
+     *
+     * @param symbolicName the bundle symbolic name.
+     * @param version the bundle version.
+     * @return the matching local bundles (empty if no bundle matches).
+     */
+    public List<Bundle> getBundles(String symbolicName, String version) {
+        List<Bundle> bundles = bundlesById.get(getId(symbolicName, version));
+        if (bundles == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<Bundle>(bundles);
+    }
+
+    private String getId(String symbolicName, String version) {
+        return symbolicName + "/" + version;
+    }
+
+    public BundleContext getBundleContext() {
+        return bundleContext;
+    }
+
+    public void setBundleContext(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+}
@@ -13,12 +13,16 @@
  */
 package org.apache.karaf.cellar.bundle;
 
-import java.io.Serializable;
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
+
+import java.io.IOException;
 
 /**
  * Serializable wrapper to store and transport bundle state.
  */
-public class BundleState implements Serializable {
+public class BundleState implements CompactSerializable {
 
     public static final int UPDATE = 555;
 
@@ -94,7 +98,31 @@ public class BundleState implements Serializable {
     }
 
     public void setData(byte[] data) {
-        this.data = data.clone();
+        this.data = (data == null) ? null : data.clone();
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeUTF(name);
+        out.writeUTF(symbolicName);
+        out.writeUTF(version);
+        out.writeUTF(location);
+        out.writeObject(startLevel);
+        out.writeInt(status);
+        out.writeObject(data);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        id = in.readLong();
+        name = in.readUTF();
+        symbolicName = in.readUTF();
+        version = in.readUTF();
+        location = in.readUTF();
+        startLevel = in.readObject();
+        status = in.readInt();
+        data = in.readObject();
     }
 
 }
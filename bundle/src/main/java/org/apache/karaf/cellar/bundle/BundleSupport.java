@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.bundle;
 
 import org.apache.karaf.cellar.core.CellarSupport;
+import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.features.BundleInfo;
 import org.apache.karaf.features.Feature;
 import org.apache.karaf.features.FeaturesService;
@@ -36,19 +37,53 @@ public class BundleSupport extends CellarSupport {
 
     protected BundleContext bundleContext;
 	private FeaturesService featuresService;
+    private BundleIndex bundleIndex;
+    private FeatureIndex featureIndex;
+    private ArtifactDistribution artifactDistribution;
 
     /**
      * Locally install a bundle.
      *
      * @param location the bundle location.
      * @param level optional bundle start level.
+     * @return the installed bundle.
      * @throws BundleException in case of installation failure.
      */
-    public void installBundleFromLocation(String location, Integer level) throws BundleException {
-        Bundle bundle = getBundleContext().installBundle(location);
+    public Bundle installBundleFromLocation(String location, Integer level) throws BundleException {
+        return installBundleFromLocation(location, level, null, null);
+    }
+
+    /**
+     * Locally install a bundle, using the artifact distributed by the cluster group nodes when available.
+     *
+     * @param location the bundle location.
+     * @param level optional bundle start level.
+     * @param group the cluster group where the bundle comes from.
+     * @param digest optional digest of the bundle artifact.
+     * @return the installed bundle.
+     * @throws BundleException in case of installation failure.
+     */
+    public Bundle installBundleFromLocation(String location, Integer level, Group group, byte[] digest) throws BundleException {
+        Bundle bundle = null;
+        if (group != null && digest != null && artifactDistribution != null && artifactDistribution.isEnabled()) {
+            File artifact = artifactDistribution.fetch(group, digest);
+            if (artifact != null) {
+                try (InputStream is = new FileInputStream(artifact)) {
+                    bundle = getBundleContext().installBundle(location, is);
+                } catch (IOException e) {
+                    throw new BundleException("Can't read the bundle artifact", e);
+                }
+            } else {
+                LOGGER.debug("CELLAR BUNDLE: artifact of bundle {} not available in the cluster, using the location", location);
+            }
+        }
+        if (bundle == null) {
+            bundle = getBundleContext().installBundle(location);
+        }
         if (level != null) {
             bundle.adapt(BundleStartLevel.class).setStartLevel(level);
         }
+        return bundle;
     }
 
     public boolean isInstalled(String location) {
@@ -56,13 +91,8 @@ public class BundleSupport extends CellarSupport {
     }
 
     public boolean isStarted(String location) {
-        Bundle[] bundles = getBundleContext().getBundles();
-        for (Bundle bundle : bundles) {
-            if (bundle.getLocation().equals(location) && (bundle.getState() == Bundle.ACTIVE)) {
-                return true;
-            }
-        }
-        return false;
+        Bundle bundle = findBundle(location);
+        return bundle != null && bundle.getState() == Bundle.ACTIVE;
     }
 
     /**
@@ -73,13 +103,8 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of un-installation failure.
      */
     public void uninstallBundle(String symbolicName, String version) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getHeaders().get("Bundle-Version").toString().equals(version)) {
-                    bundle.uninstall();
-                }
-            }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.uninstall();
         }
     }
 
@@ -91,13 +116,8 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of start failure.
      */
     public void startBundle(String symbolicName, String version) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getHeaders().get("Bundle-Version").toString().equals(version)) {
-                    bundle.start();
-                }
-            }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.start();
         }
     }
 
@@ -109,13 +129,8 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of stop failure.
      */
     public void stopBundle(String symbolicName, String version) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getHeaders().get("Bundle-Version").toString().equals(version)) {
-                    bundle.stop();
-                }
-            }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            bundle.stop();
         }
     }
 
@@ -128,28 +143,23 @@ public class BundleSupport extends CellarSupport {
      * @throws BundleException in case of update failure.
      */
     public void updateBundle(String symbolicName, String version, String location) throws BundleException {
-        Bundle[] bundles = getBundleContext().getBundles();
-        if (bundles != null) {
-            for (Bundle bundle : bundles) {
-                if (bundle.getSymbolicName().equals(symbolicName) && bundle.getHeaders().get("Bundle-Version").toString().equals(version)) {
-                    if (location != null) {
-                        try {
-                            update(bundle, new URL(location));
-                        } catch (Exception e) {
-                            throw new BundleException("Can't update bundle", e);
-                        }
-                    } else {
-                        String loc = bundle.getHeaders().get(org.osgi.framework.Constants.BUNDLE_UPDATELOCATION);
-                        if (loc != null && !loc.equals(bundle.getLocation())) {
-                            try {
-                                update(bundle, new URL(loc));
-                            } catch (Exception e) {
-                                throw new BundleException("Can't update bundle", e);
-                            }
-                        } else {
-                            bundle.update();
-                        }
+        for (Bundle bundle : findBundles(symbolicName, version)) {
+            if (location != null) {
+                try {
+                    update(bundle, new URL(location));
+                } catch (Exception e) {
+                    throw new BundleException("Can't update bundle", e);
+                }
+            } else {
+                String loc = bundle.getHeaders().get(org.osgi.framework.Constants.BUNDLE_UPDATELOCATION);
+                if (loc != null && !loc.equals(bundle.getLocation())) {
+                    try {
+                        update(bundle, new URL(loc));
+                    } catch (Exception e) {
+                        throw new BundleException("Can't update bundle", e);
                     }
+                } else {
+                    bundle.update();
                 }
             }
         }
@@ -173,6 +183,9 @@ public class BundleSupport extends CellarSupport {
      * @throws Exception in case of retrieval failure.
      */
 	protected List<Feature> retrieveFeature(String bundleLocation) throws Exception {
+		if (featureIndex != null) {
+			return featureIndex.getFeatures(bundleLocation);
+		}
 		Feature[] features = featuresService.listFeatures();
 		List<Feature> matchingFeatures = new ArrayList<Feature>();
 		for (Feature feature : features) {
@@ -204,6 +217,19 @@ public class BundleSupport extends CellarSupport {
 		this.featuresService = featureService;
 	}
 
+    /**
+     * Publish the artifact of a local bundle to the other nodes of a cluster group, in the background.
+     *
+     * @param bundle the local bundle.
+     * @param group the cluster group.
+     * @param id the bundle id (symbolic name/version) in the cluster group.
+     */
+    protected void publishArtifact(Bundle bundle, Group group, String id) {
+        if (artifactDistribution != null && artifactDistribution.isEnabled()) {
+            artifactDistribution.publish(bundle, group, id);
+        }
+    }
+
     /**
      * Finds locally installed bundle by its location.
      * 
@@ -212,6 +238,9 @@ public class BundleSupport extends CellarSupport {
      * @return locally installed bundle for the specified location or <code>null</code> if there is no matching bundle installed
      */
     protected Bundle findBundle(String location) {
+        if (bundleIndex != null) {
+            return bundleIndex.getBundle(location);
+        }
         Bundle[] bundles = getBundleContext().getBundles();
         for (Bundle bundle : bundles) {
             if (bundle.getLocation().equals(location)) {
@@ -221,4 +250,51 @@ public class BundleSupport extends CellarSupport {
         return null;
     }
 
+    /**
+     * Finds locally installed bundles by symbolic name and version.
+     *
+     * @param symbolicName the bundle symbolic name.
+     * @param version the bundle version.
+     * @return the locally installed bundles matching the symbolic name and version.
+     */
+    protected List<Bundle> findBundles(String symbolicName, String version) {
+        if (bundleIndex != null) {
+            return bundleIndex.getBundles(symbolicName, version);
+        }
+        List<Bundle> matchingBundles = new ArrayList<Bundle>();
+        Bundle[] bundles = getBundleContext().getBundles();
+        if (bundles != null) {
+            for (Bundle bundle : bundles) {
+                if (symbolicName.equals(bundle.getSymbolicName()) && version.equals(bundle.getHeaders().get(org.osgi.framework.Constants.BUNDLE_VERSION))) {
+                    matchingBundles.add(bundle);
+                }
+            }
+        }
+        return matchingBundles;
+    }
+
+    public BundleIndex getBundleIndex() {
+        return bundleIndex;
+    }
+
+    public void setBundleIndex(BundleIndex bundleIndex) {
+        this.bundleIndex = bundleIndex;
+    }
+
+    public ArtifactDistribution getArtifactDistribution() {
+        return artifactDistribution;
+    }
+
+    public void setArtifactDistribution(ArtifactDistribution artifactDistribution) {
+        this.artifactDistribution = artifactDistribution;
+    }
+
+    public FeatureIndex getFeatureIndex() {
+        return featureIndex;
+    }
+
+    public void setFeatureIndex(FeatureIndex featureIndex) {
+        this.featureIndex = featureIndex;
+    }
+
 }
@@ -13,6 +13,7 @@
  */
 package org.apache.karaf.cellar.bundle;
 
+import org.apache.karaf.cellar.core.BulkMapRemoval;
 import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Synchronizer;
@@ -22,7 +23,6 @@ import org.apache.karaf.cellar.core.event.EventType;
 import org.apache.karaf.features.BootFinished;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.BundleException;
 import org.osgi.framework.BundleReference;
 import org.osgi.framework.startlevel.BundleStartLevel;
 import org.osgi.framework.wiring.FrameworkWiring;
@@ -32,8 +32,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -126,62 +132,93 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
             ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
 
             try {
-                // get the bundles on the cluster to update local bundles
                 Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+                // install the missing bundles first, without resolving them one by one
+                Map<Bundle, String> bundlesToStart = new HashMap<Bundle, String>();
+                Map<Bundle, String> bundlesToResolve = new HashMap<Bundle, String>();
+                Map<String, Exception> failures = new LinkedHashMap<String, Exception>();
                 for (Map.Entry<String, BundleState> entry : clusterBundles.entrySet()) {
                     String id = entry.getKey();
                     BundleState state = entry.getValue();
 
                     String[] tokens = id.split("/");
-                    if (tokens.length == 2) {
-                        String symbolicName = tokens[0];
-                        String version = tokens[1];
-                        if (state != null) {
-                            String bundleLocation = state.getLocation();
-                            if (isAllowed(group, Constants.CATEGORY, bundleLocation, EventType.INBOUND)) {
-                                try {
-                                    if (state.getStatus() == Bundle.INSTALLED) {
-                                        if (!isInstalled(state.getLocation())) {
-                                            LOGGER.debug("CELLAR BUNDLE: installing bundle located {} on node", state.getLocation());
-                                            installBundleFromLocation(state.getLocation(), state.getStartLevel());
-                                        } else {
-                                            LOGGER.debug("CELLAR BUNDLE: bundle located {} already installed on node", state.getLocation());
-                                        }
-                                    } else if (state.getStatus() == Bundle.ACTIVE) {
-                                        if (!isInstalled(state.getLocation())) {
-                                            LOGGER.debug("CELLAR BUNDLE: installing bundle located {} on node", state.getLocation());
-                                            installBundleFromLocation(state.getLocation(), state.getStartLevel());
-                                        }
-                                        if (!isStarted(state.getLocation())) {
-                                            LOGGER.debug("CELLAR BUNDLE: starting bundle {}/{} on node", symbolicName, version);
-                                            startBundle(symbolicName, version);
-                                        } else {
-                                            LOGGER.debug("CELLAR BUNDLE: bundle located {} already started on node", state.getLocation());
-                                        }
-                                    } else if (state.getStatus() == Bundle.RESOLVED) {
-                                        if (!isInstalled(state.getLocation())) {
-                                            LOGGER.debug("CELLAR BUNDLE: installing bundle located {} on node", state.getLocation());
-                                            installBundleFromLocation(state.getLocation(), state.getStartLevel());
-                                        }
-                                        Bundle b = findBundle(state.getLocation());
-                                        if (b != null) {
-                                            if (b.getState() == Bundle.ACTIVE) {
-                                                LOGGER.debug("CELLAR BUNDLE: stopping bundle {}/{} on node", symbolicName, version);
-                                                stopBundle(symbolicName, version);
-                                            } else if (b.getState() == Bundle.INSTALLED) {
-                                                LOGGER.debug("CELLAR BUNDLE: resolving bundle {}/{} on node", symbolicName, version);
-                                                getBundleContext().getBundle(0).adapt(FrameworkWiring.class).resolveBundles(Collections.singleton(b));
+                    if (tokens.length == 2 && state != null) {
+                        String bundleLocation = state.getLocation();
+                        if (isAllowed(group, Constants.CATEGORY, bundleLocation, EventType.INBOUND)) {
+                            int status = state.getStatus();
+                            if (status != Bundle.INSTALLED && status != Bundle.ACTIVE && status != Bundle.RESOLVED) {
+                                continue;
+                            }
+                            try {
+                                Bundle bundle = findBundle(bundleLocation);
+                                if (bundle == null) {
+                                    LOGGER.debug("CELLAR BUNDLE: installing bundle located {} on node", bundleLocation);
+                                    bundle = installBundleFromLocation(bundleLocation, state.getStartLevel(), group, state.getData());
+                                } else {
+                                    LOGGER.debug("CELLAR BUNDLE: bundle located {} already installed on node", bundleLocation);
+                                }
+                                if (status == Bundle.ACTIVE) {
+                                    if (bundle.getState() != Bundle.ACTIVE) {
+                                        bundlesToStart.put(bundle, id);
+                                        bundlesToResolve.put(bundle, id);
+                                        // start all the local bundles with this symbolic name and version, as the bundle event handler does
+                                        for (Bundle matching : findBundles(tokens[0], tokens[1])) {
+                                            if (matching.getState() != Bundle.ACTIVE) {
+                                                bundlesToStart.put(matching, id);
+                                                bundlesToResolve.put(matching, id);
                                             }
-                                        } else {
-                                            LOGGER.warn("CELLAR BUNDLE: unable to find bundle located {} on node", state.getLocation());
                                         }
+                                    } else {
+                                        LOGGER.debug("CELLAR BUNDLE: bundle located {} already started on node", bundleLocation);
+                                    }
+                                } else if (status == Bundle.RESOLVED) {
+                                    if (bundle.getState() == Bundle.ACTIVE) {
+                                        LOGGER.debug("CELLAR BUNDLE: stopping bundle {} on node", id);
+                                        bundle.stop();
+                                    } else if (bundle.getState() == Bundle.INSTALLED) {
+                                        bundlesToResolve.put(bundle, id);
                                     }
-                                } catch (BundleException e) {
-                                    LOGGER.error("CELLAR BUNDLE: failed to pull bundle {}", id, e);
                                 }
-                            } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED INBOUND for cluster group {}", bundleLocation, groupName);
+                            } catch (Exception e) {
+                                failures.put(id, e);
+                            }
+                        } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED INBOUND for cluster group {}", bundleLocation, groupName);
+                    }
+                }
+                // resolve all the installed bundles at once
+                if (!bundlesToResolve.isEmpty()) {
+                    LOGGER.debug("CELLAR BUNDLE: resolving {} bundles on node", bundlesToResolve.size());
+                    getBundleContext().getBundle(0).adapt(FrameworkWiring.class).resolveBundles(bundlesToResolve.keySet());
+                }
+                // start the bundles in start level order
+                List<Bundle> startOrder = new ArrayList<Bundle>(bundlesToStart.keySet());
+                Collections.sort(startOrder, new Comparator<Bundle>() {
+                    @Override
+                    public int compare(Bundle bundle1, Bundle bundle2) {
+                        int level1 = bundle1.adapt(BundleStartLevel.class).getStartLevel();
+                        int level2 = bundle2.adapt(BundleStartLevel.class).getStartLevel();
+                        if (level1 != level2) {
+                            return level1 < level2 ? -1 : 1;
                         }
+                        long id1 = bundle1.getBundleId();
+                        long id2 = bundle2.getBundleId();
+                        return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
                     }
+                });
+                for (Bundle bundle : startOrder) {
+                    String id = bundlesToStart.get(bundle);
+                    try {
+                        LOGGER.debug("CELLAR BUNDLE: starting bundle {} on node", id);
+                        bundle.start();
+                    } catch (Exception e) {
+                        failures.put(id, e);
+                    }
+                }
+                for (Map.Entry<String, Exception> failure : failures.entrySet()) {
+                    LOGGER.error("CELLAR BUNDLE: failed to pull bundle {}", failure.getKey(), failure.getValue());
+                }
+                if (!failures.isEmpty()) {
+                    LOGGER.warn("CELLAR BUNDLE: {} bundles failed to be pulled from cluster group {}: {}", failures.size(), groupName, failures.keySet());
                 }
                 // cleanup the local bundles not present on the cluster if the node is not the first one in the cluster group
                 if (clusterManager.listNodesByGroup(group).size() > 1) {
@@ -228,6 +265,7 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
                 BundleContext bundleContext = ((BundleReference) getClass().getClassLoader()).getBundle().getBundleContext();
 
                 bundles = bundleContext.getBundles();
+                Set<String> localIds = new HashSet<String>();
                 // push local bundles to the cluster
                 for (Bundle bundle : bundles) {
                     long bundleId = bundle.getBundleId();
@@ -238,6 +276,7 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
                     int level = bundle.adapt(BundleStartLevel.class).getStartLevel();
 
                     String id = getId(bundle);
+                    localIds.add(id);
 
                     // check if the pid is marked as local.
                     if (isAllowed(group, Constants.CATEGORY, bundleLocation, EventType.OUTBOUND)) {
@@ -259,6 +298,7 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
                             bundleState.setStatus(status);
                             // update cluster state
                             clusterBundles.put(id, bundleState);
+                            publishArtifact(bundle, group, id);
                             // send cluster event
                             ClusterBundleEvent clusterEvent = new ClusterBundleEvent(symbolicName, version, bundleLocation, level, status);
                             clusterEvent.setSourceGroup(group);
@@ -284,19 +324,20 @@ public class BundleSynchronizer extends BundleSupport implements Synchronizer {
                     } else LOGGER.trace("CELLAR BUNDLE: bundle {} is marked BLOCKED OUTBOUND for cluster group {}", bundleLocation, groupName);
                 }
                 // clean bundles on the cluster not present locally
+                Set<String> staleIds = new HashSet<String>();
                 for (Map.Entry<String, BundleState> entry : clusterBundles.entrySet()) {
                     String id = entry.getKey();
                     BundleState state = entry.getValue();
-                    if (state != null && isAllowed(group, Constants.CATEGORY, state.getLocation(), EventType.OUTBOUND)) {
-                        boolean found = false;
-                        for (Bundle bundle : bundleContext.getBundles()) {
-                            String localBundleId = getId(bundle);
-                            if (id.equals(localBundleId)) {
-                                found = true;
-                                break;
-                            }
-                        }
-                        if (!found) {
+                    if (!localIds.contains(id) && state != null && isAllowed(group, Constants.CATEGORY, state.getLocation(), EventType.OUTBOUND)) {
+                        staleIds.add(id);
+                    }
+                }
+                if (!staleIds.isEmpty()) {
+                    LOGGER.debug("CELLAR BUNDLE: removing {} bundles not present locally from cluster group {}", staleIds.size(), groupName);
+                    if (clusterManager instanceof BulkMapRemoval) {
+                        ((BulkMapRemoval) clusterManager).removeAll(Constants.BUNDLE_MAP + Configurations.SEPARATOR + groupName, staleIds);
+                    } else {
+                        for (String id : staleIds) {
                             clusterBundles.remove(id);
                         }
                     }
@@ -13,13 +13,20 @@
  */
 package org.apache.karaf.cellar.bundle;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.Supersedable;
+import org.osgi.framework.Bundle;
+
+import java.io.IOException;
 
 /**
  * Cluster bundle event.
  */
-public class ClusterBundleEvent extends Event {
+public class ClusterBundleEvent extends Event implements CompactSerializable, Supersedable {
 
     private String symbolicName;
     private String version;
@@ -28,6 +35,9 @@ public class ClusterBundleEvent extends Event {
     private int type;
     private Node local;
 
+    public ClusterBundleEvent() {
+    }
+
     public ClusterBundleEvent(String symbolicName, String version, String location, Integer startLevel, int type) {
         super(symbolicName + "/" + version);
         this.symbolicName = symbolicName;
@@ -84,4 +94,43 @@ public class ClusterBundleEvent extends Event {
     public void setLocal(Node local) {
         this.local = local;
     }
+
+    /**
+     * A bundle state change replaces a previous state change of the same bundle, as the handler installs the
+     * bundle if needed. An update is never coalesced, and an install only replaces a previous install.
+     */
+    @Override
+    public boolean supersedes(Event previous) {
+        if (!(previous instanceof ClusterBundleEvent)) {
+            return false;
+        }
+        int previousType = ((ClusterBundleEvent) previous).getType();
+        if (type == BundleState.UPDATE || previousType == BundleState.UPDATE) {
+            return false;
+        }
+        return type != Bundle.INSTALLED || previousType == Bundle.INSTALLED;
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeUTF(symbolicName);
+        out.writeUTF(version);
+        out.writeUTF(location);
+        out.writeObject(startLevel);
+        out.writeInt(type);
+        out.writeNode(local);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        symbolicName = in.readUTF();
+        version = in.readUTF();
+        location = in.readUTF();
+        startLevel = in.readObject();
+        type = in.readInt();
+        local = in.readNode();
+    }
+
 }
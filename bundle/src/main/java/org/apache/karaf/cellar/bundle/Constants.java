@@ -20,5 +20,7 @@ public class Constants {
 
     public static final String CATEGORY = "bundle";
     public static final String BUNDLE_MAP = "org.apache.karaf.cellar.bundle.map";
+    public static final String DISTRIBUTION = "bundle.distribution";
+    public static final String DISTRIBUTION_CHUNK_SIZE = "bundle.distribution.chunk.size";
 
 }
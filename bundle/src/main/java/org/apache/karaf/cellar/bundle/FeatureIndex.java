@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeatureEvent;
+import org.apache.karaf.features.FeaturesListener;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.RepositoryEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index of the features containing a bundle, by bundle location.
+ * The index is built from all the features known by the features service, including the features of the referenced
+ * repositories. A repository event marks the index stale, and the index is rebuilt on the next lookup.
+ */
+public class FeatureIndex implements FeaturesListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(FeatureIndex.class);
+
+    private FeaturesService featuresService;
+
+    private volatile Map<String, List<Feature>> featuresByLocation = Collections.emptyMap();
+    private volatile boolean stale = true;
+
+    public void init() {
+        rebuild();
+    }
+
+    public void destroy() {
+        stale = true;
+        featuresByLocation = Collections.emptyMap();
+    }
+
+    @Override
+    public void featureEvent(FeatureEvent event) {
+        // the features definitions don't change when a feature is installed or uninstalled
+    }
+
+    @Override
+    public void repositoryEvent(RepositoryEvent event) {
+        // a repository event doesn't describe the referenced repositories added or removed with the repository
+        if (event.getType() == RepositoryEvent.EventType.RepositoryAdded
+                || event.getType() == RepositoryEvent.EventType.RepositoryRemoved) {
+            stale = true;
+        }
+    }
+
+    private synchronized void rebuild() {
+        if (!stale) {
+            return;
+        }
+        // a repository event received during the rebuild marks the index stale again
+        stale = false;
+        Map<String, List<Feature>> index = new HashMap<String, List<Feature>>();
+        try {
+            for (Feature feature : featuresService.listFeatures()) {
+                for (BundleInfo bundleInfo : feature.getBundles()) {
+                    String key = getKey(bundleInfo.getLocation());
+                    List<Feature> locationFeatures = index.get(key);
+                    if (locationFeatures == null) {
+                        locationFeatures = new ArrayList<Feature>();
+                        index.put(key, locationFeatures);
+                    }
+                    // a feature can contain the same bundle several times
+                    if (!locationFeatures.contains(feature)) {
+                        locationFeatures.add(feature);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            stale = true;
+            LOGGER.warn("CELLAR BUNDLE: can't index the features", e);
+            return;
+        }
+        featuresByLocation = index;
+    }
+
+    /**
+     * Get the features containing a bundle.
+     *
+     * @param location the bundle location (case insensitive).
+     * @return the features containing the bundle (empty if the bundle is not part of any feature).
+     */
+    public List<Feature> getFeatures(String location) {
+        if (location == null) {
+            return Collections.emptyList();
+        }
+        if (stale) {
+            rebuild();
+        }
+        List<Feature> features = featuresByLocation.get(getKey(location));
+        if (features == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<Feature>(features);
+    }
+
+    private String getKey(String location) {
+        return location.toLowerCase(Locale.ENGLISH);
+    }
+
+    public FeaturesService getFeaturesService() {
+        return featuresService;
+    }
+
+    public void setFeaturesService(FeaturesService featuresService) {
+        this.featuresService = featuresService;
+    }
+
+}
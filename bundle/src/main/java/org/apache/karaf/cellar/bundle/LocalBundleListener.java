@@ -22,11 +22,9 @@ import org.apache.karaf.features.Feature;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.framework.startlevel.BundleStartLevel;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -115,7 +113,15 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
                                 state.setStatus(status);
                                 state.setStartLevel(startLevel);
                                 state.setLocation(bundleLocation);
+                                boolean publish = state.getData() == null || event.getType() == BundleEvent.UPDATED;
+                                if (event.getType() == BundleEvent.UPDATED) {
+                                    // the previous artifact is outdated
+                                    state.setData(null);
+                                }
                                 clusterBundles.put(symbolicName + "/" + version, state);
+                                if (publish) {
+                                    publishArtifact(event.getBundle(), group, symbolicName + "/" + version);
+                                }
                             }
 
                             // check the features first
@@ -151,17 +157,7 @@ public class LocalBundleListener extends BundleSupport implements SynchronousBun
      * @return true if enabled, false else.
      */
     private boolean isEnabled() {
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            Dictionary<String, Object> properties = configuration.getProperties();
-            if (properties != null) {
-                String value = properties.get(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER).toString();
-                return Boolean.parseBoolean(value);
-            }
-        } catch (Exception e) {
-            LOGGER.warn("CELLAR BUNDLE: can't check listener configuration", e);
-        }
-        return false;
+        return nodeConfiguration.getBoolean(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER, false);
     }
 
     public void init() {
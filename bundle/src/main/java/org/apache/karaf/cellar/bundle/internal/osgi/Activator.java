@@ -13,16 +13,26 @@
  */
 package org.apache.karaf.cellar.bundle.internal.osgi;
 
+import org.apache.karaf.cellar.bundle.ArtifactCache;
+import org.apache.karaf.cellar.bundle.ArtifactChunkCommandHandler;
+import org.apache.karaf.cellar.bundle.ArtifactChunkResultHandler;
+import org.apache.karaf.cellar.bundle.ArtifactDistribution;
 import org.apache.karaf.cellar.bundle.BundleEventHandler;
+import org.apache.karaf.cellar.bundle.BundleIndex;
 import org.apache.karaf.cellar.bundle.BundleSynchronizer;
+import org.apache.karaf.cellar.bundle.FeatureIndex;
 import org.apache.karaf.cellar.bundle.LocalBundleListener;
 import org.apache.karaf.cellar.bundle.management.CellarBundleMBean;
 import org.apache.karaf.cellar.bundle.management.internal.CellarBundleMBeanImpl;
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.Synchronizer;
+import org.apache.karaf.cellar.core.command.CommandStore;
+import org.apache.karaf.cellar.core.command.ExecutionContext;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.features.FeaturesListener;
 import org.apache.karaf.features.FeaturesService;
 import org.apache.karaf.util.tracker.BaseActivator;
 import org.apache.karaf.util.tracker.annotation.ProvideService;
@@ -39,13 +49,17 @@ import java.util.Hashtable;
         provides = {
                 @ProvideService(EventHandler.class),
                 @ProvideService(Synchronizer.class),
+                @ProvideService(FeaturesListener.class),
                 @ProvideService(CellarBundleMBean.class)
         },
         requires = {
                 @RequireService(ClusterManager.class),
                 @RequireService(GroupManager.class),
                 @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class),
                 @RequireService(EventProducer.class),
+                @RequireService(CommandStore.class),
+                @RequireService(ExecutionContext.class),
                 @RequireService(FeaturesService.class)
         }
 )
@@ -53,6 +67,9 @@ public class Activator extends BaseActivator {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(Activator.class);
 
+    private BundleIndex bundleIndex;
+    private FeatureIndex featureIndex;
+    private ArtifactDistribution artifactDistribution;
     private LocalBundleListener localBundleListener;
     private BundleSynchronizer synchronizer;
     private BundleEventHandler eventHandler;
@@ -70,19 +87,63 @@ public class Activator extends BaseActivator {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
         EventProducer eventProducer = getTrackedService(EventProducer.class);
         if (eventProducer == null)
             return;
+        CommandStore commandStore = getTrackedService(CommandStore.class);
+        if (commandStore == null)
+            return;
+        ExecutionContext executionContext = getTrackedService(ExecutionContext.class);
+        if (executionContext == null)
+            return;
         FeaturesService featuresService = getTrackedService(FeaturesService.class);
         if (featuresService == null)
             return;
 
+        LOGGER.debug("CELLAR BUNDLE: init local bundle index");
+        bundleIndex = new BundleIndex();
+        bundleIndex.setBundleContext(bundleContext);
+        bundleIndex.init();
+
+        LOGGER.debug("CELLAR BUNDLE: init features index");
+        featureIndex = new FeatureIndex();
+        featureIndex.setFeaturesService(featuresService);
+        featureIndex.init();
+        register(FeaturesListener.class, featureIndex);
+
+        LOGGER.debug("CELLAR BUNDLE: init artifacts distribution");
+        ArtifactCache artifactCache = new ArtifactCache();
+        artifactCache.init();
+        artifactDistribution = new ArtifactDistribution();
+        artifactDistribution.setClusterManager(clusterManager);
+        artifactDistribution.setExecutionContext(executionContext);
+        artifactDistribution.setNodeConfiguration(nodeConfiguration);
+        artifactDistribution.setArtifactCache(artifactCache);
+        artifactDistribution.init();
+
+        ArtifactChunkCommandHandler artifactChunkCommandHandler = new ArtifactChunkCommandHandler();
+        artifactChunkCommandHandler.setProducer(eventProducer);
+        artifactChunkCommandHandler.setConfigurationAdmin(configurationAdmin);
+        artifactChunkCommandHandler.setArtifactCache(artifactCache);
+        register(EventHandler.class, artifactChunkCommandHandler);
+
+        ArtifactChunkResultHandler artifactChunkResultHandler = new ArtifactChunkResultHandler();
+        artifactChunkResultHandler.setCommandStore(commandStore);
+        register(EventHandler.class, artifactChunkResultHandler);
+
         LOGGER.debug("CELLAR BUNDLE: init even handler");
         eventHandler = new BundleEventHandler();
         eventHandler.setConfigurationAdmin(configurationAdmin);
+        eventHandler.setNodeConfiguration(nodeConfiguration);
         eventHandler.setClusterManager(clusterManager);
         eventHandler.setGroupManager(groupManager);
         eventHandler.setBundleContext(bundleContext);
+        eventHandler.setBundleIndex(bundleIndex);
+        eventHandler.setArtifactDistribution(artifactDistribution);
+        eventHandler.setFeatureIndex(featureIndex);
         eventHandler.setFeaturesService(featuresService);
         eventHandler.init();
         Hashtable props = new Hashtable();
@@ -94,17 +155,24 @@ public class Activator extends BaseActivator {
         localBundleListener.setClusterManager(clusterManager);
         localBundleListener.setGroupManager(groupManager);
         localBundleListener.setConfigurationAdmin(configurationAdmin);
+        localBundleListener.setNodeConfiguration(nodeConfiguration);
         localBundleListener.setEventProducer(eventProducer);
         localBundleListener.setFeaturesService(featuresService);
         localBundleListener.setBundleContext(bundleContext);
+        localBundleListener.setBundleIndex(bundleIndex);
+        localBundleListener.setArtifactDistribution(artifactDistribution);
+        localBundleListener.setFeatureIndex(featureIndex);
         localBundleListener.init();
 
         LOGGER.debug("CELLAR BUNDLE: init synchronizer");
         synchronizer = new BundleSynchronizer();
         synchronizer.setConfigurationAdmin(configurationAdmin);
+        synchronizer.setNodeConfiguration(nodeConfiguration);
         synchronizer.setGroupManager(groupManager);
         synchronizer.setClusterManager(clusterManager);
         synchronizer.setBundleContext(bundleContext);
+        synchronizer.setBundleIndex(bundleIndex);
+        synchronizer.setArtifactDistribution(artifactDistribution);
         synchronizer.setEventProducer(eventProducer);
         synchronizer.init(bundleContext);
         props = new Hashtable();
@@ -144,6 +212,18 @@ public class Activator extends BaseActivator {
             eventHandler.destroy();
             eventHandler = null;
         }
+        if (artifactDistribution != null) {
+            artifactDistribution.destroy();
+            artifactDistribution = null;
+        }
+        if (featureIndex != null) {
+            featureIndex.destroy();
+            featureIndex = null;
+        }
+        if (bundleIndex != null) {
+            bundleIndex.destroy();
+            bundleIndex = null;
+        }
     }
 
 }
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ArtifactCacheTest {
+
+    private static final byte[] CONTENT = "cellar bundle artifact".getBytes(StandardCharsets.UTF_8);
+
+    private File directory;
+    private ArtifactCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("artifacts", "");
+        directory.delete();
+        cache = new ArtifactCache();
+        cache.setDirectory(directory);
+        cache.init();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testPutStoresArtifactByDigest() throws Exception {
+        String digest = cache.put(new ByteArrayInputStream(CONTENT), null);
+
+        assertEquals(ArtifactCache.toHex(MessageDigest.getInstance("SHA-256").digest(CONTENT)), digest);
+        assertNotNull(cache.get(digest));
+        assertArrayEquals(ArtifactCache.fromHex(digest), MessageDigest.getInstance("SHA-256").digest(CONTENT));
+    }
+
+    @Test
+    public void testPutRejectsDigestMismatch() throws Exception {
+        String otherDigest = ArtifactCache.toHex(MessageDigest.getInstance("SHA-256").digest(new byte[]{1}));
+
+        assertNull(cache.put(new ByteArrayInputStream(CONTENT), otherDigest));
+        assertNull(cache.get(otherDigest));
+        // no artifact nor temporary file left in the cache
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testReadChunks() throws Exception {
+        String digest = cache.put(new ByteArrayInputStream(CONTENT), null);
+
+        assertArrayEquals("cellar".getBytes(StandardCharsets.UTF_8), cache.read(digest, 0, 6));
+        // the last chunk is truncated at the end of the artifact
+        assertArrayEquals("artifact".getBytes(StandardCharsets.UTF_8), cache.read(digest, CONTENT.length - 8, 100));
+        // an empty chunk is returned at and past the end of the artifact
+        assertEquals(0, cache.read(digest, CONTENT.length, 100).length);
+        assertEquals(0, cache.read(digest, CONTENT.length + 10, 100).length);
+    }
+
+    @Test
+    public void testReadUnknownArtifact() throws Exception {
+        String digest = ArtifactCache.toHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+
+        assertNull(cache.read(digest, 0, 100));
+    }
+
+    @Test
+    public void testNonHexDigestsAreRejected() throws Exception {
+        String digest = cache.put(new ByteArrayInputStream(CONTENT), null);
+        assertTrue(new File(directory, "other").createNewFile());
+
+        assertNull(cache.get("../" + digest));
+        assertNull(cache.get(digest.toUpperCase()));
+        assertNull(cache.get("other"));
+        assertNull(cache.get(""));
+        assertNull(cache.get(null));
+        assertNull(cache.read("../" + digest, 0, 100));
+    }
+
+}
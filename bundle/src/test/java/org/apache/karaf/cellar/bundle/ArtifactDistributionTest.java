@@ -0,0 +1,220 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.command.ExecutionContext;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+public class ArtifactDistributionTest {
+
+    private static final String LOCATION = "mvn:org.foo/bar/1.0.0";
+    private static final byte[] CONTENT = "cellar bundle artifact".getBytes(StandardCharsets.UTF_8);
+
+    private final Group group = new Group("default");
+
+    private File localDirectory;
+    private File peerDirectory;
+    private ArtifactCache peerCache;
+    private ExecutionContext executionContext;
+    private BundleContext bundleContext;
+    private Bundle bundle;
+    private BundleSupport support;
+
+    @Before
+    public void setUp() throws Exception {
+        localDirectory = createDirectory();
+        peerDirectory = createDirectory();
+        ArtifactCache localCache = new ArtifactCache();
+        localCache.setDirectory(localDirectory);
+        localCache.init();
+        peerCache = new ArtifactCache();
+        peerCache.setDirectory(peerDirectory);
+        peerCache.init();
+
+        Node local = createNiceMock(Node.class);
+        Node peer = createNiceMock(Node.class);
+        replay(local, peer);
+        Set<Node> nodes = new HashSet<Node>();
+        nodes.add(local);
+        nodes.add(peer);
+        ClusterManager clusterManager = createMock(ClusterManager.class);
+        expect(clusterManager.listNodesByGroup(group)).andReturn(nodes).anyTimes();
+        expect(clusterManager.getNode()).andReturn(local).anyTimes();
+        expect(clusterManager.generateId()).andReturn("chunk").anyTimes();
+        replay(clusterManager);
+
+        NodeConfiguration nodeConfiguration = createMock(NodeConfiguration.class);
+        expect(nodeConfiguration.getBoolean(Constants.DISTRIBUTION, false)).andReturn(true).anyTimes();
+        // small chunks to get the artifact in several requests
+        expect(nodeConfiguration.getInt(Constants.DISTRIBUTION_CHUNK_SIZE, ArtifactDistribution.DEFAULT_CHUNK_SIZE)).andReturn(5).anyTimes();
+        replay(nodeConfiguration);
+
+        executionContext = createMock(ExecutionContext.class);
+
+        ArtifactDistribution artifactDistribution = new ArtifactDistribution();
+        artifactDistribution.setClusterManager(clusterManager);
+        artifactDistribution.setNodeConfiguration(nodeConfiguration);
+        artifactDistribution.setExecutionContext(executionContext);
+        artifactDistribution.setArtifactCache(localCache);
+
+        bundle = createNiceMock(Bundle.class);
+        replay(bundle);
+        bundleContext = createMock(BundleContext.class);
+
+        support = new BundleSupport();
+        support.setBundleContext(bundleContext);
+        support.setArtifactDistribution(artifactDistribution);
+    }
+
+    @After
+    public void tearDown() {
+        delete(localDirectory);
+        delete(peerDirectory);
+    }
+
+    @Test
+    public void testInstallFromPeerArtifact() throws Exception {
+        String digest = peerCache.put(new ByteArrayInputStream(CONTENT), null);
+        final ArtifactChunkCommandHandler handler = new ArtifactChunkCommandHandler();
+        handler.setArtifactCache(peerCache);
+        expect(executionContext.execute(anyObject(ArtifactChunkCommand.class))).andAnswer(new IAnswer<Map<Node, ArtifactChunkResult>>() {
+            @Override
+            public Map<Node, ArtifactChunkResult> answer() throws Throwable {
+                ArtifactChunkCommand command = (ArtifactChunkCommand) getCurrentArguments()[0];
+                Map<Node, ArtifactChunkResult> results = new HashMap<Node, ArtifactChunkResult>();
+                results.put(command.getDestination().iterator().next(), handler.execute(command));
+                return results;
+            }
+        }).anyTimes();
+        replay(executionContext);
+        final ByteArrayOutputStream installed = new ByteArrayOutputStream();
+        expect(bundleContext.installBundle(eq(LOCATION), anyObject(InputStream.class))).andAnswer(new IAnswer<Bundle>() {
+            @Override
+            public Bundle answer() throws Throwable {
+                InputStream in = (InputStream) getCurrentArguments()[1];
+                byte[] buffer = new byte[16];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    installed.write(buffer, 0, read);
+                }
+                return bundle;
+            }
+        });
+        replay(bundleContext);
+
+        assertSame(bundle, support.installBundleFromLocation(LOCATION, null, group, ArtifactCache.fromHex(digest)));
+
+        verify(bundleContext);
+        assertArrayEquals(CONTENT, installed.toByteArray());
+    }
+
+    @Test
+    public void testInstallFromLocationWhenNoPeerHasTheArtifact() throws Exception {
+        expect(executionContext.execute(anyObject(ArtifactChunkCommand.class))).andAnswer(new IAnswer<Map<Node, ArtifactChunkResult>>() {
+            @Override
+            public Map<Node, ArtifactChunkResult> answer() throws Throwable {
+                ArtifactChunkCommand command = (ArtifactChunkCommand) getCurrentArguments()[0];
+                // the peer replies without data
+                return Collections.singletonMap(command.getDestination().iterator().next(), new ArtifactChunkResult(command.getId()));
+            }
+        });
+        replay(executionContext);
+        expect(bundleContext.installBundle(LOCATION)).andReturn(bundle);
+        replay(bundleContext);
+
+        assertSame(bundle, support.installBundleFromLocation(LOCATION, null, group, digest()));
+
+        verify(bundleContext);
+    }
+
+    @Test
+    public void testInstallFromLocationWhenPeerTimesOut() throws Exception {
+        // the command times out without result
+        expect(executionContext.execute(anyObject(ArtifactChunkCommand.class))).andReturn(new HashMap<Node, ArtifactChunkResult>());
+        replay(executionContext);
+        expect(bundleContext.installBundle(LOCATION)).andReturn(bundle);
+        replay(bundleContext);
+
+        assertSame(bundle, support.installBundleFromLocation(LOCATION, null, group, digest()));
+
+        verify(bundleContext);
+    }
+
+    @Test
+    public void testInstallFromLocationWhenCommandFails() throws Exception {
+        executionContext.execute(anyObject(ArtifactChunkCommand.class));
+        expectLastCall().andThrow(new IllegalStateException("producer is OFF"));
+        replay(executionContext);
+        expect(bundleContext.installBundle(LOCATION)).andReturn(bundle);
+        replay(bundleContext);
+
+        assertSame(bundle, support.installBundleFromLocation(LOCATION, null, group, digest()));
+
+        verify(bundleContext);
+    }
+
+    private static byte[] digest() throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(CONTENT);
+    }
+
+    private static File createDirectory() throws Exception {
+        File directory = File.createTempFile("artifacts", "");
+        directory.delete();
+        return directory;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BundleIndexTest {
+
+    private static final String LOCATION = "mvn:org.foo/bar/1.0.0";
+
+    private final Dictionary<String, String> headers = new Hashtable<String, String>();
+    private String symbolicName = "org.foo.bar";
+    private int state = Bundle.INSTALLED;
+
+    private Bundle bundle;
+    private BundleIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        headers.put(org.osgi.framework.Constants.BUNDLE_VERSION, "1.0.0");
+        bundle = createMock(Bundle.class);
+        expect(bundle.getBundleId()).andReturn(42L).anyTimes();
+        expect(bundle.getLocation()).andReturn(LOCATION).anyTimes();
+        expect(bundle.getHeaders()).andReturn(headers).anyTimes();
+        expect(bundle.getSymbolicName()).andAnswer(new IAnswer<String>() {
+            @Override
+            public String answer() throws Throwable {
+                return symbolicName;
+            }
+        }).anyTimes();
+        expect(bundle.getState()).andAnswer(new IAnswer<Integer>() {
+            @Override
+            public Integer answer() throws Throwable {
+                return state;
+            }
+        }).anyTimes();
+        replay(bundle);
+
+        BundleContext bundleContext = createMock(BundleContext.class);
+        bundleContext.addBundleListener(anyObject(BundleListener.class));
+        expectLastCall().anyTimes();
+        expect(bundleContext.getBundles()).andReturn(new Bundle[0]).anyTimes();
+        replay(bundleContext);
+
+        index = new BundleIndex();
+        index.setBundleContext(bundleContext);
+        index.init();
+    }
+
+    @Test
+    public void testInstalledBundleIsIndexed() {
+        index.bundleChanged(new BundleEvent(BundleEvent.INSTALLED, bundle));
+
+        assertSame(bundle, index.getBundle(LOCATION));
+        assertEquals(Collections.singletonList(bundle), index.getBundles("org.foo.bar", "1.0.0"));
+    }
+
+    @Test
+    public void testUpdatedBundleIsIndexedWithItsNewVersion() {
+        index.bundleChanged(new BundleEvent(BundleEvent.INSTALLED, bundle));
+
+        // the update changes the symbolic name and version of the bundle installed from the location
+        symbolicName = "org.foo.baz";
+        headers.put(org.osgi.framework.Constants.BUNDLE_VERSION, "2.0.0");
+        index.bundleChanged(new BundleEvent(BundleEvent.UPDATED, bundle));
+
+        assertSame(bundle, index.getBundle(LOCATION));
+        assertTrue(index.getBundles("org.foo.bar", "1.0.0").isEmpty());
+        assertEquals(Collections.singletonList(bundle), index.getBundles("org.foo.baz", "2.0.0"));
+    }
+
+    @Test
+    public void testUninstalledBundleIsRemoved() {
+        index.bundleChanged(new BundleEvent(BundleEvent.INSTALLED, bundle));
+
+        state = Bundle.UNINSTALLED;
+        index.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, bundle));
+
+        assertNull(index.getBundle(LOCATION));
+        assertTrue(index.getBundles("org.foo.bar", "1.0.0").isEmpty());
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.event.EventType;
+import org.easymock.Capture;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+public class BundleSynchronizerTest {
+
+    private final Group group = new Group("default");
+    private final Map<String, BundleState> clusterBundles = new HashMap<String, BundleState>();
+    private final Map<String, Bundle> available = new HashMap<String, Bundle>();
+    private final List<Bundle> installed = new ArrayList<Bundle>();
+    private final List<String> started = new ArrayList<String>();
+    private long nextBundleId = 1;
+
+    private BundleContext bundleContext;
+    private FrameworkWiring frameworkWiring;
+    private Capture<Collection<Bundle>> resolved;
+    private BundleSynchronizer synchronizer;
+
+    @Before
+    public void setUp() throws Exception {
+        ClusterManager clusterManager = createMock(ClusterManager.class);
+        expect(clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + group.getName())).andReturn((Map) clusterBundles).anyTimes();
+        // the node is alone in the cluster group, the local bundles are not cleaned up
+        expect(clusterManager.listNodesByGroup(group)).andReturn(Collections.singleton(createMock(Node.class))).anyTimes();
+        replay(clusterManager);
+
+        resolved = newCapture();
+        frameworkWiring = createMock(FrameworkWiring.class);
+        expect(frameworkWiring.resolveBundles(capture(resolved))).andReturn(true).once();
+        replay(frameworkWiring);
+
+        Bundle systemBundle = createMock(Bundle.class);
+        expect(systemBundle.adapt(FrameworkWiring.class)).andReturn(frameworkWiring).anyTimes();
+        replay(systemBundle);
+
+        bundleContext = createMock(BundleContext.class);
+        expect(bundleContext.getBundle(0)).andReturn(systemBundle).anyTimes();
+        expect(bundleContext.getBundles()).andAnswer(new IAnswer<Bundle[]>() {
+            @Override
+            public Bundle[] answer() throws Throwable {
+                return installed.toArray(new Bundle[installed.size()]);
+            }
+        }).anyTimes();
+        expect(bundleContext.installBundle(anyObject(String.class))).andAnswer(new IAnswer<Bundle>() {
+            @Override
+            public Bundle answer() throws Throwable {
+                Bundle bundle = available.get(getCurrentArguments()[0]);
+                installed.add(bundle);
+                return bundle;
+            }
+        }).anyTimes();
+        replay(bundleContext);
+
+        synchronizer = new BundleSynchronizer() {
+            @Override
+            public Boolean isAllowed(Group group, String category, String event, EventType type) {
+                return true;
+            }
+        };
+        synchronizer.setClusterManager(clusterManager);
+        synchronizer.setBundleContext(bundleContext);
+    }
+
+    @Test
+    public void testPullInstallsResolvesOnceAndStartsInStartLevelOrder() throws Exception {
+        Bundle web = addClusterBundle("org.foo.web", 80, Bundle.ACTIVE);
+        Bundle api = addClusterBundle("org.foo.api", 30, Bundle.ACTIVE);
+        Bundle core = addClusterBundle("org.foo.core", 50, Bundle.ACTIVE);
+        Bundle tools = addClusterBundle("org.foo.tools", 60, Bundle.RESOLVED);
+
+        synchronizer.pull(group);
+
+        // all the bundles are installed before a single resolution
+        assertEquals(4, installed.size());
+        verify(frameworkWiring);
+        assertEquals(new HashSet<Bundle>(Arrays.asList(web, api, core, tools)), new HashSet<Bundle>(resolved.getValue()));
+        // the bundles are started in start level order, the resolved bundle is not started
+        assertEquals(Arrays.asList("org.foo.api", "org.foo.core", "org.foo.web"), started);
+    }
+
+    @Test
+    public void testPullStartsAllTheBundlesWithTheSymbolicNameAndVersion() throws Exception {
+        Bundle api = addClusterBundle("org.foo.api", 30, Bundle.ACTIVE);
+        // the same bundle, installed locally from another location
+        Bundle copy = createBundle("org.foo.api", "file:/deploy/org.foo.api.jar", 40);
+        installed.add(copy);
+
+        synchronizer.pull(group);
+
+        verify(frameworkWiring);
+        assertEquals(new HashSet<Bundle>(Arrays.asList(api, copy)), new HashSet<Bundle>(resolved.getValue()));
+        assertEquals(Arrays.asList("org.foo.api", "org.foo.api"), started);
+    }
+
+    private Bundle addClusterBundle(String symbolicName, int startLevel, int status) throws Exception {
+        String location = "mvn:org.foo/" + symbolicName + "/1.0.0";
+        BundleState state = new BundleState();
+        state.setSymbolicName(symbolicName);
+        state.setVersion("1.0.0");
+        state.setLocation(location);
+        state.setStartLevel(startLevel);
+        state.setStatus(status);
+        clusterBundles.put(symbolicName + "/1.0.0", state);
+
+        Bundle bundle = createBundle(symbolicName, location, startLevel);
+        available.put(location, bundle);
+        return bundle;
+    }
+
+    private Bundle createBundle(final String symbolicName, String location, int startLevel) throws Exception {
+        BundleStartLevel bundleStartLevel = createMock(BundleStartLevel.class);
+        bundleStartLevel.setStartLevel(startLevel);
+        expectLastCall().anyTimes();
+        expect(bundleStartLevel.getStartLevel()).andReturn(startLevel).anyTimes();
+        replay(bundleStartLevel);
+
+        Dictionary<String, String> headers = new Hashtable<String, String>();
+        headers.put(org.osgi.framework.Constants.BUNDLE_VERSION, "1.0.0");
+        Bundle bundle = createMock(Bundle.class);
+        expect(bundle.getBundleId()).andReturn(nextBundleId++).anyTimes();
+        expect(bundle.getHeaders()).andReturn(headers).anyTimes();
+        expect(bundle.getSymbolicName()).andReturn(symbolicName).anyTimes();
+        expect(bundle.getLocation()).andReturn(location).anyTimes();
+        expect(bundle.getState()).andReturn(Bundle.INSTALLED).anyTimes();
+        expect(bundle.adapt(BundleStartLevel.class)).andReturn(bundleStartLevel).anyTimes();
+        bundle.start();
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() throws Throwable {
+                started.add(symbolicName);
+                return null;
+            }
+        }).anyTimes();
+        replay(bundle);
+        return bundle;
+    }
+
+}
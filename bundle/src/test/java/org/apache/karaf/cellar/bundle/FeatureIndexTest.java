@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.Repository;
+import org.apache.karaf.features.RepositoryEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureIndexTest {
+
+    private FeaturesService featuresService;
+    private Repository repository;
+    private FeatureIndex index;
+
+    @Before
+    public void setUp() {
+        featuresService = createMock(FeaturesService.class);
+        repository = createNiceMock(Repository.class);
+        replay(repository);
+        index = new FeatureIndex();
+        index.setFeaturesService(featuresService);
+    }
+
+    @Test
+    public void testFeaturesByLocation() throws Exception {
+        Feature foo = feature("foo", "mvn:org.foo/foo/1.0.0", "mvn:org.foo/common/1.0.0");
+        Feature bar = feature("bar", "mvn:org.foo/bar/1.0.0", "mvn:org.foo/common/1.0.0");
+        expectFeatures(foo, bar);
+
+        index.init();
+
+        assertEquals(Collections.singletonList(foo), index.getFeatures("mvn:org.foo/foo/1.0.0"));
+        // the location is case insensitive
+        assertEquals(Collections.singletonList(bar), index.getFeatures("MVN:org.foo/BAR/1.0.0"));
+        assertEquals(Arrays.asList(foo, bar), index.getFeatures("mvn:org.foo/common/1.0.0"));
+        assertTrue(index.getFeatures("mvn:org.foo/other/1.0.0").isEmpty());
+        assertTrue(index.getFeatures(null).isEmpty());
+        verify(featuresService);
+    }
+
+    @Test
+    public void testFeatureContainingTheSameBundleTwice() throws Exception {
+        Feature foo = feature("foo", "mvn:org.foo/foo/1.0.0", "mvn:org.foo/foo/1.0.0");
+        expectFeatures(foo);
+
+        index.init();
+
+        assertEquals(Collections.singletonList(foo), index.getFeatures("mvn:org.foo/foo/1.0.0"));
+    }
+
+    @Test
+    public void testFeaturesOfReferencedRepositoriesAreIndexed() throws Exception {
+        Feature foo = feature("foo", "mvn:org.foo/foo/1.0.0");
+        expectFeatures(foo);
+        index.init();
+        verify(featuresService);
+
+        // the added repository references another repository, only one event is sent for both
+        Feature bar = feature("bar", "mvn:org.foo/bar/1.0.0");
+        Feature referenced = feature("referenced", "mvn:org.foo/referenced/1.0.0");
+        reset(featuresService);
+        expectFeatures(foo, bar, referenced);
+        index.repositoryEvent(new RepositoryEvent(repository, RepositoryEvent.EventType.RepositoryAdded, false));
+
+        assertEquals(Collections.singletonList(bar), index.getFeatures("mvn:org.foo/bar/1.0.0"));
+        assertEquals(Collections.singletonList(referenced), index.getFeatures("mvn:org.foo/referenced/1.0.0"));
+        verify(featuresService);
+    }
+
+    @Test
+    public void testRepositoryRemoved() throws Exception {
+        Feature foo = feature("foo", "mvn:org.foo/foo/1.0.0");
+        Feature bar = feature("bar", "mvn:org.foo/bar/1.0.0");
+        expectFeatures(foo, bar);
+        index.init();
+        verify(featuresService);
+
+        reset(featuresService);
+        expectFeatures(foo);
+        index.repositoryEvent(new RepositoryEvent(repository, RepositoryEvent.EventType.RepositoryRemoved, false));
+
+        assertTrue(index.getFeatures("mvn:org.foo/bar/1.0.0").isEmpty());
+        assertEquals(Collections.singletonList(foo), index.getFeatures("mvn:org.foo/foo/1.0.0"));
+        verify(featuresService);
+    }
+
+    @Test
+    public void testSeveralRepositoryEventsRebuildTheIndexOnce() throws Exception {
+        expectFeatures();
+        index.init();
+        verify(featuresService);
+
+        Feature foo = feature("foo", "mvn:org.foo/foo/1.0.0");
+        reset(featuresService);
+        expectFeatures(foo);
+        for (int i = 0; i < 10; i++) {
+            index.repositoryEvent(new RepositoryEvent(repository, RepositoryEvent.EventType.RepositoryAdded, true));
+        }
+
+        assertEquals(Collections.singletonList(foo), index.getFeatures("mvn:org.foo/foo/1.0.0"));
+        assertEquals(Collections.singletonList(foo), index.getFeatures("mvn:org.foo/foo/1.0.0"));
+        verify(featuresService);
+    }
+
+    private void expectFeatures(Feature... features) throws Exception {
+        expect(featuresService.listFeatures()).andReturn(features).once();
+        replay(featuresService);
+    }
+
+    private static Feature feature(String name, String... locations) {
+        List<BundleInfo> bundles = new ArrayList<BundleInfo>();
+        for (String location : locations) {
+            BundleInfo bundleInfo = createMock(BundleInfo.class);
+            expect(bundleInfo.getLocation()).andReturn(location).anyTimes();
+            replay(bundleInfo);
+            bundles.add(bundleInfo);
+        }
+        Feature feature = createMock(name, Feature.class);
+        expect(feature.getBundles()).andReturn(bundles).anyTimes();
+        replay(feature);
+        return feature;
+    }
+
+}
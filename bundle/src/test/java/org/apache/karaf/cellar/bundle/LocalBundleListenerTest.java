@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.bundle;
+
+import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.SwitchStatus;
+import org.apache.karaf.cellar.core.event.EventProducer;
+import org.apache.karaf.cellar.core.event.EventType;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeaturesService;
+import org.easymock.Capture;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.startlevel.BundleStartLevel;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class LocalBundleListenerTest {
+
+    private static final String LOCATION = "mvn:org.foo/bar/1.0.0";
+
+    private final Group group = new Group("default");
+    private final Map<String, BundleState> clusterBundles = new HashMap<String, BundleState>();
+
+    private EventProducer eventProducer;
+    private Capture<ClusterBundleEvent> produced;
+    private Bundle bundle;
+    private LocalBundleListener listener;
+
+    @Before
+    public void setUp() throws Exception {
+        Node node = createMock(Node.class);
+        replay(node);
+
+        ClusterManager clusterManager = createMock(ClusterManager.class);
+        expect(clusterManager.getMap(Constants.BUNDLE_MAP + Configurations.SEPARATOR + group.getName())).andReturn((Map) clusterBundles).anyTimes();
+        expect(clusterManager.getNode()).andReturn(node).anyTimes();
+        replay(clusterManager);
+
+        GroupManager groupManager = createMock(GroupManager.class);
+        expect(groupManager.listLocalGroups()).andReturn(Collections.singleton(group)).anyTimes();
+        replay(groupManager);
+
+        NodeConfiguration nodeConfiguration = createMock(NodeConfiguration.class);
+        expect(nodeConfiguration.getBoolean(Constants.CATEGORY + Configurations.SEPARATOR + Configurations.LISTENER, false)).andReturn(true).anyTimes();
+        // the artifacts distribution is disabled
+        expect(nodeConfiguration.getBoolean(Constants.DISTRIBUTION, false)).andReturn(false).anyTimes();
+        replay(nodeConfiguration);
+
+        FeaturesService featuresService = createMock(FeaturesService.class);
+        expect(featuresService.listFeatures()).andReturn(new Feature[0]).anyTimes();
+        replay(featuresService);
+
+        produced = newCapture();
+        eventProducer = createMock(EventProducer.class);
+        expect(eventProducer.getSwitch()).andReturn(new BasicSwitch("producer", SwitchStatus.ON)).anyTimes();
+        eventProducer.produce(capture(produced));
+        expectLastCall().once();
+        replay(eventProducer);
+
+        BundleStartLevel bundleStartLevel = createMock(BundleStartLevel.class);
+        expect(bundleStartLevel.getStartLevel()).andReturn(80).anyTimes();
+        replay(bundleStartLevel);
+
+        Dictionary<String, String> headers = new Hashtable<String, String>();
+        headers.put(org.osgi.framework.Constants.BUNDLE_VERSION, "1.0.0");
+        bundle = createMock(Bundle.class);
+        expect(bundle.getBundleId()).andReturn(42L).anyTimes();
+        expect(bundle.getHeaders()).andReturn(headers).anyTimes();
+        expect(bundle.getSymbolicName()).andReturn("org.foo.bar").anyTimes();
+        expect(bundle.getLocation()).andReturn(LOCATION).anyTimes();
+        expect(bundle.getState()).andReturn(Bundle.RESOLVED).anyTimes();
+        expect(bundle.adapt(BundleStartLevel.class)).andReturn(bundleStartLevel).anyTimes();
+        replay(bundle);
+
+        listener = new LocalBundleListener() {
+            @Override
+            public Boolean isAllowed(Group group, String category, String event, EventType type) {
+                return true;
+            }
+        };
+        listener.setClusterManager(clusterManager);
+        listener.setGroupManager(groupManager);
+        listener.setNodeConfiguration(nodeConfiguration);
+        listener.setFeaturesService(featuresService);
+        listener.setEventProducer(eventProducer);
+    }
+
+    @Test
+    public void testUpdatedBundleIsReplicated() throws Exception {
+        BundleState state = new BundleState();
+        state.setLocation(LOCATION);
+        state.setData(new byte[]{1, 2, 3});
+        clusterBundles.put("org.foo.bar/1.0.0", state);
+
+        listener.bundleChanged(new BundleEvent(BundleEvent.UPDATED, bundle));
+
+        BundleState updated = clusterBundles.get("org.foo.bar/1.0.0");
+        assertNotNull(updated);
+        // the digest of the previous artifact is cleared
+        assertNull(updated.getData());
+        assertEquals(Bundle.RESOLVED, updated.getStatus());
+        assertEquals(Integer.valueOf(80), updated.getStartLevel());
+
+        verify(eventProducer);
+        ClusterBundleEvent event = produced.getValue();
+        assertEquals("org.foo.bar", event.getSymbolicName());
+        assertEquals("1.0.0", event.getVersion());
+        assertEquals(LOCATION, event.getLocation());
+        assertEquals(group, event.getSourceGroup());
+    }
+
+}
@@ -13,17 +13,26 @@
  */
 package org.apache.karaf.cellar.config;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.Supersedable;
+
+import java.io.IOException;
 
 /**
  * Cluster configuration event.
  */
-public class ClusterConfigurationEvent extends Event {
+public class ClusterConfigurationEvent extends Event implements CompactSerializable, Supersedable {
 
 	private Integer type;
     private Node local;
 
+    public ClusterConfigurationEvent() {
+    }
+
     public ClusterConfigurationEvent(String id) {
         super(id);
     }
@@ -52,4 +61,26 @@ public class ClusterConfigurationEvent extends Event {
 				+ ", postPublish=" + postPublish + "]";
 	}
 
+    /**
+     * The handler applies the cluster configuration state, so the latest event for a PID is enough.
+     */
+    @Override
+    public boolean supersedes(Event previous) {
+        return previous instanceof ClusterConfigurationEvent;
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeObject(type);
+        out.writeNode(local);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        type = in.readObject();
+        local = in.readNode();
+    }
+
 }
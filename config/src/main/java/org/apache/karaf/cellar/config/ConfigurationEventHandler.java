@@ -126,14 +126,10 @@ public class ConfigurationEventHandler extends ConfigurationSupport implements E
     public Switch getSwitch() {
         // load the switch status from the config
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+            if (nodeConfiguration.getBoolean(Configurations.HANDLER + "." + this.getClass().getName(), eventSwitch.getStatus().getValue())) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
         } catch (Exception e) {
             // nothing to do
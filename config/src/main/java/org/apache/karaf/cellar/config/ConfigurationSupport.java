@@ -197,16 +197,12 @@ public class ConfigurationSupport extends CellarSupport {
      */
     public boolean isExcludedProperty(String propertyName) {
         try {
-            Configuration nodeConfiguration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (nodeConfiguration != null) {
-                Dictionary properties = nodeConfiguration.getProperties();
-                if (properties != null) {
-                    String property = properties.get("config.excluded.properties").toString();
-                    String[] excludedProperties = property.split(",");
-                    for (int i = 0; i < excludedProperties.length; i++) {
-                        if (excludedProperties[i].trim().equals(propertyName))
-                            return true;
-                    }
+            String property = nodeConfiguration.getProperty("config.excluded.properties");
+            if (property != null) {
+                String[] excludedProperties = property.split(",");
+                for (int i = 0; i < excludedProperties.length; i++) {
+                    if (excludedProperties[i].trim().equals(propertyName))
+                        return true;
                 }
             }
         } catch (Exception e) {
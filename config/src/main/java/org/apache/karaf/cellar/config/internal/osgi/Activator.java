@@ -20,6 +20,7 @@ import org.apache.karaf.cellar.config.management.CellarConfigMBean;
 import org.apache.karaf.cellar.config.management.internal.CellarConfigMBeanImpl;
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventProducer;
@@ -43,6 +44,7 @@ import java.util.Hashtable;
                 @RequireService(ClusterManager.class),
                 @RequireService(GroupManager.class),
                 @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class),
                 @RequireService(EventProducer.class)
         },
         provides = {
@@ -74,6 +76,9 @@ public class Activator extends BaseActivator implements ManagedService {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
         EventProducer eventProducer = getTrackedService(EventProducer.class);
         if (eventProducer == null)
             return;
@@ -83,6 +88,7 @@ public class Activator extends BaseActivator implements ManagedService {
         LOGGER.debug("CELLAR CONFIG: init event handler");
         configurationEventHandler = new ConfigurationEventHandler();
         configurationEventHandler.setConfigurationAdmin(configurationAdmin);
+        configurationEventHandler.setNodeConfiguration(nodeConfiguration);
         configurationEventHandler.setGroupManager(groupManager);
         configurationEventHandler.setClusterManager(clusterManager);
         configurationEventHandler.setStorage(storage);
@@ -96,6 +102,7 @@ public class Activator extends BaseActivator implements ManagedService {
         localConfigurationListener.setClusterManager(clusterManager);
         localConfigurationListener.setGroupManager(groupManager);
         localConfigurationListener.setConfigurationAdmin(configurationAdmin);
+        localConfigurationListener.setNodeConfiguration(nodeConfiguration);
         localConfigurationListener.setEventProducer(eventProducer);
         localConfigurationListener.setStorage(storage);
         localConfigurationListener.init();
@@ -104,6 +111,7 @@ public class Activator extends BaseActivator implements ManagedService {
         LOGGER.debug("CELLAR CONFIG: init synchronizer");
         configurationSynchronizer = new ConfigurationSynchronizer();
         configurationSynchronizer.setConfigurationAdmin(configurationAdmin);
+        configurationSynchronizer.setNodeConfiguration(nodeConfiguration);
         configurationSynchronizer.setGroupManager(groupManager);
         configurationSynchronizer.setClusterManager(clusterManager);
         configurationSynchronizer.setEventProducer(eventProducer);
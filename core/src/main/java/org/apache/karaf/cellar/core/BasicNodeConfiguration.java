@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Node configuration snapshot, refreshed by ConfigurationAdmin events.
+ */
+public class BasicNodeConfiguration implements NodeConfiguration, ConfigurationListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(BasicNodeConfiguration.class);
+
+    private ConfigurationAdmin configurationAdmin;
+
+    // null when the node configuration doesn't exist
+    private volatile Map<String, Object> properties;
+
+    public void init() {
+        refresh();
+    }
+
+    public void destroy() {
+        properties = null;
+    }
+
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.NODE.equals(event.getPid())) {
+            refresh();
+        }
+    }
+
+    @Override
+    public void refresh() {
+        try {
+            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
+            Dictionary dictionary = configuration.getProperties();
+            if (dictionary == null) {
+                properties = null;
+                return;
+            }
+            Map<String, Object> snapshot = new HashMap<String, Object>();
+            for (Enumeration keys = dictionary.keys(); keys.hasMoreElements(); ) {
+                Object key = keys.nextElement();
+                snapshot.put(key.toString(), dictionary.get(key));
+            }
+            properties = Collections.unmodifiableMap(snapshot);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: can't load the node configuration", e);
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return properties != null;
+    }
+
+    @Override
+    public String getProperty(String key) {
+        Map<String, Object> current = properties;
+        if (current == null) {
+            return null;
+        }
+        Object value = current.get(key);
+        return (value != null) ? value.toString() : null;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Map<String, Object> current = properties;
+        if (current == null) {
+            return defaultValue;
+        }
+        Object value = current.get(key);
+        return (value != null) && Boolean.parseBoolean(value.toString().trim());
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        String value = getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("CELLAR: invalid value {} for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getProperties() {
+        Map<String, Object> current = properties;
+        if (current == null) {
+            return Collections.emptyMap();
+        }
+        return current;
+    }
+
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return configurationAdmin;
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        this.configurationAdmin = configurationAdmin;
+    }
+
+}
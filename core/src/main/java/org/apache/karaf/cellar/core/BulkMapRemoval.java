@@ -0,0 +1,32 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import java.util.Set;
+
+/**
+ * Optional bulk removal of cluster map entries, implemented by the cluster managers supporting it.
+ * It is separate from {@link ClusterManager}, so the existing cluster manager implementations don't have to implement it.
+ */
+public interface BulkMapRemoval {
+
+    /**
+     * Remove entries from a map in the cluster, in one bulk operation.
+     *
+     * @param mapName the map name in the cluster.
+     * @param keys the keys of the entries to remove.
+     */
+    public void removeAll(String mapName, Set keys);
+
+}
@@ -21,8 +21,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Cellar generic support. This class provides a set of util methods used by other classes.
@@ -34,6 +32,7 @@ public class CellarSupport {
     protected ClusterManager clusterManager;
     protected GroupManager groupManager;
     protected ConfigurationAdmin configurationAdmin;
+    protected NodeConfiguration nodeConfiguration;
 
     /**
      * If the entry is not present in the list, add it. If the entry is present in the list, remove it.
@@ -67,6 +66,7 @@ public class CellarSupport {
                 dictionary.put(key, entry);
             }
             configuration.update(dictionary);
+            ResourcePolicy.invalidate();
         }
     }
 
@@ -172,56 +172,93 @@ public class CellarSupport {
      * @param type the event type (inbound, outbound).
      */
     public Boolean isAllowed(Group group, String category, String event, EventType type) {
-        Boolean result = true;
-        Set<String> whiteList = getListEntries(Configurations.WHITELIST, group, category, type);
-        Set<String> blackList = getListEntries(Configurations.BLACKLIST, group, category, type);
-
-        if (blackList == null || whiteList == null) {
+        if (group == null) {
+            return false;
+        }
+        ResourcePolicy policy = getPolicy(group.getName(), category, type);
+        if (policy == null || !policy.isDefined()) {
             // If one list is missing, we probably have a configuration issue - do not synchronize anything
             LOGGER.warn("No whitelist/blacklist found for " + group.getName() + ", check your configuration !");
             return false;
         }
+        return policy.isAllowed(event);
+    }
 
-        // if no white listed items we assume all are accepted.
-        if (!whiteList.isEmpty()) {
-            result = false;
-            for (String whiteListItem : whiteList) {
-                if (wildCardMatch(event, whiteListItem))
-                    result = true;
-            }
+    /**
+     * Get the compiled whitelist/blacklist of a cluster group, from the cache or from the groups configuration.
+     *
+     * @param group the cluster group name.
+     * @param category the resource category name.
+     * @param type the event type (inbound, outbound).
+     * @return the resource policy, or null if the groups configuration can't be read.
+     */
+    protected ResourcePolicy getPolicy(String group, String category, EventType type) {
+        String key = group + Configurations.SEPARATOR + category + Configurations.SEPARATOR + type.name().toLowerCase();
+        ResourcePolicy policy = ResourcePolicy.get(key);
+        if (policy != null) {
+            return policy;
         }
+        long generation = ResourcePolicy.generation();
+        Dictionary<String, Object> dictionary;
+        try {
+            Configuration configuration = configurationAdmin.getConfiguration(Configurations.GROUP, null);
+            dictionary = configuration.getProperties();
+        } catch (IOException e) {
+            LOGGER.error("Error looking up for clustering group configuration cfg");
+            return null;
+        }
+        Set<String> whitelist = null;
+        Set<String> blacklist = null;
+        if (dictionary != null) {
+            whitelist = getListEntries(dictionary, Configurations.WHITELIST, group, category, type, new HashSet<String>());
+            blacklist = getListEntries(dictionary, Configurations.BLACKLIST, group, category, type, new HashSet<String>());
+        }
+        policy = new ResourcePolicy(
+                (whitelist != null) ? new ResourceMatcher(whitelist) : null,
+                (blacklist != null) ? new ResourceMatcher(blacklist) : null);
+        ResourcePolicy.put(key, policy, generation);
+        return policy;
+    }
 
-        if (result) {
-            // if any blackList item matched, then false is returned.
-            if (!blackList.isEmpty()) {
-                for (String blackListItem : blackList) {
-                    if (wildCardMatch(event, blackListItem)) {
-                        return false;
-                    }
-                }
+    /**
+     * Get the list entries of a cluster group and its parents from a groups configuration dictionary.
+     *
+     * @param visited the cluster groups already visited, to stop on parent cycles.
+     */
+    private Set<String> getListEntries(Dictionary<String, Object> dictionary, String listType, String group, String category, EventType type, Set<String> visited) {
+        if (group == null || !visited.add(group)) {
+            return null;
+        }
+        Set<String> result = null;
+        String parent = (String) dictionary.get(group + Configurations.SEPARATOR + Configurations.PARENT);
+        if (parent != null) {
+            result = getListEntries(dictionary, listType, parent, category, type, visited);
+        }
+        String propertyName = group + Configurations.SEPARATOR + category + Configurations.SEPARATOR + listType + Configurations.SEPARATOR + type.name().toLowerCase();
+        String propertyValue = (String) dictionary.get(propertyName);
+        if (propertyValue != null) {
+            if (result == null) {
+                result = new HashSet<String>();
+            }
+            for (String item : propertyValue.replaceAll("\n", "").split(Configurations.DELIMETER)) {
+                result.add(item.trim());
             }
         }
-
         return result;
     }
 
     /**
-     * Check if a string match a regex.
+     * Check if a string match a list entry, where {@code *} is a wildcard.
      *
      * @param item the string to check.
-     * @param pattern the regex pattern.
+     * @param pattern the list entry.
      * @return true if the item string matches the pattern, false else.
      */
     protected boolean wildCardMatch(String item, String pattern) {
         if (item == null || pattern == null) {
             return false;
         }
-        // update the pattern to have a valid regex pattern
-        pattern = pattern.replace("*", ".*");
-        // use the regex
-        Pattern p = Pattern.compile(pattern);
-        Matcher m = p.matcher(item);
-        return m.matches();
+        return ResourceMatcher.compile(pattern).matcher(item).matches();
     }
 
     public ConfigurationAdmin getConfigurationAdmin() {
@@ -232,6 +269,14 @@ public class CellarSupport {
         this.configurationAdmin = configurationAdmin;
     }
 
+    public NodeConfiguration getNodeConfiguration() {
+        return nodeConfiguration;
+    }
+
+    public void setNodeConfiguration(NodeConfiguration nodeConfiguration) {
+        this.nodeConfiguration = nodeConfiguration;
+    }
+
     public ClusterManager getClusterManager() {
         return clusterManager;
     }
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Output used by {@link CompactSerializable} objects.
+ */
+public interface CompactDataOutput {
+
+    /**
+     * Write a string, null is allowed.
+     */
+    public void writeUTF(String value) throws IOException;
+
+    public void writeInt(int value) throws IOException;
+
+    public void writeLong(long value) throws IOException;
+
+    public void writeBoolean(boolean value) throws IOException;
+
+    /**
+     * Write any object (boxed primitives, arrays, collections, serializable objects), null is allowed.
+     */
+    public void writeObject(Object value) throws IOException;
+
+    /**
+     * Write a cluster node reference (the node ID), null is allowed.
+     */
+    public void writeNode(Node node) throws IOException;
+
+    /**
+     * Write a set of cluster node references, null is allowed.
+     */
+    public void writeNodes(Set<Node> nodes) throws IOException;
+
+    /**
+     * Write a cluster group reference (the group name, without the nodes), null is allowed.
+     */
+    public void writeGroup(Group group) throws IOException;
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Cluster object writing its own compact binary form, instead of the Java serialization form.
+ * The cluster transport writes the class name followed by the object data, so the implementations need a public
+ * no-arg constructor. When the transport doesn't support compact serialization, the Java serialization is used.
+ */
+public interface CompactSerializable extends Serializable {
+
+    /**
+     * Write the object data.
+     *
+     * @param out the compact output.
+     * @throws IOException in case of write failure.
+     */
+    public void writeData(CompactDataOutput out) throws IOException;
+
+    /**
+     * Read the object data, in the same order as {@link #writeData(CompactDataOutput)}.
+     *
+     * @param in the compact input.
+     * @throws IOException in case of read failure.
+     */
+    public void readData(CompactDataInput in) throws IOException;
+
+}
@@ -32,5 +32,16 @@ public class Configurations {
     public static final String PARENT = "parent";
     public static final String WHITELIST = "whitelist";
     public static final String BLACKLIST = "blacklist";
+    public static final String DISPATCHER_LANES = "dispatcher.lanes";
+    public static final String DISPATCHER_QUEUE_CAPACITY = "dispatcher.queue.capacity";
+    public static final String DISPATCHER_OVERFLOW_POLICY = "dispatcher.overflow.policy";
+    public static final String PRODUCER_BATCH_SIZE = "producer.batch.size";
+    public static final String PRODUCER_BATCH_DELAY = "producer.batch.delay";
+    public static final String TOPIC_RELIABLE = "topic.reliable";
+    public static final String CONSUMER_QUEUE_BATCH_SIZE = "consumer.queue.batch.size";
+    public static final String SYNC_THREADS = "sync.threads";
+    public static final String SYNC_JITTER = "sync.jitter";
+    public static final String SYNC_WINDOW = "sync.window";
+    public static final String GROUP_CONFIG_DELAY = "group.config.delay";
 
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the local node configuration ({@code org.apache.karaf.cellar.node}).
+ * The snapshot is refreshed when the configuration changes, so reading it doesn't involve ConfigurationAdmin.
+ */
+public interface NodeConfiguration {
+
+    /**
+     * Check if the node configuration exists.
+     *
+     * @return true if the node configuration is available, false else.
+     */
+    public boolean isAvailable();
+
+    /**
+     * Get a property of the node configuration.
+     *
+     * @param key the property key.
+     * @return the property value, or null if the property is not defined.
+     */
+    public String getProperty(String key);
+
+    /**
+     * Get a boolean property of the node configuration.
+     *
+     * @param key the property key.
+     * @param defaultValue the value to return if the node configuration is not available.
+     * @return the property value, false if the property is not defined in the node configuration.
+     */
+    public boolean getBoolean(String key, boolean defaultValue);
+
+    /**
+     * Get an integer property of the node configuration.
+     *
+     * @param key the property key.
+     * @param defaultValue the value to return if the property is not defined or not valid.
+     * @return the property value.
+     */
+    public int getInt(String key, int defaultValue);
+
+    /**
+     * Get all properties of the node configuration.
+     *
+     * @return an immutable map of the node configuration properties.
+     */
+    public Map<String, Object> getProperties();
+
+    /**
+     * Reload the snapshot from the node configuration, typically just after a local update.
+     */
+    public void refresh();
+
+}
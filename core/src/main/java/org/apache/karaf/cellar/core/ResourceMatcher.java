@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a whitelist or blacklist.
+ * Literal entries and entries with a single trailing wildcard (the common case) are matched with a prefix trie,
+ * the other entries are converted once to a regex, where {@code *} matches any sequence and {@code .} is a literal.
+ */
+public class ResourceMatcher {
+
+    private static final String REGEX_CHARS = "\\[](){}+?^$|";
+
+    private final TrieNode root = new TrieNode();
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+    private final int size;
+
+    public ResourceMatcher(Collection<String> entries) {
+        int count = 0;
+        for (String entry : entries) {
+            if (entry == null) {
+                continue;
+            }
+            count++;
+            if (isPrefixEntry(entry)) {
+                if (entry.endsWith("*")) {
+                    root.add(entry.substring(0, entry.length() - 1)).prefix = true;
+                } else {
+                    root.add(entry).exact = true;
+                }
+            } else {
+                patterns.add(compile(entry));
+            }
+        }
+        this.size = count;
+    }
+
+    /**
+     * Check if an item matches at least one entry.
+     *
+     * @param item the resource name.
+     * @return true if the item matches one of the entries, false else.
+     */
+    public boolean matches(String item) {
+        if (item == null) {
+            return false;
+        }
+        if (root.matches(item)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(item).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if an entry can be matched with the trie: no regex char and, at most, a trailing wildcard.
+     */
+    private static boolean isPrefixEntry(String entry) {
+        int wildcard = entry.indexOf('*');
+        if (wildcard >= 0 && wildcard != entry.length() - 1) {
+            return false;
+        }
+        for (int i = 0; i < entry.length(); i++) {
+            if (REGEX_CHARS.indexOf(entry.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convert a list entry into a regex.
+     *
+     * @param entry the list entry.
+     * @return the compiled pattern.
+     */
+    public static Pattern compile(String entry) {
+        return Pattern.compile(entry.replace(".", "\\.").replace("*", ".*"));
+    }
+
+    private static class TrieNode {
+
+        private Map<Character, TrieNode> children;
+        private boolean exact;
+        private boolean prefix;
+
+        TrieNode add(String key) {
+            TrieNode node = this;
+            for (int i = 0; i < key.length(); i++) {
+                if (node.children == null) {
+                    node.children = new HashMap<Character, TrieNode>();
+                }
+                Character c = key.charAt(i);
+                TrieNode child = node.children.get(c);
+                if (child == null) {
+                    child = new TrieNode();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        boolean matches(String item) {
+            TrieNode node = this;
+            for (int i = 0; i < item.length(); i++) {
+                if (node.prefix) {
+                    return true;
+                }
+                if (node.children == null) {
+                    return false;
+                }
+                node = node.children.get(item.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return node.exact || node.prefix;
+        }
+
+    }
+
+}
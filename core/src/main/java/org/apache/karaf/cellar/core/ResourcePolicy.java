@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiled whitelist and blacklist of a cluster group for a resource category and an event type.
+ * The policies are cached until the cluster groups configuration changes.
+ */
+public class ResourcePolicy {
+
+    private static final ConcurrentMap<String, ResourcePolicy> CACHE = new ConcurrentHashMap<String, ResourcePolicy>();
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    private final ResourceMatcher whitelist;
+    private final ResourceMatcher blacklist;
+
+    public ResourcePolicy(ResourceMatcher whitelist, ResourceMatcher blacklist) {
+        this.whitelist = whitelist;
+        this.blacklist = blacklist;
+    }
+
+    /**
+     * Check if both lists are defined for the cluster group.
+     *
+     * @return true if the whitelist and the blacklist are defined, false else.
+     */
+    public boolean isDefined() {
+        return whitelist != null && blacklist != null;
+    }
+
+    /**
+     * Check if a resource is allowed: it matches the whitelist (an empty whitelist accepts everything)
+     * and doesn't match the blacklist.
+     *
+     * @param resource the resource name.
+     * @return true if the resource is allowed, false else.
+     */
+    public boolean isAllowed(String resource) {
+        if (!isDefined()) {
+            return false;
+        }
+        if (!whitelist.isEmpty() && !whitelist.matches(resource)) {
+            return false;
+        }
+        return !blacklist.matches(resource);
+    }
+
+    static ResourcePolicy get(String key) {
+        return CACHE.get(key);
+    }
+
+    static long generation() {
+        return GENERATION.get();
+    }
+
+    static void put(String key, ResourcePolicy policy, long generation) {
+        CACHE.put(key, policy);
+        // the configuration changed while the policy was compiled
+        if (GENERATION.get() != generation) {
+            CACHE.remove(key, policy);
+        }
+    }
+
+    /**
+     * Discard all cached policies.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+        CACHE.clear();
+    }
+
+    /**
+     * Discard the cached policies when the cluster groups configuration changes.
+     */
+    public static class Invalidator implements ConfigurationListener {
+
+        @Override
+        public void configurationEvent(ConfigurationEvent event) {
+            if (Configurations.GROUP.equals(event.getPid())) {
+                invalidate();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the synchronizers on the cluster groups.
+ * The cluster groups are synchronized in parallel, on a bounded pool of threads ({@code sync.threads} node property).
+ * On a cluster group, the synchronizers run one after the other, in the resources dependency order: the
+ * configurations first, then the OBR URLs, the features and finally the bundles. The synchronizers of other
+ * resources run first. The duration and outcome of the last run of each synchronizer is kept as a {@link SyncReport}.
+ * To avoid sync storms when several nodes join at the same time, only the sync leader of a cluster group (see
+ * {@link SyncLeaderElection}) pushes its local state with the {@code cluster} sync policy: the other nodes only pull
+ * the cluster state, after a random delay ({@code sync.jitter} node property). A sync requested for a cluster group
+ * already waiting for sync is merged with the pending one, which then runs with the latest requested cluster group,
+ * and the leader doesn't push again a cluster group it pushed less than {@code sync.window} milliseconds ago.
+ */
+public class SyncCoordinator {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(SyncCoordinator.class);
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final long DEFAULT_JITTER = 2000;
+    public static final long DEFAULT_WINDOW = 5000;
+
+    private static final String CLUSTER_POLICY = "cluster";
+
+    // a resource depends on the resources before it in the list
+    private static final List<String> RESOURCES_ORDER = Arrays.asList("config", "obr.urls", "feature", "bundle");
+
+    private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+    private final ConcurrentMap<String, SyncReport> reports = new ConcurrentHashMap<String, SyncReport>();
+    private final ConcurrentMap<String, PendingSync> pending = new ConcurrentHashMap<String, PendingSync>();
+    private final ConcurrentMap<String, Long> lastPushes = new ConcurrentHashMap<String, Long>();
+
+    private int threads = DEFAULT_THREADS;
+    private long jitter = DEFAULT_JITTER;
+    private long window = DEFAULT_WINDOW;
+    private ClassLoader classLoader;
+    private SyncLeaderElection leaderElection;
+    private volatile ScheduledThreadPoolExecutor executor;
+
+    public synchronized void init() {
+        if (executor == null) {
+            if (threads <= 0) {
+                threads = DEFAULT_THREADS;
+            }
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, new SyncThreadFactory());
+            pool.setKeepAliveTime(60L, TimeUnit.SECONDS);
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+    }
+
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Add a synchronizer.
+     *
+     * @param synchronizer the synchronizer.
+     * @param resource the resource synchronized (the {@code resource} property of the synchronizer service).
+     */
+    public void addSynchronizer(Synchronizer synchronizer, String resource) {
+        if (resource == null) {
+            resource = synchronizer.getClass().getSimpleName();
+        }
+        registrations.add(new Registration(synchronizer, resource));
+    }
+
+    public void removeSynchronizer(Synchronizer synchronizer) {
+        for (Registration registration : registrations) {
+            if (registration.synchronizer == synchronizer) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    /**
+     * Get the synchronizers, in the order they run on a cluster group.
+     *
+     * @return the ordered list of synchronizers.
+     */
+    public List<Synchronizer> getSynchronizers() {
+        List<Synchronizer> synchronizers = new ArrayList<Synchronizer>();
+        for (Registration registration : getOrderedRegistrations()) {
+            synchronizers.add(registration.synchronizer);
+        }
+        return synchronizers;
+    }
+
+    /**
+     * Synchronize cluster groups in parallel.
+     *
+     * @param groups the cluster groups to synchronize.
+     * @return the futures completed when each cluster group is synchronized.
+     */
+    public List<Future<Void>> sync(Collection<Group> groups) {
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (Group group : groups) {
+            futures.add(sync(group));
+        }
+        return futures;
+    }
+
+    /**
+     * Synchronize the cluster groups this node is the sync leader of, for instance when another node joins the
+     * cluster. The other cluster groups are not synchronized.
+     *
+     * @param groups the cluster groups.
+     * @return the futures completed when each cluster group is synchronized.
+     */
+    public List<Future<Void>> syncAsLeader(Collection<Group> groups) {
+        List<Group> leaderGroups = new ArrayList<Group>();
+        for (Group group : groups) {
+            if (isSyncLeader(group)) {
+                leaderGroups.add(group);
+            }
+        }
+        return sync(leaderGroups);
+    }
+
+    /**
+     * Synchronize a cluster group, running its synchronizers in the resources dependency order.
+     *
+     * @param group the cluster group to synchronize.
+     * @return a future completed when the cluster group is synchronized.
+     */
+    public Future<Void> sync(Group group) {
+        String groupName = group.getName();
+        ScheduledThreadPoolExecutor pool = executor;
+        if (pool == null) {
+            // not started, synchronize in the caller thread
+            FutureTask<Void> task = new FutureTask<Void>(new SyncTask(group), null);
+            task.run();
+            return task;
+        }
+        PendingSync sync = new PendingSync(groupName, group);
+        while (true) {
+            PendingSync existing = pending.putIfAbsent(groupName, sync);
+            if (existing == null) {
+                break;
+            }
+            if (existing.merge(group)) {
+                LOGGER.debug("CELLAR: cluster group {} is already waiting for sync", groupName);
+                return existing.future;
+            }
+            // the pending sync just started, it may not see this request
+            pending.remove(groupName, existing);
+        }
+        // the nodes which are not the leader only pull, they don't need to run at the same time
+        long delay = (jitter > 0 && !isSyncLeader(group)) ? ThreadLocalRandom.current().nextLong(jitter) : 0;
+        try {
+            pool.schedule(sync.future, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            pending.remove(groupName, sync);
+            sync.future.cancel(false);
+            LOGGER.warn("CELLAR: sync coordinator is stopped, cluster group {} is not synchronized", groupName);
+        }
+        return sync.future;
+    }
+
+    private void syncGroup(Group group) {
+        boolean push = isSyncLeader(group);
+        if (push && window > 0) {
+            Long lastPush = lastPushes.get(group.getName());
+            if (lastPush != null && System.currentTimeMillis() - lastPush < window) {
+                LOGGER.debug("CELLAR: cluster group {} pushed less than {} ms ago, pull only", group.getName(), window);
+                push = false;
+            }
+        }
+        for (Registration registration : getOrderedRegistrations()) {
+            long start = System.currentTimeMillis();
+            String error = null;
+            try {
+                if (push || !CLUSTER_POLICY.equalsIgnoreCase(registration.synchronizer.getSyncPolicy(group))) {
+                    registration.synchronizer.sync(group);
+                } else {
+                    // the sync leader pushes the local state to the cluster, this node only gets the cluster state
+                    registration.synchronizer.pull(group);
+                }
+            } catch (Exception e) {
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+                LOGGER.warn("CELLAR: {} synchronizer failed on cluster group {}", registration.resource, group.getName(), e);
+            }
+            SyncReport report = new SyncReport(group.getName(), registration.resource, start, System.currentTimeMillis() - start, error);
+            reports.put(group.getName() + Configurations.SEPARATOR + registration.resource, report);
+            LOGGER.debug("CELLAR: synchronization of {}", report);
+        }
+        if (push) {
+            lastPushes.put(group.getName(), System.currentTimeMillis());
+        }
+    }
+
+    private boolean isSyncLeader(Group group) {
+        try {
+            return leaderElection == null || leaderElection.isSyncLeader(group);
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: can't elect the sync leader of cluster group {}", group.getName(), e);
+            return true;
+        }
+    }
+
+    private List<Registration> getOrderedRegistrations() {
+        List<Registration> ordered = new ArrayList<Registration>(registrations);
+        // stable sort, the synchronizers of the same level keep the registration order
+        Collections.sort(ordered, new Comparator<Registration>() {
+            @Override
+            public int compare(Registration r1, Registration r2) {
+                return Integer.compare(RESOURCES_ORDER.indexOf(r1.resource), RESOURCES_ORDER.indexOf(r2.resource));
+            }
+        });
+        return ordered;
+    }
+
+    /**
+     * Get the outcome of the last run of each synchronizer on each cluster group.
+     *
+     * @return the synchronization reports.
+     */
+    public List<SyncReport> getReports() {
+        return new ArrayList<SyncReport>(reports.values());
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(long jitter) {
+        this.jitter = jitter;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    public SyncLeaderElection getLeaderElection() {
+        return leaderElection;
+    }
+
+    public void setLeaderElection(SyncLeaderElection leaderElection) {
+        this.leaderElection = leaderElection;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public void setClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    private static class Registration {
+
+        private final Synchronizer synchronizer;
+        private final String resource;
+
+        Registration(Synchronizer synchronizer, String resource) {
+            this.synchronizer = synchronizer;
+            this.resource = resource;
+        }
+
+    }
+
+    private class SyncTask implements Runnable {
+
+        private final Group group;
+
+        SyncTask(Group group) {
+            this.group = group;
+        }
+
+        @Override
+        public void run() {
+            syncGroup(group);
+        }
+
+    }
+
+    /**
+     * A sync waiting for its turn. The requests done before it starts are merged in it.
+     */
+    private class PendingSync implements Runnable {
+
+        private final String groupName;
+        private final FutureTask<Void> future;
+        private Group group;
+        private boolean started;
+
+        PendingSync(String groupName, Group group) {
+            this.groupName = groupName;
+            this.group = group;
+            this.future = new FutureTask<Void>(this, null);
+        }
+
+        /**
+         * Merge a sync request in this one, if it didn't start yet.
+         *
+         * @param request the requested cluster group, with its latest nodes.
+         * @return true if the request is merged, false if this sync already started.
+         */
+        synchronized boolean merge(Group request) {
+            if (started) {
+                return false;
+            }
+            group = request;
+            return true;
+        }
+
+        @Override
+        public void run() {
+            Group request;
+            synchronized (this) {
+                started = true;
+                request = group;
+            }
+            // a sync requested from now has to see the changes done by this one
+            pending.remove(groupName, this);
+            syncGroup(request);
+        }
+
+    }
+
+    /**
+     * Create the sync threads, with the context class loader used to deserialize the cluster resources.
+     */
+    private class SyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cellar-sync-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            if (classLoader != null) {
+                thread.setContextClassLoader(classLoader);
+            }
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+/**
+ * Outcome of a synchronizer run on a cluster group.
+ */
+public class SyncReport {
+
+    private final String group;
+    private final String resource;
+    private final long timestamp;
+    private final long duration;
+    private final String error;
+
+    public SyncReport(String group, String resource, long timestamp, long duration, String error) {
+        this.group = group;
+        this.resource = resource;
+        this.timestamp = timestamp;
+        this.duration = duration;
+        this.error = error;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    /**
+     * Get the time when the synchronizer started.
+     *
+     * @return the start time in milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the time spent by the synchronizer.
+     *
+     * @return the duration in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Get the error raised by the synchronizer.
+     *
+     * @return the error message, or null if the synchronizer succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return resource + " on " + group + (error == null ? " succeeded" : " failed (" + error + ")") + " in " + duration + " ms";
+    }
+
+}
@@ -13,15 +13,24 @@
  */
 package org.apache.karaf.cellar.core.command;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Basic command store.
+ * It keeps the registration time of the pending commands, to provide the pending commands age and the completion
+ * and expiration (timeout) metrics.
  */
 public class BasicCommandStore implements CommandStore {
 
     private ConcurrentMap<String, Command> pending = new ConcurrentHashMap<String, Command>();
+    private final ConcurrentMap<String, Long> registrationTimes = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong totalCompletionTime = new AtomicLong();
 
     @Override
     public ConcurrentMap<String, Command> getPending() {
@@ -31,6 +40,89 @@ public class BasicCommandStore implements CommandStore {
     @Override
     public void setPending(ConcurrentMap<String, Command> pending) {
         this.pending = pending;
+        registrationTimes.clear();
+    }
+
+    @Override
+    public void register(Command command) {
+        registrationTimes.put(command.getId(), System.currentTimeMillis());
+        pending.put(command.getId(), command);
+    }
+
+    @Override
+    public Command complete(String id) {
+        Command command = pending.remove(id);
+        Long registrationTime = registrationTimes.remove(id);
+        if (command != null) {
+            completedCount.incrementAndGet();
+            if (registrationTime != null) {
+                totalCompletionTime.addAndGet(System.currentTimeMillis() - registrationTime);
+            }
+        }
+        return command;
+    }
+
+    @Override
+    public Command expire(String id) {
+        Command command = pending.remove(id);
+        registrationTimes.remove(id);
+        if (command != null) {
+            expiredCount.incrementAndGet();
+        }
+        return command;
+    }
+
+    /**
+     * Get the number of commands waiting for their results.
+     *
+     * @return the number of pending commands.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Get the age (in milliseconds) of the oldest pending command.
+     *
+     * @return the oldest pending command age, 0 if no command is pending.
+     */
+    public long getOldestPendingAge() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (Map.Entry<String, Long> entry : registrationTimes.entrySet()) {
+            if (entry.getValue() < oldest) {
+                oldest = entry.getValue();
+            }
+        }
+        return now - oldest;
+    }
+
+    /**
+     * Get the number of commands which received all their results.
+     *
+     * @return the number of completed commands.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Get the number of commands evicted from the store because they timed out.
+     *
+     * @return the number of expired commands.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Get the average time (in milliseconds) to receive all the results of a command.
+     *
+     * @return the average completion time.
+     */
+    public long getAverageCompletionTime() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : totalCompletionTime.get() / completed;
     }
 
 }
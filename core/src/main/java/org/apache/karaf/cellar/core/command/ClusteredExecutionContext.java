@@ -19,9 +19,7 @@ import org.apache.karaf.cellar.core.exception.ProducerNotFoundException;
 import org.apache.karaf.cellar.core.exception.StoreNotFoundException;
 
 import java.util.Map;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clustered execution context.
@@ -31,7 +29,7 @@ public class ClusteredExecutionContext implements ExecutionContext {
     private Producer producer;
     private CommandStore commandStore;
 
-    private ScheduledExecutorService timeoutScheduler = new ScheduledThreadPoolExecutor(10);
+    private TimeoutWheel timeoutWheel = TimeoutWheel.getDefault();
 
     public ClusteredExecutionContext() {
         // nothing to do
@@ -44,20 +42,41 @@ public class ClusteredExecutionContext implements ExecutionContext {
 
     @Override
     public <R extends Result, C extends Command<R>> Map<Node, R> execute(C command) throws StoreNotFoundException, ProducerNotFoundException, InterruptedException {
+        submit(command);
+        return command.getResult();
+    }
+
+    @Override
+    public <R extends Result, C extends Command<R>> CompletableFuture<Map<Node, R>> executeAsync(C command) throws StoreNotFoundException, ProducerNotFoundException {
+        return executeAsync(command, null);
+    }
+
+    @Override
+    public <R extends Result, C extends Command<R>> CompletableFuture<Map<Node, R>> executeAsync(C command, ResultListener<R> listener) throws StoreNotFoundException, ProducerNotFoundException {
+        if (command != null) {
+            command.setResultListener(listener);
+        }
+        CompletableFuture<Map<Node, R>> future = command != null ? command.getFuture() : null;
+        submit(command);
+        return future;
+    }
+
+    /**
+     * Register the command as pending, schedule its timeout and send it to the cluster, without waiting for the
+     * results.
+     *
+     * @param command the command to send.
+     */
+    private void submit(Command command) throws StoreNotFoundException, ProducerNotFoundException {
         if (command == null) {
             throw new StoreNotFoundException("Command store not found");
-        } else {
-            commandStore.getPending().put(command.getId(), command);
-            TimeoutTask timeoutTask = new TimeoutTask(command, commandStore);
-            timeoutScheduler.schedule(timeoutTask, command.getTimeout(), TimeUnit.MILLISECONDS);
         }
-
-        if (producer != null) {
-            producer.produce(command);
-            return command.getResult();
-        } else {
+        if (producer == null) {
             throw new ProducerNotFoundException("Command producer not found");
         }
+        commandStore.register(command);
+        command.setScheduledTimeout(timeoutWheel.schedule(new TimeoutTask(command, commandStore), command.getTimeout()));
+        producer.produce(command);
     }
 
     public Producer getProducer() {
@@ -68,6 +87,14 @@ public class ClusteredExecutionContext implements ExecutionContext {
         this.producer = producer;
     }
 
+    public TimeoutWheel getTimeoutWheel() {
+        return timeoutWheel;
+    }
+
+    public void setTimeoutWheel(TimeoutWheel timeoutWheel) {
+        this.timeoutWheel = timeoutWheel;
+    }
+
     public CommandStore getCommandStore() {
         return commandStore;
     }
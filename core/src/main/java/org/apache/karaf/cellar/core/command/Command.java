@@ -13,14 +13,18 @@
  */
 package org.apache.karaf.cellar.core.command;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.event.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -35,9 +39,15 @@ public class Command<R extends Result> extends Event {
     protected long timeout;
     protected final BlockingQueue<Map<Node, R>> resultQueue = new LinkedBlockingQueue<Map<Node, R>>();
     protected final Map<Node, R> nodeResults = new HashMap<Node, R>();
+    protected transient CompletableFuture<Map<Node, R>> future;
+    protected transient ResultListener<R> resultListener;
+    protected transient volatile boolean done;
+    protected transient TimeoutWheel.Timeout scheduledTimeout;
 
-    public Command(String id) {
-        super(id);
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Command() {
         this.force = true;
         if (System.getProperty("cellar.timeout") != null) {
             try {
@@ -50,6 +60,23 @@ public class Command<R extends Result> extends Event {
         }
     }
 
+    public Command(String id) {
+        this();
+        this.id = id;
+    }
+
+    @Override
+    protected void writeEventData(CompactDataOutput out) throws IOException {
+        super.writeEventData(out);
+        out.writeLong(timeout);
+    }
+
+    @Override
+    protected void readEventData(CompactDataInput in) throws IOException {
+        super.readEventData(in);
+        timeout = in.readLong();
+    }
+
     @Override
     public Boolean getForce() {
         return true;
@@ -59,11 +86,21 @@ public class Command<R extends Result> extends Event {
      * Process the event of timeout.
      */
     public void onTimeout() {
+        Map<Node, R> results;
+        synchronized (this) {
+            results = new HashMap<Node, R>(nodeResults);
+            done = true;
+        }
         try {
-            resultQueue.put(nodeResults);
+            resultQueue.put(results);
         } catch (InterruptedException e) {
             LOGGER.error("Error adding result to result queue", e);
         }
+        // the timeout completes the future with the results received so far
+        CompletableFuture<Map<Node, R>> current = future;
+        if (current != null) {
+            current.complete(results);
+        }
     }
 
     /**
@@ -73,33 +110,109 @@ public class Command<R extends Result> extends Event {
      */
     public void addResults(R... results) {
         if (results != null && results.length > 0) {
-            for (R result : results) {
-                nodeResults.put(result.getSourceNode(), result);
+            Map<Node, R> completed = null;
+            synchronized (this) {
+                for (R result : results) {
+                    nodeResults.put(result.getSourceNode(), result);
+                }
+                if (getDestination() == null || (nodeResults.size() == getDestination().size())) {
+                    completed = new HashMap<Node, R>(nodeResults);
+                    done = true;
+                }
             }
 
-            if (getDestination() == null || (nodeResults.size() == getDestination().size())) {
+            ResultListener<R> listener = resultListener;
+            if (listener != null) {
+                for (R result : results) {
+                    try {
+                        listener.onResult(result.getSourceNode(), result);
+                    } catch (Exception e) {
+                        LOGGER.warn("Error notifying result listener", e);
+                    }
+                }
+            }
+
+            if (completed != null) {
                 try {
-                    resultQueue.put(nodeResults);
+                    resultQueue.put(completed);
                 } catch (InterruptedException e) {
                     LOGGER.error("Error adding result to result queue", e);
                 }
+                CompletableFuture<Map<Node, R>> current = future;
+                if (current != null) {
+                    current.complete(completed);
+                }
+                // release the timeout task, the command is not waiting anymore
+                TimeoutWheel.Timeout timeoutTask = scheduledTimeout;
+                if (timeoutTask != null) {
+                    timeoutTask.cancel();
+                }
             }
         }
     }
 
+    /**
+     * Get the future completed when all destinations replied, or with the partial results when the command
+     * times out.
+     *
+     * @return the results future.
+     */
+    public synchronized CompletableFuture<Map<Node, R>> getFuture() {
+        if (future == null) {
+            future = new CompletableFuture<Map<Node, R>>();
+        }
+        return future;
+    }
+
+    /**
+     * Check if all the expected results have been received or if the command timed out.
+     *
+     * @return true if the command is done, false else.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    public ResultListener<R> getResultListener() {
+        return resultListener;
+    }
+
+    /**
+     * Set a listener notified for each node result, as it arrives.
+     *
+     * @param resultListener the result listener.
+     */
+    public void setResultListener(ResultListener<R> resultListener) {
+        this.resultListener = resultListener;
+    }
+
     /**
      * Return the responses.
-     * If no result is found, it returns an empty map.
+     * If not all results are received before the timeout, it returns the partial results (an empty map if no
+     * result is found).
      *
      * @return a map of results.
      * @throws InterruptedException in case of interruption.
      */
     public Map<Node, R> getResult() throws InterruptedException {
-        Map<Node, R> nodeResults = null;
+        Map<Node, R> results = null;
         if (this.resultQueue != null) {
-            nodeResults = resultQueue.poll(timeout, TimeUnit.MILLISECONDS);
+            results = resultQueue.poll(timeout, TimeUnit.MILLISECONDS);
         }
-        return nodeResults;
+        if (results == null) {
+            synchronized (this) {
+                results = new HashMap<Node, R>(nodeResults);
+            }
+        }
+        return results;
+    }
+
+    public TimeoutWheel.Timeout getScheduledTimeout() {
+        return scheduledTimeout;
+    }
+
+    public void setScheduledTimeout(TimeoutWheel.Timeout scheduledTimeout) {
+        this.scheduledTimeout = scheduledTimeout;
     }
 
     public long getTimeout() {
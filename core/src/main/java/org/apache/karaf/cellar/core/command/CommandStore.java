@@ -24,4 +24,27 @@ public interface CommandStore {
 
     public void setPending(ConcurrentMap<String, Command> pending);
 
+    /**
+     * Register a command waiting for its results.
+     *
+     * @param command the pending command.
+     */
+    public void register(Command command);
+
+    /**
+     * Remove a command which received all its results.
+     *
+     * @param id the command id.
+     * @return the completed command, or null if the command is not pending anymore.
+     */
+    public Command complete(String id);
+
+    /**
+     * Remove a command which timed out.
+     *
+     * @param id the command id.
+     * @return the expired command, or null if the command is not pending anymore.
+     */
+    public Command expire(String id);
+
 }
@@ -16,6 +16,7 @@ package org.apache.karaf.cellar.core.command;
 import org.apache.karaf.cellar.core.Node;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Command execution context.
@@ -33,4 +34,29 @@ public interface ExecutionContext {
      */
     public <R extends Result, C extends Command<R>> Map<Node, R> execute(C command) throws Exception;
 
+    /**
+     * Execute {@link Command} without waiting for the {@link Result}s.
+     * The returned future is completed when all destinations replied, or with the partial results when the
+     * command times out.
+     *
+     * @param command the command to execute.
+     * @param <R> the result type.
+     * @param <C> the command type.
+     * @return the future results, per node.
+     * @throws Exception in case of execution failure.
+     */
+    public <R extends Result, C extends Command<R>> CompletableFuture<Map<Node, R>> executeAsync(C command) throws Exception;
+
+    /**
+     * Execute {@link Command} without waiting for the {@link Result}s, notifying a listener for each node result.
+     *
+     * @param command the command to execute.
+     * @param listener the listener called as each node result arrives.
+     * @param <R> the result type.
+     * @param <C> the command type.
+     * @return the future results, per node.
+     * @throws Exception in case of execution failure.
+     */
+    public <R extends Result, C extends Command<R>> CompletableFuture<Map<Node, R>> executeAsync(C command, ResultListener<R> listener) throws Exception;
+
 }
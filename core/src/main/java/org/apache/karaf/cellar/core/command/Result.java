@@ -20,6 +20,13 @@ import org.apache.karaf.cellar.core.event.Event;
  */
 public class Result extends Event {
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Result() {
+        this.force = true;
+    }
+
     public Result(String id) {
         super(id);
         this.force = true;
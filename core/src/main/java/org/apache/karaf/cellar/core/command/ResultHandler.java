@@ -41,6 +41,10 @@ public class ResultHandler<R extends Result> implements EventHandler<R> {
 
             if (command != null && handlerSwitch.getStatus().equals(SwitchStatus.ON)) {
                 command.addResults(result);
+                // all the expected results are there, the command is not pending anymore
+                if (command.isDone()) {
+                    commandStore.complete(id);
+                }
             }
         }
     }
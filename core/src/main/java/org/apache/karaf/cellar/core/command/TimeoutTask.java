@@ -32,9 +32,8 @@ public class TimeoutTask implements Runnable {
     @Override
     public void run() {
         // check if command is still pending
-        Boolean pending = store.getPending().containsKey(command.getId());
-        if (pending) {
-            store.getPending().remove(command.getId());
+        if (store.expire(command.getId()) != null) {
+            command.onTimeout();
         }
     }
 
@@ -0,0 +1,260 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hashed wheel timer used for the command timeouts.
+ * A single daemon thread, started on the first scheduled timeout, advances the wheel every tick and runs the
+ * expired tasks. Scheduling and cancelling a timeout are O(1) and don't create any thread, so all execution
+ * contexts share the same timer. The timeout tasks run on the timer thread and must be short.
+ */
+public class TimeoutWheel {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(TimeoutWheel.class);
+
+    public static final long DEFAULT_TICK_DURATION = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final TimeoutWheel DEFAULT = new TimeoutWheel(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+
+    private final long tickDuration;
+    private final LinkedList<Timeout>[] wheel;
+    private final int mask;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<Timeout>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Create a timer.
+     *
+     * @param tickDuration the duration of a tick (timer precision), in milliseconds.
+     * @param wheelSize the number of buckets in the wheel, rounded up to a power of two.
+     */
+    public TimeoutWheel(long tickDuration, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than 0");
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        this.wheel = new LinkedList[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new LinkedList<Timeout>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get the timer shared by all command execution contexts.
+     *
+     * @return the shared timer.
+     */
+    public static TimeoutWheel getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Schedule a task to run once the delay expired.
+     *
+     * @param task the task to run.
+     * @param delay the delay, in milliseconds.
+     * @return the timeout, which can be cancelled.
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0)));
+        pendingCount.incrementAndGet();
+        incoming.add(timeout);
+        start();
+        return timeout;
+    }
+
+    private synchronized void start() {
+        if (worker == null) {
+            running = true;
+            worker = new Thread(new Worker(), "cellar-command-timeout");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stop the timer thread and expire the pending timeouts right away, so the callers waiting for them are released.
+     * The timer starts again on the next scheduled timeout.
+     */
+    public void stop() {
+        List<Timeout> pending = new ArrayList<Timeout>();
+        synchronized (this) {
+            if (worker != null) {
+                running = false;
+                worker.interrupt();
+                try {
+                    worker.join(tickDuration / 1000000 * 10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                worker = null;
+            }
+            Timeout timeout;
+            while ((timeout = incoming.poll()) != null) {
+                pending.add(timeout);
+            }
+            for (LinkedList<Timeout> bucket : wheel) {
+                synchronized (bucket) {
+                    pending.addAll(bucket);
+                    bucket.clear();
+                }
+            }
+        }
+        // the tasks run outside of the lock, they may schedule new timeouts
+        for (Timeout timeout : pending) {
+            timeout.expire();
+        }
+    }
+
+    /**
+     * Get the number of timeouts scheduled and not yet expired or cancelled.
+     *
+     * @return the number of pending timeouts.
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public class Timeout {
+
+        private final AtomicReference<Runnable> task;
+        private final long deadline;
+        private long remainingRounds;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = new AtomicReference<Runnable>(task);
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the timeout, the task will not run. The task is released immediately.
+         */
+        public void cancel() {
+            if (task.getAndSet(null) != null) {
+                pendingCount.decrementAndGet();
+            }
+        }
+
+        public boolean isCancelled() {
+            return task.get() == null;
+        }
+
+        void expire() {
+            Runnable current = task.getAndSet(null);
+            if (current == null) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            try {
+                current.run();
+            } catch (Throwable t) {
+                LOGGER.warn("CELLAR: error while running command timeout task", t);
+            }
+        }
+
+    }
+
+    private class Worker implements Runnable {
+
+        private long startTime;
+        private long tick;
+
+        @Override
+        public void run() {
+            startTime = System.nanoTime();
+            while (running) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                transferIncoming();
+                LinkedList<Timeout> bucket = wheel[(int) (tick & mask)];
+                synchronized (bucket) {
+                    Iterator<Timeout> iterator = bucket.iterator();
+                    while (iterator.hasNext()) {
+                        Timeout timeout = iterator.next();
+                        if (timeout.isCancelled()) {
+                            iterator.remove();
+                        } else if (timeout.remainingRounds <= 0) {
+                            iterator.remove();
+                            timeout.expire();
+                        } else {
+                            timeout.remainingRounds--;
+                        }
+                    }
+                }
+                tick++;
+            }
+        }
+
+        private boolean waitForNextTick() {
+            long deadline = startTime + (tick + 1) * tickDuration;
+            while (true) {
+                long sleepTime = deadline - System.nanoTime();
+                if (sleepTime <= 0) {
+                    return true;
+                }
+                try {
+                    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepTime) + 1);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        private void transferIncoming() {
+            Timeout timeout;
+            while ((timeout = incoming.poll()) != null) {
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                long calculated = (timeout.deadline - startTime + tickDuration - 1) / tickDuration - 1;
+                timeout.remainingRounds = Math.max(calculated - tick, 0) / wheel.length;
+                long ticks = Math.max(calculated, tick);
+                LinkedList<Timeout> bucket = wheel[(int) (ticks & mask)];
+                synchronized (bucket) {
+                    bucket.add(timeout);
+                }
+            }
+        }
+
+    }
+
+}
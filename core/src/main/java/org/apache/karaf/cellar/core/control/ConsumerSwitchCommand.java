@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Consumer switch command.
  */
-public class ConsumerSwitchCommand extends Command<ConsumerSwitchResult> {
+public class ConsumerSwitchCommand extends Command<ConsumerSwitchResult> implements PriorityEvent {
 
     private SwitchStatus status = null;
 
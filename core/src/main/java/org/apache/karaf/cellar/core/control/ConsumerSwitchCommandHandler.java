@@ -69,6 +69,10 @@ public class ConsumerSwitchCommandHandler extends CommandHandler<ConsumerSwitchC
                 if (properties != null) {
                     properties.put(Configurations.CONSUMER, switchStatus.getValue().toString());
                     configuration.update(properties);
+                    if (nodeConfiguration != null) {
+                        // don't wait for the configuration event to update the node configuration snapshot
+                        nodeConfiguration.refresh();
+                    }
                 }
             }
         } catch (Exception e) {
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Consumer switch result.
  */
-public class ConsumerSwitchResult extends Result {
+public class ConsumerSwitchResult extends Result implements PriorityEvent {
 
     protected Boolean success = Boolean.TRUE;
     protected Boolean status = Boolean.TRUE;
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Manager group command.
  */
-public class ManageGroupCommand extends Command<ManageGroupResult> {
+public class ManageGroupCommand extends Command<ManageGroupResult> implements PriorityEvent {
 
     private ManageGroupAction action;
     private String groupName;
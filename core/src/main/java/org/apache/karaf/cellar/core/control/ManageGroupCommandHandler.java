@@ -86,8 +86,6 @@ public class ManageGroupCommandHandler extends CommandHandler<ManageGroupCommand
             if (targetGroup == null) {
                 groupManager.registerGroup(targetGroupName);
             } else if (!targetGroup.getNodes().contains(node)) {
-                targetGroup.getNodes().add(node);
-                groupManager.listGroups().put(targetGroupName, targetGroup);
                 groupManager.registerGroup(targetGroup);
             }
         }
@@ -104,7 +102,6 @@ public class ManageGroupCommandHandler extends CommandHandler<ManageGroupCommand
         if (groups != null && !groups.isEmpty()) {
             Group targetGroup = groups.get(targetGroupName);
             if (targetGroup.getNodes().contains(node)) {
-                targetGroup.getNodes().remove(node);
                 groupManager.unRegisterGroup(targetGroup);
             }
         }
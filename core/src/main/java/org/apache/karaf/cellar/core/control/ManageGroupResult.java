@@ -15,6 +15,7 @@ package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -22,7 +23,7 @@ import java.util.Set;
 /**
  * Manager group result.
  */
-public class ManageGroupResult extends Result {
+public class ManageGroupResult extends Result implements PriorityEvent {
 
     private Boolean success = Boolean.TRUE;
     private Set<Group> groups = new HashSet<Group>();
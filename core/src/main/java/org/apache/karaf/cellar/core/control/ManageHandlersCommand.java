@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Manage handlers command.
  */
-public class ManageHandlersCommand extends Command<ManageHandlersResult> {
+public class ManageHandlersCommand extends Command<ManageHandlersResult> implements PriorityEvent {
 
     private String handlerName;
     private Boolean status = Boolean.TRUE;
@@ -110,6 +110,10 @@ public class ManageHandlersCommandHandler extends CommandHandler<ManageHandlersC
                 if (properties != null) {
                     properties.put(Configurations.HANDLER + "." + handler, switchStatus.getValue().toString());
                     configuration.update(properties);
+                    if (nodeConfiguration != null) {
+                        // don't wait for the configuration event to update the node configuration snapshot
+                        nodeConfiguration.refresh();
+                    }
                 }
             }
         } catch (Exception e) {
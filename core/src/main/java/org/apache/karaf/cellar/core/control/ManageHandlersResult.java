@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,7 +22,7 @@ import java.util.Map;
 /**
  * Manage handlers result.
  */
-public class ManageHandlersResult extends Result {
+public class ManageHandlersResult extends Result implements PriorityEvent {
 
     public Map<String, String> handlers = new HashMap<String, String>();
 
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Producer switch command.
  */
-public class ProducerSwitchCommand extends Command<ProducerSwitchResult> {
+public class ProducerSwitchCommand extends Command<ProducerSwitchResult> implements PriorityEvent {
 
     private SwitchStatus status = null;
 
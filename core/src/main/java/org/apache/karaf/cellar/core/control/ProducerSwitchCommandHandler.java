@@ -69,6 +69,10 @@ public class ProducerSwitchCommandHandler extends CommandHandler<ProducerSwitchC
                 if (properties != null) {
                     properties.put(Configurations.PRODUCER, switchStatus.getValue().toString());
                     configuration.update(properties);
+                    if (nodeConfiguration != null) {
+                        // don't wait for the configuration event to update the node configuration snapshot
+                        nodeConfiguration.refresh();
+                    }
                 }
             }
         } catch (Exception e) {
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Shutdown the whole cluster.
  */
-public class ShutdownCommand extends Command<ShutdownResult> {
+public class ShutdownCommand extends Command<ShutdownResult> implements PriorityEvent {
 
     private boolean halt;
 
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.core.control;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Shutdown result.
  */
-public class ShutdownResult extends Result {
+public class ShutdownResult extends Result implements PriorityEvent {
 
     public ShutdownResult(String id) {
         super(id);
@@ -13,9 +13,12 @@
  */
 package org.apache.karaf.cellar.core.event;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Node;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Set;
 
@@ -32,10 +35,47 @@ public class Event implements Serializable {
     protected Boolean force = Boolean.FALSE;
     protected Boolean postPublish = Boolean.FALSE;
 
+    /**
+     * Constructor used by the compact serialization.
+     */
+    protected Event() {
+    }
+
     public Event(String id) {
         this.id = id;
     }
 
+    /**
+     * Write the common event data, for the events implementing {@code CompactSerializable}.
+     * The source group is written by name and the nodes by ID.
+     *
+     * @param out the compact output.
+     * @throws IOException in case of write failure.
+     */
+    protected void writeEventData(CompactDataOutput out) throws IOException {
+        out.writeUTF(id);
+        out.writeNode(sourceNode);
+        out.writeGroup(sourceGroup);
+        out.writeNodes(destination);
+        out.writeBoolean(Boolean.TRUE.equals(force));
+        out.writeBoolean(Boolean.TRUE.equals(postPublish));
+    }
+
+    /**
+     * Read the common event data written by {@link #writeEventData(CompactDataOutput)}.
+     *
+     * @param in the compact input.
+     * @throws IOException in case of read failure.
+     */
+    protected void readEventData(CompactDataInput in) throws IOException {
+        id = in.readUTF();
+        sourceNode = in.readNode();
+        sourceGroup = in.readGroup();
+        destination = in.readNodes();
+        force = in.readBoolean();
+        postPublish = in.readBoolean();
+    }
+
     public String getId() {
         return id;
     }
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set of cluster events sent as a single message. The consumer unpacks the batch and handles each event as if it
+ * was received alone.
+ */
+public class EventBatch extends Event implements CompactSerializable {
+
+    private List<Event> events;
+
+    public EventBatch() {
+        this.force = Boolean.TRUE;
+    }
+
+    public EventBatch(List<Event> events) {
+        super("batch");
+        this.force = Boolean.TRUE;
+        this.events = events;
+    }
+
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeInt(events.size());
+        for (Event event : events) {
+            out.writeObject(event);
+        }
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        int count = in.readInt();
+        events = new ArrayList<Event>(count);
+        for (int i = 0; i < count; i++) {
+            Event event = in.readObject();
+            events.add(event);
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collect the produced cluster events for a short delay, or up to a maximum number of events, and send them as a
+ * single {@link EventBatch}. A pending event is replaced by a new event for the same resource when the new event
+ * {@link Supersedable supersedes} it, keeping the position of the pending event.
+ */
+public class EventBatcher {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventBatcher.class);
+
+    public static final int DEFAULT_DELAY = 10;
+
+    /**
+     * Send the batches (or single events) to the cluster.
+     */
+    public interface Publisher {
+
+        public void publish(Event event);
+
+    }
+
+    private final Publisher publisher;
+    private final Map<String, Event> pending = new LinkedHashMap<String, Event>();
+
+    private int maxSize;
+    private long delay;
+    private ScheduledExecutorService scheduler;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public EventBatcher(Publisher publisher, int maxSize, long delay) {
+        this.publisher = publisher;
+        this.maxSize = maxSize;
+        this.delay = delay;
+    }
+
+    public synchronized void destroy() {
+        closed = true;
+        try {
+            flush();
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: failed to send the pending cluster events", e);
+        } finally {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+    }
+
+    /**
+     * Add a cluster event to the current batch.
+     *
+     * @param event the cluster event.
+     */
+    public synchronized void add(Event event) {
+        if (closed) {
+            // the batching has been disabled while the event was produced
+            publisher.publish(event);
+            return;
+        }
+        String key = getKey(event);
+        Event previous = pending.get(key);
+        if (previous != null) {
+            if (event instanceof Supersedable && ((Supersedable) event).supersedes(previous)) {
+                pending.put(key, event);
+                coalescedCount.incrementAndGet();
+                return;
+            }
+            // both events are required, in order
+            flush();
+        }
+        pending.put(key, event);
+        if (pending.size() >= maxSize) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            getScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        LOGGER.warn("CELLAR: failed to send cluster events batch", e);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send the pending events, then an event which is not batched.
+     * No event can be added between the pending events and this event, so the order of the events is kept.
+     *
+     * @param event the cluster event sent after the pending events.
+     */
+    public void flushAndPublish(Event event) {
+        flushAndPublish(event, publisher);
+    }
+
+    /**
+     * Send the pending events, then an event which is not batched, with another publisher (for instance to send
+     * the event to some nodes only).
+     *
+     * @param event the cluster event sent after the pending events.
+     * @param target the publisher of the event.
+     */
+    public synchronized void flushAndPublish(Event event, Publisher target) {
+        flush();
+        target.publish(event);
+    }
+
+    /**
+     * Send the pending events.
+     */
+    public synchronized void flush() {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Event> events = new ArrayList<Event>(pending.values());
+        pending.clear();
+        if (events.size() == 1) {
+            publisher.publish(events.get(0));
+        } else {
+            batchCount.incrementAndGet();
+            publisher.publish(new EventBatch(events));
+        }
+    }
+
+    private String getKey(Event event) {
+        StringBuilder builder = new StringBuilder(event.getClass().getName()).append('|');
+        if (event.getSourceGroup() != null) {
+            builder.append(event.getSourceGroup().getName());
+        }
+        return builder.append('|').append(event.getId()).toString();
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cellar-event-batcher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * Get the number of batches sent.
+     *
+     * @return the number of batches.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * Get the number of events discarded because superseded by a more recent event.
+     *
+     * @return the number of coalesced events.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    public synchronized void setDelay(long delay) {
+        this.delay = delay;
+    }
+
+}
@@ -26,6 +26,7 @@ public class EventDispatchTask<E extends Event> implements Runnable {
 
     private E event;
     private EventHandlerRegistry handlerRegistry;
+    private EventDispatcher<E> dispatcher;
     private long timeout;
     private long interval = 1000;
 
@@ -49,6 +50,18 @@ public class EventDispatchTask<E extends Event> implements Runnable {
         this.timeout = timeout;
     }
 
+    /**
+     * Create a task parking the event (instead of waiting for the handler) when no handler is available.
+     *
+     * @param event the cluster event to dispatch.
+     * @param handlerRegistry the handler registry.
+     * @param dispatcher the dispatcher to use when the event is released from the parking area.
+     */
+    public EventDispatchTask(E event, EventHandlerRegistry handlerRegistry, EventDispatcher<E> dispatcher) {
+        this(event, handlerRegistry);
+        this.dispatcher = dispatcher;
+    }
+
     public EventDispatchTask(EventHandlerRegistry handlerRegistry, long timeout, long interval, E event) {
         this.handlerRegistry = handlerRegistry;
         this.timeout = timeout;
@@ -59,6 +72,21 @@ public class EventDispatchTask<E extends Event> implements Runnable {
     @Override
     public void run() {
         try {
+            ParkedEventStore<E> parkedEventStore = handlerRegistry.getParkedEventStore();
+            if (dispatcher != null && parkedEventStore != null) {
+                EventHandler handler = handlerRegistry.getHandler(event);
+                if (handler != null) {
+                    handler.handle(event);
+                } else {
+                    parkedEventStore.park(event, dispatcher);
+                    // the handler may have been bound while parking the event
+                    if (handlerRegistry.getHandler(event) != null) {
+                        parkedEventStore.release(event.getClass());
+                    }
+                }
+                return;
+            }
+
             boolean dispatched = false;
 
             for (long delay = 0; delay < timeout && !dispatched; delay += interval) {
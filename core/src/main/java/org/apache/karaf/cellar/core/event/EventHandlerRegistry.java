@@ -27,4 +27,11 @@ public interface EventHandlerRegistry<E extends Event> extends HandlerRegistry<E
     @Override
     public EventHandler<E> getHandler(E event);
 
+    /**
+     * Return the parking area for the cluster {@code Event}s waiting for their {@code EventHandler}.
+     *
+     * @return the parked event store, or null if the registry doesn't support event parking.
+     */
+    public ParkedEventStore<E> getParkedEventStore();
+
 }
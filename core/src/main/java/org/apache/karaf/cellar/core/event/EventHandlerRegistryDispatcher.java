@@ -13,31 +13,251 @@
  */
 package org.apache.karaf.cellar.core.event;
 
+import org.apache.karaf.cellar.core.Configurations;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Dictionary;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Event handler service registry dispatcher.
+ * By default, each cluster event is dispatched in a thread of an unbounded pool. When lanes are configured, the
+ * events are dispatched on a fixed number of threads, through a serial lane per resource (cluster group + event id),
+ * each one with its own bounded queue. The events related to a resource are handled one after the other, in order,
+ * whereas events related to different resources are handled in parallel. Whatever the overflow policy, an event is
+ * never handled before the events queued before it for the same resource.
+ * The {@link PriorityEvent}s (control commands and results) are always dispatched on a dedicated pool, so they are
+ * not queued behind the resources events.
  */
 public class EventHandlerRegistryDispatcher<E extends Event> implements EventDispatcher<E> {
 
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(EventHandlerRegistryDispatcher.class);
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
     private ExecutorService threadPool;
     private EventHandlerRegistry handlerRegistry;
+    private ConfigurationAdmin configurationAdmin;
+
+    private int lanes = 0;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private ThreadPoolExecutor laneExecutor;
+    private final ConcurrentMap<String, SerialLane> serialLanes = new ConcurrentHashMap<String, SerialLane>();
+    private volatile boolean stopped;
+    private ExecutorService priorityExecutor;
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
 
     public void init() {
-        if (threadPool == null) {
+        loadConfiguration();
+        if (priorityExecutor == null) {
+            priorityExecutor = Executors.newCachedThreadPool(new NamedThreadFactory("cellar-dispatcher-priority"));
+        }
+        if (lanes > 0) {
+            if (laneExecutor == null) {
+                // the pool queue holds at most one task per resource, the events are queued in the serial lanes
+                laneExecutor = new ThreadPoolExecutor(lanes, lanes, 0L, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("cellar-dispatcher-lane"));
+            }
+        } else if (threadPool == null) {
             threadPool = Executors.newCachedThreadPool();
         }
     }
 
+    public void destroy() {
+        stopped = true;
+        for (SerialLane lane : serialLanes.values()) {
+            synchronized (lane) {
+                lane.notifyAll();
+            }
+        }
+        if (laneExecutor != null) {
+            laneExecutor.shutdown();
+        }
+        if (threadPool != null) {
+            threadPool.shutdown();
+        }
+        if (priorityExecutor != null) {
+            priorityExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Load the dispatcher lanes setup from the node configuration.
+     */
+    private void loadConfiguration() {
+        if (configurationAdmin == null) {
+            return;
+        }
+        try {
+            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
+            Dictionary properties = configuration.getProperties();
+            if (properties != null) {
+                lanes = getInt(properties, Configurations.DISPATCHER_LANES, lanes);
+                queueCapacity = getInt(properties, Configurations.DISPATCHER_QUEUE_CAPACITY, queueCapacity);
+                Object policy = properties.get(Configurations.DISPATCHER_OVERFLOW_POLICY);
+                if (policy != null) {
+                    overflowPolicy = OverflowPolicy.parse(policy.toString(), overflowPolicy);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("CELLAR: can't load the event dispatcher configuration, using default", e);
+        }
+        if (queueCapacity <= 0) {
+            queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        }
+    }
+
+    private int getInt(Dictionary properties, String key, int defaultValue) {
+        Object value = properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("CELLAR: invalid value {} for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Dispatch a cluster {@code Event} to the appropriate cluster {@code EventHandler}.
      *
      * @param event the cluster event to dispatch.
      */
     public void dispatch(E event) {
-        EventDispatchTask task = new EventDispatchTask(event, handlerRegistry);
-        threadPool.execute(task);
+        EventDispatchTask task = new EventDispatchTask(event, handlerRegistry, this);
+        try {
+            if (event instanceof PriorityEvent && priorityExecutor != null) {
+                priorityExecutor.execute(task);
+            } else if (laneExecutor != null) {
+                dispatchOnLane(getLaneKey(event), task);
+            } else {
+                threadPool.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("CELLAR: cluster event {} not dispatched: {}", event.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Queue a task in the serial lane of a resource, applying the overflow policy when the lane queue is full.
+     *
+     * @param key the resource key.
+     * @param task the dispatch task.
+     */
+    private void dispatchOnLane(String key, Runnable task) {
+        while (true) {
+            SerialLane lane = getSerialLane(key);
+            CallerTurn turn = null;
+            synchronized (lane) {
+                while (overflowPolicy == OverflowPolicy.BLOCK && !lane.retired && lane.queue.size() >= queueCapacity) {
+                    waitFor(lane);
+                }
+                if (lane.retired) {
+                    // the lane has been removed while idle, use the new one
+                    continue;
+                }
+                if (lane.queue.size() < queueCapacity) {
+                    lane.queue.add(task);
+                } else if (overflowPolicy == OverflowPolicy.DROP) {
+                    long dropped = droppedEvents.incrementAndGet();
+                    LOGGER.warn("CELLAR: event dispatcher lane is full, cluster event dropped ({} dropped so far)", dropped);
+                    return;
+                } else {
+                    // the consumer handles the event itself, when the events queued before it have been handled
+                    turn = new CallerTurn();
+                    lane.queue.add(turn);
+                }
+                pendingEvents.incrementAndGet();
+                if (!lane.scheduled) {
+                    lane.scheduled = true;
+                    laneExecutor.execute(lane);
+                }
+                if (turn == null) {
+                    return;
+                }
+                while (!turn.ready) {
+                    waitFor(lane);
+                }
+            }
+            try {
+                task.run();
+            } finally {
+                lane.next();
+            }
+            return;
+        }
+    }
+
+    private SerialLane getSerialLane(String key) {
+        SerialLane lane = serialLanes.get(key);
+        if (lane == null) {
+            lane = new SerialLane(key);
+            SerialLane existing = serialLanes.putIfAbsent(key, lane);
+            if (existing != null) {
+                lane = existing;
+            }
+        }
+        return lane;
+    }
+
+    private void waitFor(SerialLane lane) {
+        if (stopped) {
+            throw new RejectedExecutionException("Cluster event dispatcher is stopped");
+        }
+        try {
+            lane.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for event dispatcher lane", e);
+        }
+    }
+
+    /**
+     * Get the serial lane key of a cluster event: the resource (cluster group + event id).
+     *
+     * @param event the cluster event.
+     * @return the lane key.
+     */
+    protected String getLaneKey(E event) {
+        String group = (event.getSourceGroup() != null) ? event.getSourceGroup().getName() : null;
+        return group + Configurations.SEPARATOR + event.getId();
+    }
+
+    /**
+     * Get the number of events waiting in the lanes queues.
+     *
+     * @return the number of pending events.
+     */
+    public int getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    /**
+     * Get the number of events discarded because a lane queue was full (drop overflow policy).
+     *
+     * @return the number of dropped events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
     }
 
     public EventHandlerRegistry getHandlerRegistry() {
@@ -56,4 +276,133 @@ public class EventHandlerRegistryDispatcher<E extends Event> implements EventDis
         this.threadPool = threadPool;
     }
 
+    public ConfigurationAdmin getConfigurationAdmin() {
+        return configurationAdmin;
+    }
+
+    public void setConfigurationAdmin(ConfigurationAdmin configurationAdmin) {
+        this.configurationAdmin = configurationAdmin;
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void setLanes(int lanes) {
+        this.lanes = lanes;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Serial lane of a resource: the queued events are handled one after the other, by a single thread at a time.
+     * The lane is removed when it is idle.
+     */
+    private class SerialLane implements Runnable {
+
+        private final String key;
+        private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+        // a thread (from the pool, or the consumer) is handling the events of the lane
+        private boolean scheduled;
+        private boolean retired;
+
+        SerialLane(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (this) {
+                task = queue.poll();
+                if (task != null) {
+                    pendingEvents.decrementAndGet();
+                }
+                // room in the queue for a waiting consumer
+                notifyAll();
+                if (task instanceof CallerTurn) {
+                    // the waiting consumer handles its event and gives the lane to the next event
+                    ((CallerTurn) task).ready = true;
+                    return;
+                }
+            }
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            } finally {
+                next();
+            }
+        }
+
+        /**
+         * Give the lane to the next queued event, one event per pool task so all resources share the threads fairly.
+         */
+        synchronized void next() {
+            notifyAll();
+            if (queue.isEmpty()) {
+                scheduled = false;
+                retired = true;
+                serialLanes.remove(key, this);
+                return;
+            }
+            try {
+                laneExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                pendingEvents.addAndGet(-queue.size());
+                queue.clear();
+                LOGGER.warn("CELLAR: cluster events not dispatched: {}", e.getMessage());
+            }
+        }
+
+    }
+
+    /**
+     * Place of an event handled by the consumer thread in a full lane queue.
+     */
+    private static class CallerTurn implements Runnable {
+
+        private boolean ready;
+
+        @Override
+        public void run() {
+            // the event is handled by the consumer thread
+        }
+
+    }
+
+    /**
+     * Name the dispatcher threads so they are easy to spot in thread dumps.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
 }
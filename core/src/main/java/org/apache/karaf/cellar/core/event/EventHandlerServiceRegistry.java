@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class EventHandlerServiceRegistry<E extends Event> implements EventHandlerRegistry<E> {
 
     private Map<Class,EventHandler> eventHandlerMap = new ConcurrentHashMap<Class,EventHandler>();
+    private ParkedEventStore<E> parkedEventStore = new ParkedEventStore<E>();
 
     /**
      * Return the appropriate cluster {@code EventHandler} found inside the cluster {@code HandlerRegistry}.
@@ -41,6 +42,8 @@ public class EventHandlerServiceRegistry<E extends Event> implements EventHandle
     public void bind(EventHandler handler) {
         if(handler != null && handler.getType() != null) {
             eventHandlerMap.put(handler.getType(),handler);
+            // wake up the events waiting for this handler
+            parkedEventStore.release(handler.getType());
         }
     }
 
@@ -50,4 +53,13 @@ public class EventHandlerServiceRegistry<E extends Event> implements EventHandle
         }
     }
 
+    @Override
+    public ParkedEventStore<E> getParkedEventStore() {
+        return parkedEventStore;
+    }
+
+    public void setParkedEventStore(ParkedEventStore<E> parkedEventStore) {
+        this.parkedEventStore = parkedEventStore;
+    }
+
 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+/**
+ * Behavior of the event dispatcher when a dispatching lane queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The consumer thread waits until there is room in the lane queue.
+     */
+    BLOCK,
+
+    /**
+     * The consumer thread handles the event itself, once the events queued before it for the same resource have been
+     * handled.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The event is discarded and the dropped events counter is incremented.
+     */
+    DROP;
+
+    /**
+     * Get the overflow policy corresponding to a configuration value.
+     *
+     * @param value the configuration value (block, caller, caller_runs, drop).
+     * @param defaultPolicy the policy to use if the value is not valid.
+     * @return the overflow policy.
+     */
+    public static OverflowPolicy parse(String value, OverflowPolicy defaultPolicy) {
+        if (value == null) {
+            return defaultPolicy;
+        }
+        String policy = value.trim().toUpperCase().replace('-', '_');
+        if (policy.equals("CALLER")) {
+            return CALLER_RUNS;
+        }
+        try {
+            return OverflowPolicy.valueOf(policy);
+        } catch (IllegalArgumentException e) {
+            return defaultPolicy;
+        }
+    }
+
+}
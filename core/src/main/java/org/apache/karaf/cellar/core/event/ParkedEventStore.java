@@ -0,0 +1,277 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parking area for the cluster events received before the corresponding {@code EventHandler} is available.
+ * The parked events don't hold any dispatching thread: they are dispatched again as soon as a handler for their
+ * type is bound, or discarded when the timeout ({@code cellar.timeout} system property) expires.
+ * The released events are handed to the dispatcher from the parking area thread, so binding a handler never waits for
+ * a full dispatcher lane.
+ */
+public class ParkedEventStore<E extends Event> {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(ParkedEventStore.class);
+    private static final long DEFAULT_TIMEOUT = 30000;
+    private static final long SWEEP_INTERVAL = 1000;
+
+    private final ConcurrentMap<Class, Queue<ParkedEvent<E>>> parked = new ConcurrentHashMap<Class, Queue<ParkedEvent<E>>>();
+
+    private final AtomicInteger parkedCount = new AtomicInteger();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    private long timeout;
+    private ScheduledExecutorService executor;
+
+    public ParkedEventStore() {
+        this.timeout = DEFAULT_TIMEOUT;
+        if (System.getProperty("cellar.timeout") != null) {
+            try {
+                this.timeout = Long.parseLong(System.getProperty("cellar.timeout"));
+            } catch (Exception e) {
+                this.timeout = DEFAULT_TIMEOUT;
+            }
+        }
+    }
+
+    public ParkedEventStore(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        for (Queue<ParkedEvent<E>> queue : parked.values()) {
+            queue.clear();
+        }
+        parked.clear();
+        parkedCount.set(0);
+    }
+
+    /**
+     * Park a cluster {@code Event} until a handler is available for its type.
+     *
+     * @param event the cluster event waiting for a handler.
+     * @param dispatcher the dispatcher to use when the handler is available.
+     */
+    public void park(E event, EventDispatcher<E> dispatcher) {
+        Class type = event.getClass();
+        Queue<ParkedEvent<E>> queue = parked.get(type);
+        if (queue == null) {
+            queue = new ConcurrentLinkedQueue<ParkedEvent<E>>();
+            Queue<ParkedEvent<E>> existing = parked.putIfAbsent(type, queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        queue.add(new ParkedEvent<E>(event, dispatcher, System.currentTimeMillis()));
+        parkedCount.incrementAndGet();
+        LOGGER.debug("CELLAR: no handler found for cluster event {}, event parked", type.getName());
+        getExecutor();
+    }
+
+    /**
+     * Dispatch again all parked events of a given type, typically when a handler for this type has been bound.
+     * The events are dispatched asynchronously, in the order they have been parked.
+     *
+     * @param type the cluster event type.
+     */
+    public void release(final Class type) {
+        if (type == null) {
+            return;
+        }
+        final Queue<ParkedEvent<E>> queue = parked.get(type);
+        if (queue == null || queue.isEmpty()) {
+            return;
+        }
+        try {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch(type, queue);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("CELLAR: parked cluster events {} not released: {}", type.getName(), e.getMessage());
+        }
+    }
+
+    private void dispatch(Class type, Queue<ParkedEvent<E>> queue) {
+        long now = System.currentTimeMillis();
+        ParkedEvent<E> parkedEvent;
+        while ((parkedEvent = queue.poll()) != null) {
+            parkedCount.decrementAndGet();
+            long waitTime = now - parkedEvent.parkedAt;
+            if (waitTime > timeout) {
+                expire(parkedEvent);
+                continue;
+            }
+            releasedCount.incrementAndGet();
+            totalWaitTime.addAndGet(waitTime);
+            updateMaxWaitTime(waitTime);
+            LOGGER.debug("CELLAR: dispatching cluster event {} parked for {} ms", type.getName(), waitTime);
+            try {
+                parkedEvent.dispatcher.dispatch(parkedEvent.event);
+            } catch (Exception e) {
+                LOGGER.warn("CELLAR: can't dispatch parked cluster event {}", type.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Discard the parked events waiting for more than the timeout.
+     */
+    protected void sweep() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Class, Queue<ParkedEvent<E>>> entry : parked.entrySet()) {
+            for (ParkedEvent<E> parkedEvent : entry.getValue()) {
+                if (now - parkedEvent.parkedAt > timeout && entry.getValue().remove(parkedEvent)) {
+                    parkedCount.decrementAndGet();
+                    expire(parkedEvent);
+                }
+            }
+        }
+    }
+
+    private void expire(ParkedEvent<E> parkedEvent) {
+        expiredCount.incrementAndGet();
+        LOGGER.warn("Failed to retrieve handler for cluster event {}", parkedEvent.event.getClass());
+    }
+
+    private void updateMaxWaitTime(long waitTime) {
+        long max = maxWaitTime.get();
+        while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime)) {
+            max = maxWaitTime.get();
+        }
+    }
+
+    /**
+     * Get the parking area thread, releasing the parked events and discarding the expired ones.
+     *
+     * @return the parking area executor.
+     */
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cellar-parked-events");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sweep();
+                    } catch (Exception e) {
+                        LOGGER.warn("Error while discarding expired parked cluster events", e);
+                    }
+                }
+            }, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return executor;
+    }
+
+    /**
+     * Get the number of cluster events currently waiting for a handler.
+     *
+     * @return the number of parked events.
+     */
+    public int getParkedCount() {
+        return parkedCount.get();
+    }
+
+    /**
+     * Get the number of parked cluster events dispatched once their handler became available.
+     *
+     * @return the number of released events.
+     */
+    public long getReleasedCount() {
+        return releasedCount.get();
+    }
+
+    /**
+     * Get the number of parked cluster events discarded because no handler became available before the timeout.
+     *
+     * @return the number of expired events.
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Get the average time (in milliseconds) a released event waited for its handler.
+     *
+     * @return the average wait time.
+     */
+    public long getAverageWaitTime() {
+        long released = releasedCount.get();
+        return released == 0 ? 0 : totalWaitTime.get() / released;
+    }
+
+    /**
+     * Get the maximum time (in milliseconds) a released event waited for its handler.
+     *
+     * @return the maximum wait time.
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    private static class ParkedEvent<E extends Event> {
+
+        private final E event;
+        private final EventDispatcher<E> dispatcher;
+        private final long parkedAt;
+
+        ParkedEvent(E event, EventDispatcher<E> dispatcher, long parkedAt) {
+            this.event = event;
+            this.dispatcher = dispatcher;
+            this.parkedAt = parkedAt;
+        }
+
+    }
+
+}
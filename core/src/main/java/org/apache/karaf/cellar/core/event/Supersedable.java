@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+/**
+ * Cluster event which can replace a previous pending event for the same resource (same type, cluster group and id),
+ * when the events are batched before being sent.
+ */
+public interface Supersedable {
+
+    /**
+     * Check if this event makes a previous event for the same resource useless.
+     *
+     * @param previous the pending event for the same resource.
+     * @return true if the previous event can be discarded, false else.
+     */
+    public boolean supersedes(Event previous);
+
+}
@@ -13,32 +13,60 @@
  */
 package org.apache.karaf.cellar.core.internal.osgi;
 
+import org.apache.karaf.cellar.core.BasicNodeConfiguration;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.ResourcePolicy;
+import org.apache.karaf.cellar.core.command.TimeoutWheel;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventHandlerRegistry;
 import org.apache.karaf.cellar.core.event.EventHandlerServiceRegistry;
 import org.apache.karaf.util.tracker.BaseActivator;
 import org.apache.karaf.util.tracker.annotation.ProvideService;
+import org.apache.karaf.util.tracker.annotation.RequireService;
 import org.apache.karaf.util.tracker.annotation.Services;
 import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationListener;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Services(
-        provides = { @ProvideService(EventHandlerRegistry.class) }
+        provides = {
+                @ProvideService(EventHandlerRegistry.class),
+                @ProvideService(NodeConfiguration.class)
+        },
+        requires = {
+                @RequireService(ConfigurationAdmin.class)
+        }
 )
 public class Activator extends BaseActivator {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(Activator.class);
 
     private ServiceTracker<EventHandler, EventHandler> eventHandlerServiceTracker;
+    private EventHandlerServiceRegistry registry;
+    private BasicNodeConfiguration nodeConfiguration;
 
     @Override
     public void doStart() throws Exception {
 
+        ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
+        if (configurationAdmin == null)
+            return;
+
+        LOGGER.debug("CELLAR CORE: register node configuration");
+        nodeConfiguration = new BasicNodeConfiguration();
+        nodeConfiguration.setConfigurationAdmin(configurationAdmin);
+        nodeConfiguration.init();
+        register(new Class[]{NodeConfiguration.class, ConfigurationListener.class}, nodeConfiguration);
+
+        LOGGER.debug("CELLAR CORE: register whitelist/blacklist cache invalidator");
+        register(ConfigurationListener.class, new ResourcePolicy.Invalidator());
+
         LOGGER.debug("CELLAR CORE: register event handler service registry");
-        final EventHandlerServiceRegistry registry = new EventHandlerServiceRegistry();
+        registry = new EventHandlerServiceRegistry();
         register(EventHandlerRegistry.class, registry);
 
         LOGGER.debug("CELLAR CORE: starting event handler service tracker");
@@ -72,6 +100,16 @@ public class Activator extends BaseActivator {
             eventHandlerServiceTracker.close();
             eventHandlerServiceTracker = null;
         }
+        if (registry != null) {
+            registry.getParkedEventStore().destroy();
+            registry = null;
+        }
+        if (nodeConfiguration != null) {
+            nodeConfiguration.destroy();
+            nodeConfiguration = null;
+        }
+        ResourcePolicy.invalidate();
+        TimeoutWheel.getDefault().stop();
     }
 
 }
@@ -112,4 +112,20 @@ public interface CellarMBean {
      */
     void producerStop(String nodeIdOrAlias) throws Exception;
 
+    /**
+     * Get the statistics of the local node cluster event processing (dispatching, parked events, pending commands, ...).
+     *
+     * @return the local node statistics.
+     * @throws Exception in case of retrieval failure.
+     */
+    TabularData statistics() throws Exception;
+
+    /**
+     * Get the outcome of the last run of each synchronizer on each cluster group of the local node.
+     *
+     * @return the synchronization reports.
+     * @throws Exception in case of retrieval failure.
+     */
+    TabularData syncStatus() throws Exception;
+
 }
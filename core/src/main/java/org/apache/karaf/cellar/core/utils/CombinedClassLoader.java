@@ -14,45 +14,143 @@
 package org.apache.karaf.cellar.core.utils;
 
 import org.osgi.framework.Bundle;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A class loader which combines multiple bundle class loaders.
  * A bundle can add itself for to this class loader, so that the class loader can load classes from the bundle.
  * It is meant to be used together with the extender pattern in order to extends Cellar class space.
+ * The packages exported by the bundles are indexed (from the bundle wiring), so a class is first looked up in the
+ * bundles exporting its package. The classes and resources not found are remembered, until a bundle is added or
+ * removed.
  */
 public class CombinedClassLoader extends ClassLoader {
 
+    private static final int MAX_MISSES = 10000;
+
     private final ConcurrentMap<Long, Bundle> bundles = new ConcurrentHashMap<Long, Bundle>();
 
     private final ConcurrentMap<String, Bundle> classBundleCache = new ConcurrentHashMap<String, Bundle>();
+    private final ConcurrentMap<Long, Set<String>> bundleClasses = new ConcurrentHashMap<Long, Set<String>>();
+    private final ConcurrentMap<String, List<Bundle>> packageIndex = new ConcurrentHashMap<String, List<Bundle>>();
+    private final ConcurrentMap<Long, List<String>> bundlePackages = new ConcurrentHashMap<Long, List<String>>();
+    private final ConcurrentMap<String, URL> resourceCache = new ConcurrentHashMap<String, URL>();
+    private final Set<String> missingClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> missingResources = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // incremented each time the bundles change, to not cache a miss computed with a stale list of bundles
+    private final AtomicLong generation = new AtomicLong();
 
     public void init() {
-        bundles.clear();
-        classBundleCache.clear();
+        clear();
     }
 
     public void destroy() {
+        clear();
+    }
+
+    private synchronized void clear() {
         bundles.clear();
         classBundleCache.clear();
+        bundleClasses.clear();
+        packageIndex.clear();
+        bundlePackages.clear();
+        invalidate();
     }
 
-    public void addBundle(Bundle bundle) {
-        bundles.put(bundle.getBundleId(), bundle);
+    public synchronized void addBundle(Bundle bundle) {
+        Bundle previous = bundles.put(bundle.getBundleId(), bundle);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(bundle);
+        invalidate();
     }
 
-    public void removeBundle(Bundle bundle) {
-        bundles.remove(bundle.getBundleId());
+    public synchronized void removeBundle(Bundle bundle) {
+        Bundle previous = bundles.remove(bundle.getBundleId());
+        if (previous != null) {
+            unindex(previous);
+        }
         // Remove all bundle classes from class name to bundle cache
-        for (Map.Entry<String, Bundle> entry : classBundleCache.entrySet()) {
-            if (entry.getValue().getBundleId() == bundle.getBundleId()) {
-                classBundleCache.remove(entry.getKey());
+        Set<String> classes = bundleClasses.remove(bundle.getBundleId());
+        if (classes != null) {
+            for (String name : classes) {
+                classBundleCache.remove(name);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Index the packages exported by a bundle, using the bundle wiring.
+     *
+     * @param bundle the bundle.
+     */
+    private void index(Bundle bundle) {
+        BundleWiring wiring = bundle.adapt(BundleWiring.class);
+        if (wiring == null) {
+            // the bundle is not resolved, its classes are found by the full bundles scan
+            return;
+        }
+        List<String> packages = new ArrayList<String>();
+        List<BundleCapability> capabilities = wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE);
+        if (capabilities != null) {
+            for (BundleCapability capability : capabilities) {
+                Object packageName = capability.getAttributes().get(PackageNamespace.PACKAGE_NAMESPACE);
+                if (packageName != null && !packages.contains(packageName.toString())) {
+                    packages.add(packageName.toString());
+                }
+            }
+        }
+        for (String packageName : packages) {
+            List<Bundle> exporters = packageIndex.get(packageName);
+            if (exporters == null) {
+                exporters = new CopyOnWriteArrayList<Bundle>();
+                packageIndex.put(packageName, exporters);
             }
+            exporters.add(bundle);
         }
+        bundlePackages.put(bundle.getBundleId(), packages);
+    }
+
+    private void unindex(Bundle bundle) {
+        List<String> packages = bundlePackages.remove(bundle.getBundleId());
+        if (packages == null) {
+            return;
+        }
+        for (String packageName : packages) {
+            List<Bundle> exporters = packageIndex.get(packageName);
+            if (exporters != null) {
+                exporters.remove(bundle);
+                if (exporters.isEmpty()) {
+                    packageIndex.remove(packageName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidate the resources and misses caches, as the bundles have changed.
+     */
+    private void invalidate() {
+        generation.incrementAndGet();
+        resourceCache.clear();
+        missingClasses.clear();
+        missingResources.clear();
     }
 
     @Override
@@ -67,18 +165,54 @@ public class CombinedClassLoader extends ClassLoader {
             // Remove stale cache entry
             classBundleCache.remove(name);
         }
-        // Class not found using class name to bundle cache, check all registered bundles
+        if (missingClasses.contains(name)) {
+            throw new ClassNotFoundException(name);
+        }
+        long currentGeneration = generation.get();
+        // Then in the bundles exporting the class package
+        List<Bundle> exporters = null;
+        int index = name.lastIndexOf('.');
+        if (index > 0) {
+            exporters = packageIndex.get(name.substring(0, index));
+        }
+        if (exporters != null) {
+            for (Bundle exporter : exporters) {
+                Class<?> clazz = loadClassFromBundle(name, exporter);
+                if (clazz != null) {
+                    cacheClass(name, exporter);
+                    return clazz;
+                }
+            }
+        }
+        // Class not found using the package index (private package), check all other registered bundles
         for (Map.Entry<Long, Bundle> entry : bundles.entrySet()) {
             bundle = entry.getValue();
+            if (exporters != null && exporters.contains(bundle)) {
+                continue;
+            }
             Class<?> clazz = loadClassFromBundle(name, bundle);
             if (clazz != null) {
-                classBundleCache.put(name, bundle);
+                cacheClass(name, bundle);
                 return clazz;
             }
         }
+        addMiss(missingClasses, name, currentGeneration);
         throw new ClassNotFoundException(name);
     }
 
+    private void cacheClass(String name, Bundle bundle) {
+        classBundleCache.put(name, bundle);
+        Set<String> classes = bundleClasses.get(bundle.getBundleId());
+        if (classes == null) {
+            Set<String> newClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            classes = bundleClasses.putIfAbsent(bundle.getBundleId(), newClasses);
+            if (classes == null) {
+                classes = newClasses;
+            }
+        }
+        classes.add(name);
+    }
+
     private Class<?> loadClassFromBundle(String name, Bundle bundle) {
         try {
             if (bundle.getState() == Bundle.ACTIVE || bundle.getState() == Bundle.STARTING) {
@@ -91,16 +225,38 @@ public class CombinedClassLoader extends ClassLoader {
 
     @Override
     public URL getResource(String name) {
+        URL url = resourceCache.get(name);
+        if (url != null || missingResources.contains(name)) {
+            return url;
+        }
+        long currentGeneration = generation.get();
         for (Map.Entry<Long, Bundle> entry : bundles.entrySet()) {
             Bundle bundle = entry.getValue();
             if (bundle.getState() == Bundle.ACTIVE || bundle.getState() == Bundle.STARTING) {
-                URL url = bundle.getResource(name);
+                url = bundle.getResource(name);
                 if (url != null) {
+                    if (generation.get() == currentGeneration) {
+                        resourceCache.put(name, url);
+                    }
                     return url;
                 }
             }
         }
+        addMiss(missingResources, name, currentGeneration);
         return null;
     }
 
-}
\ No newline at end of file
+    /**
+     * Remember a class or resource not found, if the bundles didn't change during the lookup.
+     */
+    private void addMiss(Set<String> misses, String name, long lookupGeneration) {
+        if (misses.size() >= MAX_MISSES) {
+            misses.clear();
+        }
+        misses.add(name);
+        if (generation.get() != lookupGeneration) {
+            misses.remove(name);
+        }
+    }
+
+}
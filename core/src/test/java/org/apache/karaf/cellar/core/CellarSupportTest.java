@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.core;
 
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.Properties;
 import org.apache.karaf.cellar.core.event.EventType;
@@ -43,6 +44,7 @@ public class CellarSupportTest {
 
     @Before
     public void setUp() throws Exception {
+        ResourcePolicy.invalidate();
         InputStream is = getClass().getResourceAsStream("groups.properties");
         props.load(is);
         is.close();
@@ -98,4 +100,23 @@ public class CellarSupportTest {
         assertFalse(test);
     }
 
+    @Test
+    public void testResourceMatcher() {
+        ResourceMatcher matcher = new ResourceMatcher(Arrays.asList("org.apache.karaf.cellar*", "org.ops4j.pax.logging", "*.xml", "mvn:org.foo/bar/[0-9]*"));
+
+        assertTrue(matcher.matches("org.apache.karaf.cellar.node"));
+        assertTrue(matcher.matches("org.ops4j.pax.logging"));
+        assertFalse(matcher.matches("org.ops4j.pax.logging.extra"));
+        assertFalse(matcher.matches("orgXops4j.pax.logging"));
+        assertTrue(matcher.matches("mvn:org.foo/bar/1.0/xml/features.xml"));
+        assertTrue(matcher.matches("mvn:org.foo/bar/2.0"));
+        assertFalse(matcher.matches("mvn:org.foo/bar/X.0"));
+
+        assertTrue(new ResourceMatcher(Arrays.asList("*")).matches("anything"));
+        // an empty entry only matches an empty name, so an empty whitelist entry denies everything
+        ResourceMatcher empty = new ResourceMatcher(Arrays.asList(""));
+        assertFalse(empty.isEmpty());
+        assertFalse(empty.matches("org.apache.karaf.cellar.node"));
+    }
+
 }
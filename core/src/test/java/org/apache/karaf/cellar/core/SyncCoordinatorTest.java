@@ -0,0 +1,239 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyncCoordinatorTest {
+
+    private final SyncCoordinator coordinator = new SyncCoordinator();
+
+    @After
+    public void tearDown() {
+        coordinator.destroy();
+    }
+
+    @Test
+    public void testSynchronizersRunInDependencyOrder() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        coordinator.addSynchronizer(new TestSynchronizer("bundle", calls, null), "bundle");
+        coordinator.addSynchronizer(new TestSynchronizer("feature", calls, null), "feature");
+        coordinator.addSynchronizer(new TestSynchronizer("obr.urls", calls, null), "obr.urls");
+        coordinator.addSynchronizer(new TestSynchronizer("config", calls, null), "config");
+        coordinator.init();
+
+        coordinator.sync(new Group("default")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("config@default", "obr.urls@default", "feature@default", "bundle@default"), calls);
+        assertEquals(4, coordinator.getReports().size());
+    }
+
+    @Test
+    public void testGroupsAreSynchronizedInParallel() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        // each group waits for the other one: the sync only completes if both groups run at the same time
+        CountDownLatch latch = new CountDownLatch(2);
+        coordinator.addSynchronizer(new TestSynchronizer("config", calls, latch), "config");
+        coordinator.setThreads(2);
+        coordinator.init();
+
+        await(coordinator.sync(Arrays.asList(new Group("group1"), new Group("group2"))));
+
+        assertEquals(2, calls.size());
+        for (SyncReport report : coordinator.getReports()) {
+            assertTrue(report.isSuccess());
+        }
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        coordinator.addSynchronizer(new TestSynchronizer("config", null, null), "config");
+        coordinator.init();
+
+        coordinator.sync(new Group("default")).get(10, TimeUnit.SECONDS);
+
+        SyncReport report = coordinator.getReports().get(0);
+        assertEquals("default", report.getGroup());
+        assertEquals("config", report.getResource());
+        assertFalse(report.isSuccess());
+    }
+
+    @Test
+    public void testOnlyTheLeaderPushes() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        coordinator.addSynchronizer(new TestSynchronizer("config", calls, null), "config");
+        coordinator.setJitter(0);
+        coordinator.setLeaderElection(new SyncLeaderElection() {
+            @Override
+            public boolean isSyncLeader(Group group) {
+                return group.getName().equals("leader");
+            }
+        });
+        coordinator.init();
+
+        await(coordinator.sync(Arrays.asList(new Group("leader"), new Group("follower"))));
+
+        assertTrue(calls.contains("config@leader"));
+        assertTrue(calls.contains("pull config@follower"));
+    }
+
+    @Test
+    public void testSyncAsLeaderOnlySyncsTheLeaderGroups() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        coordinator.addSynchronizer(new TestSynchronizer("config", calls, null), "config");
+        coordinator.setLeaderElection(new SyncLeaderElection() {
+            @Override
+            public boolean isSyncLeader(Group group) {
+                return group.getName().equals("leader");
+            }
+        });
+        coordinator.init();
+
+        await(coordinator.syncAsLeader(Arrays.asList(new Group("leader"), new Group("follower"))));
+        // several nodes joining in the sync window lead to a single push
+        await(coordinator.syncAsLeader(Arrays.asList(new Group("leader"), new Group("follower"))));
+
+        assertEquals(Arrays.asList("config@leader", "pull config@leader"), calls);
+    }
+
+    @Test
+    public void testDuplicatePushIsSuppressed() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        coordinator.addSynchronizer(new TestSynchronizer("config", calls, null), "config");
+        coordinator.init();
+
+        coordinator.sync(new Group("default")).get(10, TimeUnit.SECONDS);
+        coordinator.sync(new Group("default")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("config@default", "pull config@default"), calls);
+    }
+
+    @Test
+    public void testPendingSyncIsMerged() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        coordinator.addSynchronizer(new TestSynchronizer("config", calls, null), "config");
+        coordinator.setJitter(200);
+        coordinator.setLeaderElection(new SyncLeaderElection() {
+            @Override
+            public boolean isSyncLeader(Group group) {
+                return false;
+            }
+        });
+        coordinator.init();
+
+        Future<Void> first = coordinator.sync(new Group("default"));
+        Future<Void> second = coordinator.sync(new Group("default"));
+        await(Arrays.asList(first, second));
+
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void testPendingSyncRunsWithTheLatestRequest() throws Exception {
+        final List<Set<Node>> nodes = Collections.synchronizedList(new ArrayList<Set<Node>>());
+        coordinator.addSynchronizer(new TestSynchronizer("config", null, null) {
+            @Override
+            public void pull(Group group) {
+                nodes.add(new HashSet<Node>(group.getNodes()));
+            }
+        }, "config");
+        coordinator.setJitter(200);
+        coordinator.setLeaderElection(new SyncLeaderElection() {
+            @Override
+            public boolean isSyncLeader(Group group) {
+                return false;
+            }
+        });
+        coordinator.init();
+
+        Group group = new Group("default");
+        // the local node joins the cluster group while the sync of the cluster group is pending
+        Group joined = new Group("default");
+        joined.getNodes().add(createMock(Node.class));
+        Future<Void> first = coordinator.sync(group);
+        Future<Void> second = coordinator.sync(joined);
+        await(Arrays.asList(first, second));
+
+        assertEquals(1, nodes.size());
+        assertEquals(joined.getNodes(), nodes.get(0));
+    }
+
+    private static void await(List<Future<Void>> futures) throws Exception {
+        for (Future<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static class TestSynchronizer implements Synchronizer {
+
+        private final String name;
+        private final List<String> calls;
+        private final CountDownLatch latch;
+
+        TestSynchronizer(String name, List<String> calls, CountDownLatch latch) {
+            this.name = name;
+            this.calls = calls;
+            this.latch = latch;
+        }
+
+        @Override
+        public void push(Group group) {
+            // nothing to do
+        }
+
+        @Override
+        public void pull(Group group) {
+            calls.add("pull " + name + "@" + group.getName());
+        }
+
+        @Override
+        public void sync(Group group) {
+            if (calls == null) {
+                throw new IllegalStateException("sync failure");
+            }
+            if (latch != null) {
+                latch.countDown();
+                try {
+                    assertTrue(latch.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            calls.add(name + "@" + group.getName());
+        }
+
+        @Override
+        public String getSyncPolicy(Group group) {
+            return "cluster";
+        }
+
+    }
+
+}
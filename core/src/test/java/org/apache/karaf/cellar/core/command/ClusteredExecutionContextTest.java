@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.command;
+
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.Producer;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.apache.karaf.cellar.core.event.Event;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusteredExecutionContextTest {
+
+    private final List<Event> produced = new ArrayList<Event>();
+    private BasicCommandStore commandStore;
+    private ClusteredExecutionContext executionContext;
+    private ResultHandler<Result> resultHandler;
+
+    @Before
+    public void setUp() {
+        commandStore = new BasicCommandStore();
+        executionContext = new ClusteredExecutionContext(new Producer<Event>() {
+            @Override
+            public void produce(Event event) {
+                produced.add(event);
+            }
+
+            @Override
+            public Switch getSwitch() {
+                return null;
+            }
+        }, commandStore);
+        resultHandler = new ResultHandler<Result>();
+        resultHandler.setCommandStore(commandStore);
+    }
+
+    @Test
+    public void testExecuteAsyncCompletesWhenAllNodesReplied() throws Exception {
+        TestNode node1 = new TestNode("node1");
+        TestNode node2 = new TestNode("node2");
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(destination(node1, node2));
+        command.setTimeout(10000);
+
+        final List<Node> notified = new ArrayList<Node>();
+        CompletableFuture<Map<Node, Result>> future = executionContext.executeAsync(command, new ResultListener<Result>() {
+            @Override
+            public void onResult(Node node, Result result) {
+                notified.add(node);
+            }
+        });
+        assertEquals(1, produced.size());
+        assertFalse(future.isDone());
+
+        resultHandler.handle(result("command", node1));
+        assertFalse(future.isDone());
+        assertEquals(1, notified.size());
+
+        resultHandler.handle(result("command", node2));
+        Map<Node, Result> results = future.get(1, TimeUnit.SECONDS);
+        assertEquals(2, results.size());
+        assertEquals(2, notified.size());
+        assertTrue(commandStore.getPending().isEmpty());
+        assertEquals(1, commandStore.getCompletedCount());
+        assertEquals(0, commandStore.getExpiredCount());
+        assertTrue(command.getScheduledTimeout().isCancelled());
+    }
+
+    @Test
+    public void testExecuteAsyncCompletesWithPartialResultsOnTimeout() throws Exception {
+        TestNode node1 = new TestNode("node1");
+        TestNode node2 = new TestNode("node2");
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(destination(node1, node2));
+        command.setTimeout(100);
+
+        CompletableFuture<Map<Node, Result>> future = executionContext.executeAsync(command);
+        resultHandler.handle(result("command", node1));
+
+        Map<Node, Result> results = future.get(5, TimeUnit.SECONDS);
+        assertEquals(1, results.size());
+        assertTrue(results.containsKey(node1));
+        assertTrue(commandStore.getPending().isEmpty());
+        assertEquals(1, commandStore.getExpiredCount());
+    }
+
+    @Test
+    public void testExecuteReturnsPartialResultsOnTimeout() throws Exception {
+        TestNode node1 = new TestNode("node1");
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(destination(node1, new TestNode("node2")));
+        command.setTimeout(100);
+
+        executionContext.executeAsync(command);
+        resultHandler.handle(result("command", node1));
+        assertEquals(1, commandStore.getPendingCount());
+
+        Map<Node, Result> results = command.getResult();
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void testExecuteAsyncCompletesWhenTimerStops() throws Exception {
+        TimeoutWheel timeoutWheel = new TimeoutWheel(TimeoutWheel.DEFAULT_TICK_DURATION, TimeoutWheel.DEFAULT_WHEEL_SIZE);
+        executionContext.setTimeoutWheel(timeoutWheel);
+        TestNode node1 = new TestNode("node1");
+        Command<Result> command = new Command<Result>("command");
+        command.setDestination(destination(node1, new TestNode("node2")));
+        command.setTimeout(60000);
+
+        CompletableFuture<Map<Node, Result>> future = executionContext.executeAsync(command);
+        resultHandler.handle(result("command", node1));
+        timeoutWheel.stop();
+
+        assertTrue(future.isDone());
+        assertEquals(1, future.get().size());
+        assertEquals(0, timeoutWheel.getPendingCount());
+        assertTrue(commandStore.getPending().isEmpty());
+    }
+
+    private Set<Node> destination(Node... nodes) {
+        Set<Node> destination = new HashSet<Node>();
+        for (Node node : nodes) {
+            destination.add(node);
+        }
+        return destination;
+    }
+
+    private Result result(String id, Node node) {
+        Result result = new Result(id);
+        result.setSourceNode(node);
+        return result;
+    }
+
+    private static class TestNode implements Node {
+
+        private final String id;
+
+        TestNode(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getHost() {
+            return id;
+        }
+
+        @Override
+        public int getPort() {
+            return 0;
+        }
+
+        @Override
+        public String getAlias() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestNode && ((TestNode) o).id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventBatcherTest {
+
+    private final List<Event> published = new ArrayList<Event>();
+
+    private final EventBatcher.Publisher publisher = new EventBatcher.Publisher() {
+        @Override
+        public synchronized void publish(Event event) {
+            published.add(event);
+        }
+    };
+
+    @Test
+    public void testBatchIsSentWhenFull() {
+        EventBatcher batcher = new EventBatcher(publisher, 3, 60000);
+        batcher.add(new Event("a"));
+        batcher.add(new Event("b"));
+        assertEquals(0, published.size());
+        batcher.add(new Event("c"));
+
+        assertEquals(1, published.size());
+        assertTrue(published.get(0) instanceof EventBatch);
+        assertEquals(3, ((EventBatch) published.get(0)).getEvents().size());
+        batcher.destroy();
+    }
+
+    @Test
+    public void testSupersededEventsAreCoalesced() {
+        EventBatcher batcher = new EventBatcher(publisher, 10, 60000);
+        batcher.add(new StateEvent("a", 1));
+        batcher.add(new StateEvent("b", 1));
+        batcher.add(new StateEvent("a", 2));
+        batcher.flush();
+
+        List<Event> events = ((EventBatch) published.get(0)).getEvents();
+        assertEquals(2, events.size());
+        assertEquals("a", events.get(0).getId());
+        assertEquals(2, ((StateEvent) events.get(0)).state);
+        assertEquals(1, batcher.getCoalescedCount());
+        batcher.destroy();
+    }
+
+    @Test
+    public void testPendingEventsAreSentAfterDelay() throws Exception {
+        EventBatcher batcher = new EventBatcher(publisher, 10, 10);
+        batcher.add(new Event("a"));
+        for (int i = 0; i < 100 && published.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, published.size());
+        assertEquals("a", published.get(0).getId());
+        batcher.destroy();
+    }
+
+    @Test
+    public void testFlushAndPublishKeepsTheOrder() {
+        EventBatcher batcher = new EventBatcher(publisher, 10, 60000);
+        batcher.add(new Event("a"));
+        batcher.add(new Event("b"));
+        batcher.flushAndPublish(new Event("c"));
+
+        assertEquals(2, published.size());
+        assertEquals(2, ((EventBatch) published.get(0)).getEvents().size());
+        assertEquals("c", published.get(1).getId());
+        batcher.destroy();
+    }
+
+    @Test
+    public void testEventsAddedAfterDestroyArePublished() {
+        EventBatcher batcher = new EventBatcher(publisher, 10, 60000);
+        batcher.add(new Event("a"));
+        batcher.destroy();
+        assertEquals(1, published.size());
+
+        batcher.add(new Event("b"));
+
+        assertEquals(2, published.size());
+        assertEquals("b", published.get(1).getId());
+    }
+
+    private static class StateEvent extends Event implements Supersedable {
+
+        private final int state;
+
+        StateEvent(String id, int state) {
+            super(id);
+            this.state = state;
+        }
+
+        @Override
+        public boolean supersedes(Event previous) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.event;
+
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.control.BasicSwitch;
+import org.apache.karaf.cellar.core.control.Switch;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventHandlerRegistryDispatcherTest {
+
+    private EventHandlerRegistryDispatcher<Event> dispatcher;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.destroy();
+        }
+    }
+
+    @Test
+    public void testEventsForSameResourceAreHandledInOrder() throws Exception {
+        final List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(100);
+        dispatcher = createDispatcher(4, 1000, OverflowPolicy.BLOCK, new TestEventHandler() {
+            @Override
+            public void handle(Event event) {
+                handled.add(((SequencedEvent) event).sequence);
+                latch.countDown();
+            }
+        });
+
+        Group group = new Group("default");
+        for (int i = 0; i < 100; i++) {
+            SequencedEvent event = new SequencedEvent("my.bundle/1.0.0", i);
+            event.setSourceGroup(group);
+            dispatcher.dispatch(event);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), handled.get(i));
+        }
+    }
+
+    @Test
+    public void testDropOverflowPolicy() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch handled = new CountDownLatch(2);
+        dispatcher = createDispatcher(1, 1, OverflowPolicy.DROP, new TestEventHandler() {
+            @Override
+            public void handle(Event event) {
+                started.countDown();
+                try {
+                    blocker.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                handled.countDown();
+            }
+        });
+
+        // the first event is handled (and blocks the lane), the second one is queued, the others are dropped
+        dispatcher.dispatch(new SequencedEvent("resource", 0));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 5; i++) {
+            dispatcher.dispatch(new SequencedEvent("resource", i));
+        }
+        assertEquals(3, dispatcher.getDroppedEvents());
+        blocker.countDown();
+
+        assertTrue(handled.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCallerRunsKeepsTheResourceOrder() throws Exception {
+        final List<Integer> handled = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        dispatcher = createDispatcher(1, 1, OverflowPolicy.CALLER_RUNS, new TestEventHandler() {
+            @Override
+            public void handle(Event event) {
+                started.countDown();
+                try {
+                    blocker.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                handled.add(((SequencedEvent) event).sequence);
+            }
+        });
+
+        dispatcher.dispatch(new SequencedEvent("resource", 0));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(new SequencedEvent("resource", 1));
+        // the lane queue is full, the consumer waits for its turn to handle the event
+        final CountDownLatch callerDone = new CountDownLatch(1);
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatcher.dispatch(new SequencedEvent("resource", 2));
+                callerDone.countDown();
+            }
+        });
+        caller.start();
+        assertFalse(callerDone.await(200, TimeUnit.MILLISECONDS));
+        blocker.countDown();
+
+        assertTrue(callerDone.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2), handled);
+    }
+
+    @Test
+    public void testPriorityEventIsNotQueuedBehindLane() throws Exception {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch priorityHandled = new CountDownLatch(1);
+        dispatcher = createDispatcher(1, 10, OverflowPolicy.BLOCK, new TestEventHandler() {
+            @Override
+            public void handle(Event event) {
+                try {
+                    blocker.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        });
+        ((EventHandlerServiceRegistry<Event>) dispatcher.getHandlerRegistry()).bind(new TestEventHandler() {
+            @Override
+            public Class getType() {
+                return PrioritySequencedEvent.class;
+            }
+
+            @Override
+            public void handle(Event event) {
+                priorityHandled.countDown();
+            }
+        });
+
+        dispatcher.dispatch(new SequencedEvent("resource", 0));
+        dispatcher.dispatch(new SequencedEvent("resource", 1));
+        dispatcher.dispatch(new PrioritySequencedEvent("control", 2));
+
+        assertTrue(priorityHandled.await(5, TimeUnit.SECONDS));
+        blocker.countDown();
+    }
+
+    @Test
+    public void testEventIsParkedUntilHandlerIsBound() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+        dispatcher = new EventHandlerRegistryDispatcher<Event>();
+        dispatcher.setHandlerRegistry(registry);
+        dispatcher.setLanes(1);
+        dispatcher.init();
+
+        dispatcher.dispatch(new SequencedEvent("resource", 0));
+        ParkedEventStore<Event> parkedEventStore = registry.getParkedEventStore();
+        for (int i = 0; i < 100 && parkedEventStore.getParkedCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, parkedEventStore.getParkedCount());
+
+        registry.bind(new TestEventHandler() {
+            @Override
+            public void handle(Event event) {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, parkedEventStore.getParkedCount());
+        assertEquals(1, parkedEventStore.getReleasedCount());
+        parkedEventStore.destroy();
+    }
+
+    @Test
+    public void testBindDoesNotWaitForAFullLane() throws Exception {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final AtomicBoolean unblocked = new AtomicBoolean();
+        final CountDownLatch parkedHandled = new CountDownLatch(1);
+        dispatcher = createDispatcher(1, 1, OverflowPolicy.BLOCK, new TestEventHandler() {
+            @Override
+            public void handle(Event event) {
+                try {
+                    blocker.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                unblocked.set(true);
+            }
+        });
+        EventHandlerServiceRegistry<Event> registry = (EventHandlerServiceRegistry<Event>) dispatcher.getHandlerRegistry();
+        ParkedEventStore<Event> parkedEventStore = registry.getParkedEventStore();
+
+        dispatcher.dispatch(new OtherEvent("resource"));
+        for (int i = 0; i < 100 && parkedEventStore.getParkedCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, parkedEventStore.getParkedCount());
+        // the first event blocks the lane, the second one fills its queue
+        dispatcher.dispatch(new SequencedEvent("resource", 0));
+        dispatcher.dispatch(new SequencedEvent("resource", 1));
+
+        registry.bind(new TestEventHandler() {
+            @Override
+            public Class getType() {
+                return OtherEvent.class;
+            }
+
+            @Override
+            public void handle(Event event) {
+                parkedHandled.countDown();
+            }
+        });
+
+        // the parked event waits for the lane in the parking area thread, not in the binding thread
+        assertFalse(unblocked.get());
+        blocker.countDown();
+        assertTrue(parkedHandled.await(10, TimeUnit.SECONDS));
+        parkedEventStore.destroy();
+    }
+
+    private EventHandlerRegistryDispatcher<Event> createDispatcher(int lanes, int capacity, OverflowPolicy policy, EventHandler handler) {
+        EventHandlerServiceRegistry<Event> registry = new EventHandlerServiceRegistry<Event>();
+        registry.bind(handler);
+        EventHandlerRegistryDispatcher<Event> dispatcher = new EventHandlerRegistryDispatcher<Event>();
+        dispatcher.setHandlerRegistry(registry);
+        dispatcher.setLanes(lanes);
+        dispatcher.setQueueCapacity(capacity);
+        dispatcher.setOverflowPolicy(policy);
+        dispatcher.init();
+        return dispatcher;
+    }
+
+    private static class SequencedEvent extends Event {
+
+        private final int sequence;
+
+        SequencedEvent(String id, int sequence) {
+            super(id);
+            this.sequence = sequence;
+        }
+
+    }
+
+    private static class OtherEvent extends Event {
+
+        OtherEvent(String id) {
+            super(id);
+        }
+
+    }
+
+    private static class PrioritySequencedEvent extends SequencedEvent implements PriorityEvent {
+
+        PrioritySequencedEvent(String id, int sequence) {
+            super(id, sequence);
+        }
+
+    }
+
+    private abstract static class TestEventHandler implements EventHandler<Event> {
+
+        private final Switch handlerSwitch = new BasicSwitch("test");
+
+        @Override
+        public Class getType() {
+            return SequencedEvent.class;
+        }
+
+        @Override
+        public Switch getSwitch() {
+            return handlerSwitch;
+        }
+
+    }
+
+}
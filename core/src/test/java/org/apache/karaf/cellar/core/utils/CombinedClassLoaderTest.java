@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.core.utils;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleWiring;
+
+import java.util.Collections;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CombinedClassLoaderTest {
+
+    @Test
+    public void testClassIsLoadedFromPackageExporter() throws Exception {
+        Bundle exporter = createBundle(1, "org.example.api");
+        EasyMock.<Class<?>>expect(exporter.loadClass("org.example.api.Event")).andReturn(String.class).times(2);
+        // the other bundle doesn't export the package, it's not asked for the class
+        Bundle other = createBundle(2, "org.example.other");
+        replay(exporter, other);
+
+        CombinedClassLoader classLoader = new CombinedClassLoader();
+        classLoader.addBundle(other);
+        classLoader.addBundle(exporter);
+
+        assertEquals(String.class, classLoader.findClass("org.example.api.Event"));
+        assertEquals(String.class, classLoader.findClass("org.example.api.Event"));
+        verify(exporter, other);
+    }
+
+    @Test
+    public void testMissingClassIsCachedUntilBundlesChange() throws Exception {
+        Bundle bundle = createBundle(1, "org.example.api");
+        expect(bundle.loadClass("org.example.Missing")).andThrow(new ClassNotFoundException()).times(2);
+        replay(bundle);
+        Bundle added = createBundle(2, "org.example.other");
+        expect(added.loadClass("org.example.Missing")).andThrow(new ClassNotFoundException()).once();
+        replay(added);
+
+        CombinedClassLoader classLoader = new CombinedClassLoader();
+        classLoader.addBundle(bundle);
+        assertClassNotFound(classLoader, "org.example.Missing");
+        // the miss is cached, the bundle is not asked again
+        assertClassNotFound(classLoader, "org.example.Missing");
+
+        classLoader.addBundle(added);
+        assertClassNotFound(classLoader, "org.example.Missing");
+        verify(bundle, added);
+    }
+
+    private void assertClassNotFound(CombinedClassLoader classLoader, String name) {
+        try {
+            classLoader.findClass(name);
+            fail("ClassNotFoundException expected for " + name);
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+    }
+
+    private Bundle createBundle(long id, String exportedPackage) {
+        BundleCapability capability = createNiceMock(BundleCapability.class);
+        expect(capability.getAttributes()).andReturn(Collections.<String, Object>singletonMap(PackageNamespace.PACKAGE_NAMESPACE, exportedPackage)).anyTimes();
+        BundleWiring wiring = createNiceMock(BundleWiring.class);
+        expect(wiring.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE)).andReturn(Collections.singletonList(capability)).anyTimes();
+        replay(capability, wiring);
+
+        Bundle bundle = createMock(Bundle.class);
+        expect(bundle.getBundleId()).andReturn(id).anyTimes();
+        expect(bundle.getState()).andReturn(Bundle.ACTIVE).anyTimes();
+        expect(bundle.adapt(BundleWiring.class)).andReturn(wiring).anyTimes();
+        return bundle;
+    }
+
+}
@@ -13,12 +13,16 @@
  */
 package org.apache.karaf.cellar.dosgi;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.MultiNode;
 import org.apache.karaf.cellar.core.Node;
 import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
 
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -29,12 +33,15 @@ import java.util.Set;
 /**
  * Description of an endpoint.
  */
-public class EndpointDescription implements MultiNode {
+public class EndpointDescription implements MultiNode, CompactSerializable {
 
-    private final String id;
+    private String id;
     private final Set<Node> nodes = new LinkedHashSet<Node>();
     private final Map<String, Object> properties = new HashMap<String, Object>();
 
+    public EndpointDescription() {
+    }
+
     /**
      * Constructor
      *
@@ -47,7 +54,6 @@ public class EndpointDescription implements MultiNode {
         properties.put(org.osgi.framework.Constants.OBJECTCLASS,getServiceClass());
     }
 
-
     /**
      * Tests the properties of this <code>EndpointDescription</code> against
      * the given filter using a case insensitive match.
@@ -137,4 +143,27 @@ public class EndpointDescription implements MultiNode {
         return id != null ? id.hashCode() : 0;
     }
 
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        out.writeUTF(id);
+        out.writeNodes(nodes);
+        out.writeInt(properties.size());
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        id = in.readUTF();
+        nodes.clear();
+        setNodes(in.readNodes());
+        properties.clear();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            properties.put(in.readUTF(), in.readObject());
+        }
+    }
+
 }
@@ -13,20 +13,27 @@
  */
 package org.apache.karaf.cellar.dosgi;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.command.Command;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
  * Cluster remote service call event.
  */
-public class RemoteServiceCall extends Command<RemoteServiceResult> {
+public class RemoteServiceCall extends Command<RemoteServiceResult> implements CompactSerializable {
 
     private String endpointId;
     private String method;
     private String serviceClass;
     private List<Object> arguments;
 
+    public RemoteServiceCall() {
+    }
+
     public RemoteServiceCall(String id) {
         super(id);
     }
@@ -63,4 +70,22 @@ public class RemoteServiceCall extends Command<RemoteServiceResult> {
         this.endpointId = endpointId;
     }
 
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeUTF(endpointId);
+        out.writeUTF(method);
+        out.writeUTF(serviceClass);
+        out.writeObject(arguments);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        endpointId = in.readUTF();
+        method = in.readUTF();
+        serviceClass = in.readUTF();
+        arguments = in.readObject();
+    }
+
 }
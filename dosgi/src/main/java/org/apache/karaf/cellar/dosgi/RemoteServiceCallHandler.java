@@ -26,7 +26,6 @@ import org.apache.karaf.cellar.core.exception.RemoteServiceInvocationException;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
-import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -172,14 +171,10 @@ public class RemoteServiceCallHandler extends CellarSupport implements EventHand
     public Switch getSwitch() {
         // load the switch status from the config
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.HANDLER + "." + this.getClass().getName()));
-                if (status) {
-                    dosgiSwitch.turnOn();
-                } else {
-                    dosgiSwitch.turnOff();
-                }
+            if (nodeConfiguration.getBoolean(Configurations.HANDLER + "." + this.getClass().getName(), dosgiSwitch.getStatus().getValue())) {
+                dosgiSwitch.turnOn();
+            } else {
+                dosgiSwitch.turnOff();
             }
         } catch (Exception e) {
             // ignore
@@ -14,6 +14,7 @@
 package org.apache.karaf.cellar.dosgi.internal.osgi;
 
 import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.command.CommandStore;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
@@ -42,7 +43,8 @@ import java.util.Hashtable;
                 @RequireService(ClusterManager.class),
                 @RequireService(EventTransportFactory.class),
                 @RequireService(CommandStore.class),
-                @RequireService(ConfigurationAdmin.class)
+                @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class)
         }
 )
 public class Activator extends BaseActivator {
@@ -69,6 +71,9 @@ public class Activator extends BaseActivator {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
 
         LOGGER.debug("CELLAR DOSGI: init remote service call handler");
         RemoteServiceCallHandler remoteServiceCallHandler = new RemoteServiceCallHandler();
@@ -76,6 +81,7 @@ public class Activator extends BaseActivator {
         remoteServiceCallHandler.setClusterManager(clusterManager);
         remoteServiceCallHandler.setBundleContext(bundleContext);
         remoteServiceCallHandler.setConfigurationAdmin(configurationAdmin);
+        remoteServiceCallHandler.setNodeConfiguration(nodeConfiguration);
         Hashtable props = new Hashtable();
         props.put("managed", "true");
         register(EventHandler.class, remoteServiceCallHandler, props);
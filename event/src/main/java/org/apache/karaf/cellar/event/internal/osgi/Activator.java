@@ -15,6 +15,7 @@ package org.apache.karaf.cellar.event.internal.osgi;
 
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.event.ClusterEventHandler;
@@ -39,6 +40,7 @@ import java.util.Hashtable;
                 @RequireService(ClusterManager.class),
                 @RequireService(GroupManager.class),
                 @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class),
                 @RequireService(EventAdmin.class),
                 @RequireService(EventProducer.class)
         }
@@ -62,6 +64,9 @@ public class Activator extends BaseActivator {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
         EventAdmin eventAdmin = getTrackedService(EventAdmin.class);
         if (eventAdmin == null)
             return;
@@ -72,6 +77,7 @@ public class Activator extends BaseActivator {
         LOGGER.debug("CELLAR EVENT: init event handler");
         clusterEventHandler = new ClusterEventHandler();
         clusterEventHandler.setConfigurationAdmin(configurationAdmin);
+        clusterEventHandler.setNodeConfiguration(nodeConfiguration);
         clusterEventHandler.setGroupManager(groupManager);
         clusterEventHandler.setClusterManager(clusterManager);
         clusterEventHandler.setEventAdmin(eventAdmin);
@@ -85,6 +91,7 @@ public class Activator extends BaseActivator {
         localEventListener.setClusterManager(clusterManager);
         localEventListener.setGroupManager(groupManager);
         localEventListener.setConfigurationAdmin(configurationAdmin);
+        localEventListener.setNodeConfiguration(nodeConfiguration);
         localEventListener.setEventProducer(eventProducer);
         localEventListener.init();
         props = new Hashtable();
@@ -13,14 +13,20 @@
  */
 package org.apache.karaf.cellar.features;
 
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.Supersedable;
 import org.apache.karaf.features.FeatureEvent.EventType;
 
+import java.io.IOException;
+
 /**
  * Cluster features event.
  */
-public class ClusterFeaturesEvent extends Event {
+public class ClusterFeaturesEvent extends Event implements CompactSerializable, Supersedable {
 
     private static final String separator = "/";
 
@@ -33,6 +39,9 @@ public class ClusterFeaturesEvent extends Event {
     private EventType type;
     private Node local;
 
+    public ClusterFeaturesEvent() {
+    }
+
     public ClusterFeaturesEvent(String name, String version, EventType type) {
         super(name + separator + version);
         this.name = name;
@@ -90,4 +99,40 @@ public class ClusterFeaturesEvent extends Event {
     public void setLocal(Node local) {
         this.local = local;
     }
+
+    /**
+     * The latest install or uninstall of a feature replaces the previous ones.
+     */
+    @Override
+    public boolean supersedes(Event previous) {
+        return previous instanceof ClusterFeaturesEvent;
+    }
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        writeEventData(out);
+        out.writeUTF(name);
+        out.writeUTF(version);
+        out.writeObject(noRefresh);
+        out.writeObject(noStart);
+        out.writeObject(noManage);
+        out.writeObject(upgrade);
+        out.writeUTF((type != null) ? type.name() : null);
+        out.writeNode(local);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        readEventData(in);
+        name = in.readUTF();
+        version = in.readUTF();
+        noRefresh = in.readObject();
+        noStart = in.readObject();
+        noManage = in.readObject();
+        upgrade = in.readObject();
+        String typeName = in.readUTF();
+        type = (typeName != null) ? EventType.valueOf(typeName) : null;
+        local = in.readNode();
+    }
+
 }
@@ -13,12 +13,16 @@
  */
 package org.apache.karaf.cellar.features;
 
-import java.io.Serializable;
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
+
+import java.io.IOException;
 
 /**
  * Feature info to store in the cluster.
  */
-public class FeatureState implements Serializable {
+public class FeatureState implements CompactSerializable {
 
     private String name;
     private String version;
@@ -50,4 +54,18 @@ public class FeatureState implements Serializable {
         this.installed = installed;
     }
 
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        out.writeUTF(name);
+        out.writeUTF(version);
+        out.writeObject(installed);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        name = in.readUTF();
+        version = in.readUTF();
+        installed = in.readObject();
+    }
+
 }
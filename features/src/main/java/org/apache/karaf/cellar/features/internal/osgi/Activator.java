@@ -15,6 +15,7 @@ package org.apache.karaf.cellar.features.internal.osgi;
 
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventProducer;
@@ -49,6 +50,7 @@ import java.util.Hashtable;
                 @RequireService(GroupManager.class),
                 @RequireService(EventProducer.class),
                 @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class),
                 @RequireService(FeaturesService.class)
         }
 )
@@ -68,6 +70,9 @@ public class Activator extends BaseActivator {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
         ClusterManager clusterManager = getTrackedService(ClusterManager.class);
         if (clusterManager == null)
             return;
@@ -84,6 +89,7 @@ public class Activator extends BaseActivator {
         LOGGER.debug("CELLAR FEATURE: init repository event handler");
         repositoryEventHandler = new RepositoryEventHandler();
         repositoryEventHandler.setConfigurationAdmin(configurationAdmin);
+        repositoryEventHandler.setNodeConfiguration(nodeConfiguration);
         repositoryEventHandler.setFeaturesService(featuresService);
         repositoryEventHandler.setClusterManager(clusterManager);
         repositoryEventHandler.setGroupManager(groupManager);
@@ -98,6 +104,7 @@ public class Activator extends BaseActivator {
         featuresEventHandler.setClusterManager(clusterManager);
         featuresEventHandler.setGroupManager(groupManager);
         featuresEventHandler.setConfigurationAdmin(configurationAdmin);
+        featuresEventHandler.setNodeConfiguration(nodeConfiguration);
         featuresEventHandler.init(bundleContext);
         register(new Class[]{ EventHandler.class }, featuresEventHandler, props);
 
@@ -107,6 +114,7 @@ public class Activator extends BaseActivator {
         localFeaturesListener.setGroupManager(groupManager);
         localFeaturesListener.setEventProducer(eventProducer);
         localFeaturesListener.setConfigurationAdmin(configurationAdmin);
+        localFeaturesListener.setNodeConfiguration(nodeConfiguration);
         localFeaturesListener.setFeaturesService(featuresService);
         localFeaturesListener.init(bundleContext);
         register(FeaturesListener.class, localFeaturesListener);
@@ -117,6 +125,7 @@ public class Activator extends BaseActivator {
         featuresSynchronizer.setGroupManager(groupManager);
         featuresSynchronizer.setEventProducer(eventProducer);
         featuresSynchronizer.setConfigurationAdmin(configurationAdmin);
+        featuresSynchronizer.setNodeConfiguration(nodeConfiguration);
         featuresSynchronizer.setFeaturesService(featuresService);
         featuresSynchronizer.init(bundleContext);
         props = new Hashtable();
@@ -16,22 +16,21 @@ package org.apache.karaf.cellar.hazelcast;
 import com.hazelcast.core.*;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.GroupManager;
-import org.apache.karaf.cellar.core.Synchronizer;
+import org.apache.karaf.cellar.core.SyncCoordinator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
 import java.util.Set;
 
 /**
  * Cellar membership listener.
  */
-public class CellarMembershipListener extends HazelcastInstanceAware implements MembershipListener {
+public class CellarMembershipListener extends HazelcastInstanceAware implements MembershipListener, EventLossListener {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(CellarMembershipListener.class);
 
     private GroupManager groupManager;
-    private List<? extends Synchronizer> synchronizers;
+    private SyncCoordinator syncCoordinator;
 
     public CellarMembershipListener(HazelcastInstance instance) {
         this.instance = instance;
@@ -44,14 +43,13 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
         try {
             Member local = instance.getCluster().getLocalMember();
 
-            if (local.equals(member) && synchronizers != null && !synchronizers.isEmpty()) {
+            if (local.equals(member)) {
+                synchronizeLocalGroups();
+            } else if (syncCoordinator != null) {
+                // the sync leader of a cluster group pushes its state for the joining node, the joining node pulls
                 Set<Group> groups = groupManager.listLocalGroups();
                 if (groups != null && !groups.isEmpty()) {
-                    for (Group group : groups) {
-                        for (Synchronizer synchronizer : synchronizers) {
-                            synchronizer.sync(group);
-                        }
-                    }
+                    syncCoordinator.syncAsLeader(groups);
                 }
             }
         } catch (Exception e) {
@@ -59,6 +57,32 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
         }
     }
 
+    /**
+     * The missed cluster events can't be replayed, so the local groups are fully synchronized.
+     *
+     * @param topicName the topic name.
+     * @param lostEvents the number of lost cluster events.
+     */
+    @Override
+    public void eventsLost(String topicName, long lostEvents) {
+        LOGGER.warn("CELLAR HAZELCAST: {} cluster events lost on {}, synchronizing the local cluster groups", lostEvents, topicName);
+        try {
+            synchronizeLocalGroups();
+        } catch (Exception e) {
+            LOGGER.warn("Error while synchronizing the local cluster groups", e);
+        }
+    }
+
+    private void synchronizeLocalGroups() {
+        if (syncCoordinator != null) {
+            // the cluster groups are synchronized in parallel, outside of the Hazelcast event thread
+            Set<Group> groups = groupManager.listLocalGroups();
+            if (groups != null && !groups.isEmpty()) {
+                syncCoordinator.sync(groups);
+            }
+        }
+    }
+
     @Override
     public void memberRemoved(MembershipEvent membershipEvent) {
         // nothing to do
@@ -77,12 +101,12 @@ public class CellarMembershipListener extends HazelcastInstanceAware implements
         this.groupManager = groupManager;
     }
 
-    public List<? extends Synchronizer> getSynchronizers() {
-        return synchronizers;
+    public SyncCoordinator getSyncCoordinator() {
+        return syncCoordinator;
     }
 
-    public void setSynchronizers(List<? extends Synchronizer> synchronizers) {
-        this.synchronizers = synchronizers;
+    public void setSyncCoordinator(SyncCoordinator syncCoordinator) {
+        this.syncCoordinator = syncCoordinator;
     }
 
 }
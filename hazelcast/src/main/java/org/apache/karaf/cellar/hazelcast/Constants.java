@@ -22,5 +22,30 @@ public class Constants {
     public static final String CONFIG = "config";
     public static final String TOPIC = "org.apache.karaf.cellar.event.topic";
     public static final String QUEUE = "org.apache.karaf.cellar.event.queue";
+    public static final String NODE = "node";
+    public static final String CONTROL = "control";
+    // member attribute set by the nodes listening on their own topics
+    public static final String NODE_TOPICS_ATTRIBUTE = "node.topics";
+
+    /**
+     * Get the name of the topic used for the control events (control commands and results).
+     *
+     * @param topic the broadcast topic name.
+     * @return the control topic name.
+     */
+    public static String getControlTopicName(String topic) {
+        return topic + SEPARATOR + CONTROL;
+    }
+
+    /**
+     * Get the name of the topic used to send the events to a single node.
+     *
+     * @param topic the broadcast topic name.
+     * @param nodeId the destination node ID.
+     * @return the node topic name.
+     */
+    public static String getNodeTopicName(String topic, String nodeId) {
+        return topic + SEPARATOR + NODE + SEPARATOR + nodeId;
+    }
 
 }
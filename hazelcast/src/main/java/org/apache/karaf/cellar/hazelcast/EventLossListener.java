@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+/**
+ * Listener notified when a consumer missed cluster events which can't be replayed anymore.
+ */
+public interface EventLossListener {
+
+    /**
+     * Called when cluster events have been lost on a topic.
+     *
+     * @param topicName the topic name.
+     * @param lostEvents the number of lost cluster events.
+     */
+    public void eventsLost(String topicName, long lostEvents);
+
+}
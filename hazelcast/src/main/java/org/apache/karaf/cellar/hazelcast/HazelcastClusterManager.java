@@ -13,29 +13,36 @@
  */
 package org.apache.karaf.cellar.hazelcast;
 
-import com.hazelcast.core.Cluster;
+import com.hazelcast.core.IMap;
 import com.hazelcast.core.IdGenerator;
-import com.hazelcast.core.Member;
+import com.hazelcast.map.EntryProcessor;
+import org.apache.karaf.cellar.core.BulkMapRemoval;
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.Group;
 import org.apache.karaf.cellar.core.Node;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Cluster manager implementation powered by Hazelcast.
  */
-public class HazelcastClusterManager extends HazelcastInstanceAware implements ClusterManager {
+public class HazelcastClusterManager extends HazelcastInstanceAware implements ClusterManager, BulkMapRemoval {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(HazelcastClusterManager.class);
 
     private static final String GENERATOR_ID = "org.apache.karaf.cellar.idgen";
 
-    private IdGenerator idgenerator;
+    private volatile String idPrefix;
+    private final AtomicLong idSequence = new AtomicLong();
 
     private ConfigurationAdmin configurationAdmin;
     private CombinedClassLoader combinedClassLoader;
@@ -51,6 +58,36 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
         return instance.getMap(mapName);
     }
 
+    /**
+     * Remove entries from a Map in Hazelcast. The entries are removed by the partitions owners, with one
+     * operation per partition instead of one remote call per key.
+     *
+     * @param mapName the Map name.
+     * @param keys the keys of the entries to remove.
+     */
+    @Override
+    public void removeAll(String mapName, Set keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+        removeAll(instance.getMap(mapName), keys, new RemoveEntryProcessor());
+    }
+
+    /**
+     * Remove entries with an entry processor, or one by one if a partition owner can't execute the processor
+     * (for instance a node running an older Cellar version, without the processor class).
+     */
+    void removeAll(IMap map, Set keys, EntryProcessor processor) {
+        try {
+            map.executeOnKeys(keys, processor);
+        } catch (RuntimeException e) {
+            LOGGER.debug("CELLAR HAZELCAST: bulk removal failed on map {}, removing the entries one by one", map.getName(), e);
+            for (Object key : keys) {
+                map.remove(key);
+            }
+        }
+    }
+
     /**
      * Get a List in Hazelcast.
      *
@@ -80,19 +117,7 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
      */
     @Override
     public Set<Node> listNodes() {
-        Set<Node> nodes = new HashSet<Node>();
-
-        Cluster cluster = instance.getCluster();
-        if (cluster != null) {
-            Set<Member> members = cluster.getMembers();
-            if (members != null && !members.isEmpty()) {
-                for (Member member : members) {
-                    HazelcastNode node = new HazelcastNode(member);
-                    nodes.add(node);
-                }
-            }
-        }
-        return nodes;
+        return new HashSet<Node>(getIndex().getNodes());
     }
 
     /**
@@ -104,17 +129,11 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
     @Override
     public Set<Node> listNodes(Collection<String> ids) {
         Set<Node> nodes = new HashSet<Node>();
-        if (ids != null && !ids.isEmpty()) {
-            Cluster cluster = instance.getCluster();
-            if (cluster != null) {
-                Set<Member> members = cluster.getMembers();
-                if (members != null && !members.isEmpty()) {
-                    for (Member member : members) {
-                        HazelcastNode node = new HazelcastNode(member);
-                        if (ids.contains(node.getId())) {
-                            nodes.add(node);
-                        }
-                    }
+        if (ids != null) {
+            for (String id : ids) {
+                Node node = getIndex().findNodeById(id);
+                if (node != null) {
+                    nodes.add(node);
                 }
             }
         }
@@ -129,62 +148,17 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
      */
     @Override
     public Node findNodeById(String id) {
-        if (id != null) {
-            Cluster cluster = instance.getCluster();
-            if (cluster != null) {
-                Set<Member> members = cluster.getMembers();
-                if (members != null && !members.isEmpty()) {
-                    for (Member member : members) {
-                        HazelcastNode node = new HazelcastNode(member);
-                        if (id.equals(node.getId())) {
-                            return node;
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        return getIndex().findNodeById(id);
     }
 
     @Override
     public Node findNodeByAlias(String alias) {
-        if (alias != null) {
-            Cluster cluster = instance.getCluster();
-            if (cluster != null) {
-                Set<Member> members = cluster.getMembers();
-                if (members != null && !members.isEmpty()) {
-                    for (Member member : members) {
-                        HazelcastNode node = new HazelcastNode(member);
-                        if (alias.equals(node.getAlias())) {
-                            return node;
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        return getIndex().findNodeByAlias(alias);
     }
 
     @Override
     public Node findNodeByIdOrAlias(String idOrAlias) {
-        if (idOrAlias != null) {
-            Cluster cluster = instance.getCluster();
-            if (cluster != null) {
-                Set<Member> members = cluster.getMembers();
-                if (members != null && !members.isEmpty()) {
-                    for (Member member : members) {
-                        HazelcastNode node = new HazelcastNode(member);
-                        if (idOrAlias.equals(node.getId())) {
-                            return node;
-                        }
-                        if (idOrAlias.equals(node.getAlias())) {
-                            return node;
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        return getIndex().findNodeByIdOrAlias(idOrAlias);
     }
 
     /**
@@ -200,15 +174,26 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
 
     /**
      * Generate an unique ID.
+     * The ID is made of a node prefix, reserved once in the cluster, and of a local sequence, so the generation
+     * doesn't block or access the cluster.
      *
      * @return the generated unique ID.
      */
     @Override
-    public synchronized String generateId() {
-        if (idgenerator == null) {
-            idgenerator = instance.getIdGenerator(GENERATOR_ID);
+    public String generateId() {
+        String prefix = idPrefix;
+        if (prefix == null) {
+            prefix = reserveIdPrefix();
         }
-        return String.valueOf(idgenerator.newId());
+        return prefix + idSequence.incrementAndGet();
+    }
+
+    private synchronized String reserveIdPrefix() {
+        if (idPrefix == null) {
+            IdGenerator idGenerator = instance.getIdGenerator(GENERATOR_ID);
+            idPrefix = idGenerator.newId() + "-";
+        }
+        return idPrefix;
     }
 
     @Override
@@ -216,6 +201,26 @@ public class HazelcastClusterManager extends HazelcastInstanceAware implements C
         // nothing to do
     }
 
+    /**
+     * Get the cluster members index, creating it if it has not been provided.
+     *
+     * @return the cluster members index.
+     */
+    private HazelcastMemberIndex getIndex() {
+        HazelcastMemberIndex index = memberIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (memberIndex == null) {
+                    index = new HazelcastMemberIndex(instance);
+                    index.init();
+                    memberIndex = index;
+                }
+                index = memberIndex;
+            }
+        }
+        return index;
+    }
+
     @Override
     public void stop() {
         if (instance != null && instance.getLifecycleService().isRunning()) {
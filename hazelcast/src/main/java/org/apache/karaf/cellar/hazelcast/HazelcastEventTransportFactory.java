@@ -15,7 +15,9 @@ package org.apache.karaf.cellar.hazelcast;
 
 import com.hazelcast.core.IQueue;
 import com.hazelcast.core.ITopic;
+import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.event.EventProducer;
 import org.apache.karaf.cellar.core.event.EventTransportFactory;
@@ -30,16 +32,20 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
     private Dispatcher dispatcher;
     private CombinedClassLoader combinedClassLoader;
     private ConfigurationAdmin configurationAdmin;
+    private NodeConfiguration nodeConfiguration;
+    private EventLossListener eventLossListener;
 
     @Override
     public EventProducer getEventProducer(String name, Boolean pubsub) {
         if (pubsub) {
-            ITopic topic = instance.getTopic(Constants.TOPIC + Constants.SEPARATOR + name);
+            ITopic topic = getTopic(Constants.TOPIC + Constants.SEPARATOR + name);
             TopicProducer producer = new TopicProducer();
+            producer.setReliable(isReliable());
             producer.setInstance(instance);
             producer.setTopic(topic);
             producer.setNode(getNode());
             producer.setConfigurationAdmin(configurationAdmin);
+            producer.setNodeConfiguration(nodeConfiguration);
             producer.init();
             return producer;
         } else {
@@ -48,6 +54,7 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             producer.setQueue(queue);
             producer.setNode(getNode());
             producer.setConfigurationAdmin(configurationAdmin);
+            producer.setNodeConfiguration(nodeConfiguration);
             producer.init();
             return producer;
         }
@@ -56,13 +63,16 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
     @Override
     public EventConsumer getEventConsumer(String name, Boolean pubsub) {
         if (pubsub) {
-            ITopic topic = instance.getTopic(Constants.TOPIC + Constants.SEPARATOR + name);
+            ITopic topic = getTopic(Constants.TOPIC + Constants.SEPARATOR + name);
             TopicConsumer consumer = new TopicConsumer();
+            consumer.setReliable(isReliable());
+            consumer.setEventLossListener(eventLossListener);
             consumer.setTopic(topic);
             consumer.setInstance(instance);
             consumer.setNode(getNode());
             consumer.setDispatcher(dispatcher);
             consumer.setConfigurationAdmin(configurationAdmin);
+            consumer.setNodeConfiguration(nodeConfiguration);
             consumer.init();
             return consumer;
         } else {
@@ -73,11 +83,33 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
             consumer.setNode(getNode());
             consumer.setDispatcher(dispatcher);
             consumer.setConfigurationAdmin(configurationAdmin);
+            consumer.setNodeConfiguration(nodeConfiguration);
             consumer.init();
             return consumer;
         }
     }
 
+    /**
+     * Check if the cluster events are sent on reliable topics ({@code topic.reliable} node property).
+     *
+     * @return true if the reliable topics are used, false else.
+     */
+    private boolean isReliable() {
+        return nodeConfiguration != null && nodeConfiguration.getBoolean(Configurations.TOPIC_RELIABLE, false);
+    }
+
+    private ITopic getTopic(String name) {
+        return isReliable() ? instance.getReliableTopic(name) : instance.getTopic(name);
+    }
+
+    public EventLossListener getEventLossListener() {
+        return eventLossListener;
+    }
+
+    public void setEventLossListener(EventLossListener eventLossListener) {
+        this.eventLossListener = eventLossListener;
+    }
+
     public Dispatcher getDispatcher() {
         return dispatcher;
     }
@@ -102,4 +134,12 @@ public class HazelcastEventTransportFactory extends HazelcastInstanceAware imple
         this.configurationAdmin = configurationAdmin;
     }
 
+    public NodeConfiguration getNodeConfiguration() {
+        return nodeConfiguration;
+    }
+
+    public void setNodeConfiguration(NodeConfiguration nodeConfiguration) {
+        this.nodeConfiguration = nodeConfiguration;
+    }
+
 }
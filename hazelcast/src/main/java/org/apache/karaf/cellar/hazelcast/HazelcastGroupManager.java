@@ -31,11 +31,21 @@ import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A group manager implementation powered by Hazelcast.
  * The role of this class is to provide means of creating groups, setting nodes to groups etc.
  * Keep in sync the distributed group configuration with the locally persisted.
+ * The cluster groups and the local membership are read from an immutable snapshot, rebuilt only when the
+ * cluster groups membership or the local groups configuration change.
  */
 public class HazelcastGroupManager implements GroupManager, EntryListener<String,Object>, ConfigurationListener {
 
@@ -44,10 +54,16 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
     private static final String HAZELCAST_GROUPS = "org.apache.karaf.cellar.groups";
     private static final String HAZELCAST_GROUPS_CONFIG = "org.apache.karaf.cellar.groups.config";
 
+    public static final long DEFAULT_CONFIGURATION_DELAY = 100;
+
     private Map<String, ServiceRegistration> producerRegistrations = new HashMap<String, ServiceRegistration>();
     private Map<String, ServiceRegistration> consumerRegistrations = new HashMap<String, ServiceRegistration>();
 
-    private Map<String, Object> localConfig = new HashMap<String, Object>();
+    private Map<String, Object> localConfig = new ConcurrentHashMap<String, Object>();
+
+    private final AtomicLong groupsGeneration = new AtomicLong();
+    private volatile GroupsSnapshot groupsSnapshot;
+    private String membershipListenerId;
 
     private Map<String, EventProducer> groupProducers = new HashMap<String, EventProducer>();
     private Map<String, EventConsumer> groupConsumer = new HashMap<String, EventConsumer>();
@@ -55,12 +71,31 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
     private BundleContext bundleContext;
 
     private HazelcastInstance instance;
+    private HazelcastMemberIndex memberIndex;
     private ConfigurationAdmin configurationAdmin;
 
     private EventTransportFactory eventTransportFactory;
     private CombinedClassLoader combinedClassLoader;
+    private SyncCoordinator syncCoordinator;
+
+    // the cluster groups configuration changes are coalesced during the configuration delay
+    private long configurationDelay = DEFAULT_CONFIGURATION_DELAY;
+    private ScheduledExecutorService configurationExecutor;
+    private final Map<String, Object> clusterConfigUpdates = new ConcurrentHashMap<String, Object>();
+    private final AtomicBoolean clusterConfigUpdateScheduled = new AtomicBoolean();
+    private final AtomicBoolean localConfigUpdateScheduled = new AtomicBoolean();
 
     public void init() {
+        if (configurationDelay > 0 && configurationExecutor == null) {
+            configurationExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cellar-groups-config");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
         try {
             // create group stored in configuration admin
             Configuration groupsConfiguration = getConfigurationForGroups();
@@ -70,6 +105,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
             IMap<String,Object> hazelcastGroupsConfig = getClusterGroupsConfig();
 
             hazelcastGroupsConfig.addEntryListener(this, true);
+            membershipListenerId = getClusterGroups().addEntryListener(new MembershipListener(), false);
 
             if (hazelcastGroupsConfig.isEmpty()) {
                 // First one to be here - initialize hazelcast map with local configuration
@@ -106,6 +142,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
         } catch (IOException e) {
             LOGGER.warn("CELLAR HAZELCAST: can't create cluster group from configuration admin", e);
         }
+        invalidateGroups();
     }
 
     private boolean updatePropertiesFromHazelcastMap(Dictionary<String, Object> properties, String key, Object value) {
@@ -132,6 +169,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
                     String newValue = convertSetToString(groups);
                     properties.put(Configurations.GROUPS_KEY, newValue);
                     localConfig.put(Configurations.GROUPS_KEY, newValue);
+                    invalidateGroups();
                     changed = true;
                 }
             } else if (properties.get(entryKey) == null || !properties.get(entryKey).equals(entryValue)) {
@@ -159,6 +197,7 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
                 Object localValue = localConfig.get(key);
                 if (localValue == null || !localValue.equals(value)) {
                     if (key.equals(Configurations.GROUPS_KEY)) {
+                        invalidateGroups();
                         Set<String> removedGroups = convertStringToSet((String) localValue);
                         Set<String> addedGroups = convertStringToSet((String) value);
                         addedGroups.removeAll(removedGroups);
@@ -198,13 +237,22 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
     }
 
     public void destroy() {
+        if (configurationExecutor != null) {
+            configurationExecutor.shutdown();
+            configurationExecutor = null;
+        }
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
             // update the group
             Node local = this.getNode();
 
+            if (membershipListenerId != null) {
+                getClusterGroups().removeEntryListener(membershipListenerId);
+                membershipListenerId = null;
+            }
             getClusterGroups().remove(local);
+            invalidateGroups();
 
             // shutdown the group consumer/producers
             for (Map.Entry<String, EventConsumer> consumerEntry : groupConsumer.entrySet()) {
@@ -220,6 +268,9 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
 
     @Override
     public Node getNode() {
+        if (memberIndex != null && memberIndex.getLocalNode() != null) {
+            return memberIndex.getLocalNode();
+        }
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
@@ -291,133 +342,99 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
 
     @Override
     public Set<Group> listLocalGroups() {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            return listGroups(getNode());
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
-        }
+        return getGroupsSnapshot().localGroups;
     }
 
     @Override
     public boolean isLocalGroup(String groupName) {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            Set<Group> localGroups = this.listLocalGroups();
-            for (Group localGroup : localGroups) {
-                if (localGroup.getName().equals(groupName)) {
-                    return true;
-                }
-            }
-            return false;
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
-        }
+        return getGroupsSnapshot().localGroupNames.contains(groupName);
     }
 
     @Override
     public Set<Group> listAllGroups() {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            return new HashSet<Group>(listGroups().values());
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
-        }
+        return getGroupsSnapshot().allGroups;
     }
 
     @Override
     public Group findGroupByName(String groupName) {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            return listGroups().get(groupName);
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
-        }
+        return getGroupsSnapshot().groups.get(groupName);
     }
 
     @Override
     public Map<String, Group> listGroups() {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Map<String, Group> res = new HashMap<String, Group>();
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            Map<Node, Set<String>> nodes = getClusterGroups();
-
-            Set<String> groups = convertStringToSet((String) localConfig.get(Configurations.GROUPS_KEY));
-            groups.add(Configurations.DEFAULT_GROUP_NAME);
-
-            for (String groupName : groups) {
-                Group group = new Group(groupName);
-                res.put(groupName, group);
-                for (Map.Entry<Node, Set<String>> entry : nodes.entrySet()) {
-                    if (entry.getValue().contains(groupName)) {
-                        group.getNodes().add(entry.getKey());
-                    }
-                }
-            }
-
-            return res;
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
-        }
+        return getGroupsSnapshot().groups;
     }
 
     @Override
     public Set<Group> listGroups(Node node) {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            Set<Group> result = new HashSet<Group>();
-
-            Map<Node, Set<String>> groupMap = getClusterGroups();
-            Set<String> groupNames = groupMap.get(node);
-
-            if (groupNames != null) {
-                Map<String, Group> g = listGroups();
-                g.keySet().retainAll(groupNames);
-                result.addAll(g.values());
+        GroupsSnapshot snapshot = getGroupsSnapshot();
+        if (node != null && node.equals(snapshot.localNode)) {
+            return snapshot.localGroups;
+        }
+        Set<Group> result = new HashSet<Group>();
+        Set<String> groupNames = snapshot.memberships.get(node);
+        if (groupNames != null) {
+            for (String groupName : groupNames) {
+                Group group = snapshot.groups.get(groupName);
+                if (group != null) {
+                    result.add(group);
+                }
             }
-
-            return result;
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
         }
+        return result;
     }
 
     @Override
     public Set<String> listGroupNames() {
-        ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            return listGroupNames(getNode());
-        } finally {
-            Thread.currentThread().setContextClassLoader(originalClassLoader);
-        }
+        return getGroupsSnapshot().localGroupNames;
     }
 
     @Override
     public Set<String> listGroupNames(Node node) {
+        GroupsSnapshot snapshot = getGroupsSnapshot();
+        if (node != null && node.equals(snapshot.localNode)) {
+            return snapshot.localGroupNames;
+        }
         Set<String> names = new HashSet<String>();
+        for (Group group : snapshot.groups.values()) {
+            if (group.getNodes().contains(node)) {
+                names.add(group.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Get the current cluster groups snapshot, rebuilding it if the membership or the configuration changed.
+     *
+     * @return the cluster groups snapshot.
+     */
+    private GroupsSnapshot getGroupsSnapshot() {
+        GroupsSnapshot snapshot = groupsSnapshot;
+        long generation = groupsGeneration.get();
+        if (snapshot != null && snapshot.generation == generation) {
+            return snapshot;
+        }
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            Map<String, Group> groups = listGroups();
-
-            if (groups != null && !groups.isEmpty()) {
-                for (Group group : groups.values()) {
-                    if (group.getNodes().contains(node)) {
-                        names.add(group.getName());
-                    }
-                }
-            }
+            snapshot = new GroupsSnapshot(generation, getNode(), new HashMap<Node, Set<String>>(getClusterGroups()),
+                    convertStringToSet((String) localConfig.get(Configurations.GROUPS_KEY)));
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
         }
-        return names;
+        // don't publish a snapshot built while the membership was changing
+        if (generation == groupsGeneration.get()) {
+            groupsSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Discard the cluster groups snapshot, it will be rebuilt on the next read.
+     */
+    private void invalidateGroups() {
+        groupsGeneration.incrementAndGet();
     }
 
     /**
@@ -461,12 +478,12 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
             }
 
             Node node = getNode();
-            group.getNodes().add(node);
             Map<Node, Set<String>> map = getClusterGroups();
             Set<String> groupNames = (Set<String>) map.get(node);
             groupNames = new HashSet<String>(groupNames);
             groupNames.add(groupName);
             map.put(node, groupNames);
+            invalidateGroups();
 
             // add group to configuration
             try {
@@ -495,19 +512,29 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
             }
 
             // launch the synchronization on the group
-            try {
-                ServiceReference[] serviceReferences = bundleContext.getAllServiceReferences("org.apache.karaf.cellar.core.Synchronizer", null);
-                if (serviceReferences != null && serviceReferences.length > 0) {
-                    for (ServiceReference ref : serviceReferences) {
-                        Synchronizer synchronizer = (Synchronizer) bundleContext.getService(ref);
-                        if (synchronizer != null) {
-                            synchronizer.sync(group);
+            Group syncGroup = findGroupByName(groupName);
+            if (syncGroup == null || !syncGroup.getNodes().contains(node)) {
+                syncGroup = new Group(groupName);
+                syncGroup.getNodes().addAll(group.getNodes());
+                syncGroup.getNodes().add(node);
+            }
+            if (syncCoordinator != null) {
+                syncCoordinator.sync(syncGroup);
+            } else {
+                try {
+                    ServiceReference[] serviceReferences = bundleContext.getAllServiceReferences("org.apache.karaf.cellar.core.Synchronizer", null);
+                    if (serviceReferences != null && serviceReferences.length > 0) {
+                        for (ServiceReference ref : serviceReferences) {
+                            Synchronizer synchronizer = (Synchronizer) bundleContext.getService(ref);
+                            if (synchronizer != null) {
+                                synchronizer.sync(syncGroup);
+                            }
+                            bundleContext.ungetService(ref);
                         }
-                        bundleContext.ungetService(ref);
                     }
+                } catch (InvalidSyntaxException e) {
+                    LOGGER.error("CELLAR HAZELCAST: failed to look for synchronizers", e);
                 }
-            } catch (InvalidSyntaxException e) {
-                LOGGER.error("CELLAR HAZELCAST: failed to look for synchronizers", e);
             }
         } finally {
             Thread.currentThread().setContextClassLoader(originalClassLoader);
@@ -542,9 +569,6 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
         try {
             Thread.currentThread().setContextClassLoader(combinedClassLoader);
             String groupName = group.getName();
-            // remove local node from cluster group
-            group.getNodes().remove(getNode());
-            listGroups().put(groupName, group);
 
             // un-register cluster group consumers
             if (consumerRegistrations != null && !consumerRegistrations.isEmpty()) {
@@ -571,13 +595,14 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
                 consumer.stop();
             }
 
+            // remove local node from cluster group
             Node node = getNode();
-            group.getNodes().add(node);
             Map<Node, Set<String>> map = getClusterGroups();
             Set<String> groupNames = (Set<String>) map.get(node);
             groupNames = new HashSet<String>(groupNames);
             groupNames.remove(groupName);
             map.put(node, groupNames);
+            invalidateGroups();
 
             // remove cluster group from configuration
             try {
@@ -670,12 +695,28 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
      *
      * @param configurationEvent the local configuration event.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void configurationEvent(ConfigurationEvent configurationEvent) {
         if (!Configurations.GROUP.equals(configurationEvent.getPid())) {
             return;
         }
+        if (localConfigUpdateScheduled.compareAndSet(false, true)) {
+            // the changes done meanwhile are sent together
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    localConfigUpdateScheduled.set(false);
+                    pushLocalConfiguration();
+                }
+            });
+        }
+    }
+
+    /**
+     * Send the local cluster groups configuration changes to the cluster.
+     */
+    @SuppressWarnings("unchecked")
+    private void pushLocalConfiguration() {
         try {
             Map<String, Object> hazelcastGroupConfig = getClusterGroupsConfig();
             Configuration conf = getConfigurationForGroups();
@@ -687,11 +728,13 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
                 Object clusterValue = hazelcastGroupConfig.get(key);
                 if (clusterValue == null || !clusterValue.equals(value)) {
                     LOGGER.debug("CELLAR HAZELCAST : sending updates to cluster : " + key + " = " + value);
-                    if (clusterValue != null && value instanceof Map) {
+                    if (clusterValue instanceof Map && value instanceof Map) {
                         @SuppressWarnings("rawtypes")
                         Map<String, Object> newValue = new HashMap((Map) clusterValue);
                         newValue.putAll((Map<? extends String, ?>) value);
-                        hazelcastGroupConfig.put(key, newValue);
+                        if (!newValue.equals(clusterValue)) {
+                            hazelcastGroupConfig.put(key, newValue);
+                        }
                     } else {
                         hazelcastGroupConfig.put(key, value);
                     }
@@ -729,14 +772,50 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
      */
     @Override
     public void entryUpdated(EntryEvent<String,Object> entryEvent) {
+        String key = entryEvent.getKey();
+        Object value = entryEvent.getValue();
+        if (key == null || !(value instanceof Map)) {
+            // only the cluster group configurations are applied locally
+            return;
+        }
+        // the last value of a cluster group configuration contains the previous changes
+        clusterConfigUpdates.put(key, value);
+        if (clusterConfigUpdateScheduled.compareAndSet(false, true)) {
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    clusterConfigUpdateScheduled.set(false);
+                    pullClusterConfiguration();
+                }
+            });
+        }
+    }
+
+    /**
+     * Apply the cluster groups configuration changes received meanwhile to the local configuration, in one update.
+     */
+    private void pullClusterConfiguration() {
+        Map<String, Object> updates = new HashMap<String, Object>();
+        for (Map.Entry<String, Object> entry : clusterConfigUpdates.entrySet()) {
+            if (clusterConfigUpdates.remove(entry.getKey(), entry.getValue())) {
+                updates.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
         try {
             Configuration conf = getConfigurationForGroups();
             Dictionary<String, Object> properties = conf.getProperties();
-            String key = entryEvent.getKey();
-            Object value = entryEvent.getValue();
-
-            if (updatePropertiesFromHazelcastMap(properties, key, value)) {
-                LOGGER.debug("CELLAR HAZELCAST: cluster group configuration has been updated, updating local configuration: {} = {}", key, value);
+            if (properties == null) {
+                properties = new Hashtable<String, Object>();
+            }
+            boolean updated = false;
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                updated |= updatePropertiesFromHazelcastMap(properties, update.getKey(), update.getValue());
+            }
+            if (updated) {
+                LOGGER.debug("CELLAR HAZELCAST: cluster group configuration has been updated, updating local configuration for {}", updates.keySet());
                 updateConfiguration(conf, properties);
             }
         } catch (Exception ex) {
@@ -744,6 +823,24 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
         }
     }
 
+    /**
+     * Run a configuration update after the configuration delay, or right now if there's no delay.
+     *
+     * @param task the configuration update.
+     */
+    private void schedule(Runnable task) {
+        ScheduledExecutorService executor = configurationExecutor;
+        if (executor != null) {
+            try {
+                executor.schedule(task, configurationDelay, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("CELLAR HAZELCAST: cluster groups configuration executor is stopped");
+            }
+        }
+        task.run();
+    }
+
     /**
      * Invoked when an entry is evicted.
      *
@@ -772,6 +869,30 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
         this.instance = instance;
     }
 
+    public HazelcastMemberIndex getMemberIndex() {
+        return memberIndex;
+    }
+
+    public void setMemberIndex(HazelcastMemberIndex memberIndex) {
+        this.memberIndex = memberIndex;
+    }
+
+    public long getConfigurationDelay() {
+        return configurationDelay;
+    }
+
+    public void setConfigurationDelay(long configurationDelay) {
+        this.configurationDelay = configurationDelay;
+    }
+
+    public SyncCoordinator getSyncCoordinator() {
+        return syncCoordinator;
+    }
+
+    public void setSyncCoordinator(SyncCoordinator syncCoordinator) {
+        this.syncCoordinator = syncCoordinator;
+    }
+
     public BundleContext getBundleContext() {
         return bundleContext;
     }
@@ -824,4 +945,95 @@ public class HazelcastGroupManager implements GroupManager, EntryListener<String
         cfg.update(properties);
         LOGGER.debug("CELLAR HAZELCAST: updated configuration with pid: {}", cfg.getPid());
     }
+
+    /**
+     * Discard the cluster groups snapshot when the cluster groups membership changes.
+     */
+    private class MembershipListener implements EntryListener<Node, Set<String>> {
+
+        @Override
+        public void entryAdded(EntryEvent<Node, Set<String>> entryEvent) {
+            invalidateGroups();
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<Node, Set<String>> entryEvent) {
+            invalidateGroups();
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<Node, Set<String>> entryEvent) {
+            invalidateGroups();
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<Node, Set<String>> entryEvent) {
+            invalidateGroups();
+        }
+
+        @Override
+        public void mapCleared(MapEvent mapEvent) {
+            invalidateGroups();
+        }
+
+        @Override
+        public void mapEvicted(MapEvent mapEvent) {
+            invalidateGroups();
+        }
+
+    }
+
+    /**
+     * Immutable view of the cluster groups and of the local node membership.
+     */
+    private static class GroupsSnapshot {
+
+        private final long generation;
+        private final Node localNode;
+        private final Map<Node, Set<String>> memberships;
+        private final Map<String, Group> groups;
+        private final Set<Group> allGroups;
+        private final Set<Group> localGroups;
+        private final Set<String> localGroupNames;
+
+        GroupsSnapshot(long generation, Node localNode, Map<Node, Set<String>> memberships, Set<String> configuredGroups) {
+            this.generation = generation;
+            this.localNode = localNode;
+            this.memberships = Collections.unmodifiableMap(memberships);
+
+            Set<String> groupNames = new HashSet<String>(configuredGroups);
+            groupNames.add(Configurations.DEFAULT_GROUP_NAME);
+            Map<String, Group> groups = new HashMap<String, Group>();
+            for (String groupName : groupNames) {
+                Set<Node> nodes = new HashSet<Node>();
+                for (Map.Entry<Node, Set<String>> entry : memberships.entrySet()) {
+                    if (entry.getValue().contains(groupName)) {
+                        nodes.add(entry.getKey());
+                    }
+                }
+                Group group = new Group(groupName);
+                group.setNodes(Collections.unmodifiableSet(nodes));
+                groups.put(groupName, group);
+            }
+            this.groups = Collections.unmodifiableMap(groups);
+            this.allGroups = Collections.unmodifiableSet(new HashSet<Group>(groups.values()));
+
+            Set<Group> localGroups = new HashSet<Group>();
+            Set<String> localGroupNames = new HashSet<String>();
+            Set<String> localMembership = localNode != null ? memberships.get(localNode) : null;
+            if (localMembership != null) {
+                for (String groupName : localMembership) {
+                    Group group = groups.get(groupName);
+                    if (group != null) {
+                        localGroups.add(group);
+                        localGroupNames.add(groupName);
+                    }
+                }
+            }
+            this.localGroups = Collections.unmodifiableSet(localGroups);
+            this.localGroupNames = Collections.unmodifiableSet(localGroupNames);
+        }
+
+    }
+
 }
@@ -24,6 +24,7 @@ import org.apache.karaf.cellar.core.Node;
 public class HazelcastInstanceAware {
 
     protected HazelcastInstance instance;
+    protected volatile HazelcastMemberIndex memberIndex;
 
     public void bind(HazelcastInstance instance) {
         this.instance = instance;
@@ -39,6 +40,9 @@ public class HazelcastInstanceAware {
      * @return the local node.
      */
     public Node getNode() {
+        if (memberIndex != null && memberIndex.getLocalNode() != null) {
+            return memberIndex.getLocalNode();
+        }
         Cluster cluster = instance.getCluster();
         if (cluster != null) {
             Member member = cluster.getLocalMember();
@@ -53,9 +57,20 @@ public class HazelcastInstanceAware {
         if (cluster != null) {
             Member member = cluster.getLocalMember();
             member.setStringAttribute("alias", alias);
+            if (memberIndex != null) {
+                memberIndex.refresh();
+            }
         }
     }
 
+    public HazelcastMemberIndex getMemberIndex() {
+        return memberIndex;
+    }
+
+    public void setMemberIndex(HazelcastMemberIndex memberIndex) {
+        this.memberIndex = memberIndex;
+    }
+
     public HazelcastInstance getInstance() {
         return instance;
     }
@@ -0,0 +1,196 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.core.Cluster;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberAttributeEvent;
+import com.hazelcast.core.MembershipEvent;
+import com.hazelcast.core.MembershipListener;
+import org.apache.karaf.cellar.core.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the cluster members, by node ID and by node alias.
+ * The index is rebuilt when a member joins or leaves the cluster, or when a member attribute (alias) changes, so
+ * the lookups don't iterate over the cluster members and always return the same node instances. The returned nodes
+ * are shared and must not be modified.
+ */
+public class HazelcastMemberIndex implements MembershipListener {
+
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(HazelcastMemberIndex.class);
+
+    private HazelcastInstance instance;
+    private String registrationId;
+    private volatile Members members = new Members(null, Collections.<Member>emptySet(), Collections.<String, HazelcastNode>emptyMap());
+
+    public HazelcastMemberIndex() {
+        // nothing to do
+    }
+
+    public HazelcastMemberIndex(HazelcastInstance instance) {
+        this.instance = instance;
+    }
+
+    public void init() {
+        Cluster cluster = instance.getCluster();
+        if (cluster != null) {
+            registrationId = cluster.addMembershipListener(this);
+        }
+        refresh();
+    }
+
+    public void destroy() {
+        if (registrationId != null) {
+            try {
+                instance.getCluster().removeMembershipListener(registrationId);
+            } catch (Exception e) {
+                LOGGER.trace("CELLAR HAZELCAST: can't remove the member index listener", e);
+            }
+            registrationId = null;
+        }
+    }
+
+    /**
+     * Rebuild the index from the current cluster members.
+     */
+    public synchronized void refresh() {
+        Cluster cluster = instance.getCluster();
+        if (cluster == null) {
+            return;
+        }
+        Member local = cluster.getLocalMember();
+        Set<Member> current = cluster.getMembers();
+        // reuse the existing node instances for the members still in the cluster with the same alias
+        Map<String, HazelcastNode> previous = members.byUuid;
+        Map<String, HazelcastNode> byUuid = new HashMap<String, HazelcastNode>();
+        for (Member member : current) {
+            HazelcastNode node = previous.get(member.getUuid());
+            if (node == null || !equals(node.getAlias(), member.getStringAttribute("alias"))) {
+                node = new HazelcastNode(member);
+            }
+            byUuid.put(member.getUuid(), node);
+        }
+        if (local != null && !byUuid.containsKey(local.getUuid())) {
+            byUuid.put(local.getUuid(), new HazelcastNode(local));
+        }
+        members = new Members(local, current, byUuid);
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    /**
+     * Get the local node.
+     *
+     * @return the local node.
+     */
+    public Node getLocalNode() {
+        return members.localNode;
+    }
+
+    /**
+     * Get all the cluster nodes.
+     *
+     * @return an unmodifiable set of the cluster nodes.
+     */
+    public Set<Node> getNodes() {
+        return members.nodes;
+    }
+
+    public Node findNodeById(String id) {
+        return id != null ? members.byId.get(id) : null;
+    }
+
+    public Node findNodeByAlias(String alias) {
+        return alias != null ? members.byAlias.get(alias) : null;
+    }
+
+    public Node findNodeByUuid(String uuid) {
+        return uuid != null ? members.byUuid.get(uuid) : null;
+    }
+
+    public Node findNodeByIdOrAlias(String idOrAlias) {
+        Node node = findNodeById(idOrAlias);
+        if (node == null) {
+            node = findNodeByAlias(idOrAlias);
+        }
+        return node;
+    }
+
+    @Override
+    public void memberAdded(MembershipEvent membershipEvent) {
+        refresh();
+    }
+
+    @Override
+    public void memberRemoved(MembershipEvent membershipEvent) {
+        refresh();
+    }
+
+    @Override
+    public void memberAttributeChanged(MemberAttributeEvent memberAttributeEvent) {
+        refresh();
+    }
+
+    public HazelcastInstance getInstance() {
+        return instance;
+    }
+
+    public void setInstance(HazelcastInstance instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Immutable view of the cluster members.
+     */
+    private static class Members {
+
+        private final Node localNode;
+        private final Set<Node> nodes;
+        private final Map<String, HazelcastNode> byUuid;
+        private final Map<String, Node> byId;
+        private final Map<String, Node> byAlias;
+
+        Members(Member local, Set<Member> members, Map<String, HazelcastNode> byUuid) {
+            this.byUuid = Collections.unmodifiableMap(byUuid);
+            Set<Node> nodes = new HashSet<Node>();
+            Map<String, Node> byId = new HashMap<String, Node>();
+            Map<String, Node> byAlias = new HashMap<String, Node>();
+            for (Member member : members) {
+                HazelcastNode node = byUuid.get(member.getUuid());
+                nodes.add(node);
+                byId.put(node.getId(), node);
+                if (node.getAlias() != null && !byAlias.containsKey(node.getAlias())) {
+                    byAlias.put(node.getAlias(), node);
+                }
+            }
+            this.localNode = local != null ? byUuid.get(local.getUuid()) : null;
+            this.nodes = Collections.unmodifiableSet(nodes);
+            this.byId = byId;
+            this.byAlias = byAlias;
+        }
+
+    }
+
+}
@@ -14,15 +14,19 @@
 package org.apache.karaf.cellar.hazelcast;
 
 import com.hazelcast.core.Member;
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.Node;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 
 /**
  * Cluster node powered by Hazelcast.
  */
-public class HazelcastNode implements Node {
+public class HazelcastNode implements Node, CompactSerializable {
 
     private String id;
     private String host;
@@ -38,6 +42,33 @@ public class HazelcastNode implements Node {
         this.alias = member.getStringAttribute("alias");
     }
 
+    public HazelcastNode() {
+    }
+
+    /**
+     * Create a node from its ID (host:port).
+     *
+     * @param id the node ID.
+     */
+    public HazelcastNode(String id) {
+        setId(id);
+    }
+
+    private void setId(String id) {
+        this.id = id;
+        int index = (id != null) ? id.lastIndexOf(':') : -1;
+        if (index > 0) {
+            this.host = id.substring(0, index);
+            try {
+                this.port = Integer.parseInt(id.substring(index + 1));
+            } catch (NumberFormatException e) {
+                this.port = 0;
+            }
+        } else {
+            this.host = id;
+        }
+    }
+
     static String getHostString(InetSocketAddress socketAddress) {
         InetAddress address = socketAddress.getAddress();
         return (address != null && address.toString().startsWith("/")) ? address.getHostAddress() : socketAddress.getHostName();
@@ -103,5 +134,17 @@ public class HazelcastNode implements Node {
 		return "HazelcastNode [id=" + id + ", host=" + host + ", port=" + port
 				+ "]";
 	}
-    
+
+    @Override
+    public void writeData(CompactDataOutput out) throws IOException {
+        out.writeUTF(id);
+        out.writeUTF(alias);
+    }
+
+    @Override
+    public void readData(CompactDataInput in) throws IOException {
+        setId(in.readUTF());
+        alias = in.readUTF();
+    }
+
 }
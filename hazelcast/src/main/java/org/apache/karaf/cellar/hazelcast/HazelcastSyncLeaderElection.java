@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.core.Member;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.SyncLeaderElection;
+
+import java.util.Set;
+
+/**
+ * The sync leader of a cluster group is the oldest Hazelcast member of the cluster group.
+ * All the nodes agree on the leader without any exchange, as the Hazelcast members list is ordered by age on all nodes.
+ */
+public class HazelcastSyncLeaderElection extends HazelcastInstanceAware implements SyncLeaderElection {
+
+    private HazelcastMemberIndex memberIndex;
+
+    @Override
+    public boolean isSyncLeader(Group group) {
+        Set<Node> nodes = group.getNodes();
+        // the members are ordered from the oldest to the youngest
+        for (Member member : instance.getCluster().getMembers()) {
+            Node node = memberIndex != null ? memberIndex.findNodeByUuid(member.getUuid()) : new HazelcastNode(member);
+            if (node != null && nodes.contains(node)) {
+                return member.localMember();
+            }
+        }
+        // the local node is alone in the cluster group
+        return true;
+    }
+
+    public HazelcastMemberIndex getMemberIndex() {
+        return memberIndex;
+    }
+
+    public void setMemberIndex(HazelcastMemberIndex memberIndex) {
+        this.memberIndex = memberIndex;
+    }
+
+}
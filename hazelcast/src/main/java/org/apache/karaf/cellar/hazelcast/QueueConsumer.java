@@ -17,23 +17,27 @@ import com.hazelcast.core.*;
 import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Dispatcher;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
 import org.apache.karaf.cellar.core.event.EventConsumer;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
-import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Consumes cluster events from the Hazelcast {@code IQueue} and calls the {@code EventDispatcher}.
+ * The consumer thread drains the queue by small batches ({@code consumer.queue.batch.size} node property), and
+ * dispatches the events in order. The dispatcher executes the handlers asynchronously.
  */
 public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemListener<E>, Runnable {
 
@@ -41,6 +45,8 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
 
     public static final String SWITCH_ID = "org.apache.karaf.cellar.queue.consumer";
 
+    public static final int DEFAULT_BATCH_SIZE = 10;
+
     private final Switch eventSwitch = new BasicSwitch(SWITCH_ID);
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
 
@@ -53,6 +59,9 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     private Node node;
     private CombinedClassLoader combinedClassLoader;
     private ConfigurationAdmin configurationAdmin;
+    private NodeConfiguration nodeConfiguration;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
 
     public QueueConsumer() {
         // nothing to do
@@ -69,6 +78,7 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
             queue = instance.getQueue(Constants.QUEUE);
             registrationId = queue.addItemListener(this, true);
         }
+        loadConfiguration();
         executorService.execute(this);
     }
 
@@ -80,37 +90,61 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
         executorService.shutdown();
     }
 
+    /**
+     * Load the batch size from the node configuration.
+     */
+    private void loadConfiguration() {
+        if (nodeConfiguration != null) {
+            batchSize = nodeConfiguration.getInt(Configurations.CONSUMER_QUEUE_BATCH_SIZE, batchSize);
+        }
+        if (batchSize <= 0) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+    }
+
     @Override
     public void run() {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-        E e;
-        while (isConsuming) {
-            if (combinedClassLoader != null) {
-                Thread.currentThread().setContextClassLoader(combinedClassLoader);
-            } else Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
-            e = null;
-            try {
-                e = getQueue().poll(10, TimeUnit.SECONDS);
-            } catch (InterruptedException e1) {
-                LOGGER.warn("CELLAR HAZELCAST: consume task interrupted");
-            } catch (Exception e2) {
-                // catch everything from Hazelcast to prevent the death of Queue Consumer task
-                LOGGER.warn("CELLAR HAZELCAST: consumer task failed to poll the queue", e2);
-            }
-            
-            try {
-                if (e != null) {
-                    consume(e);
+        // the cluster events are deserialized when they are polled from the queue
+        Thread.currentThread().setContextClassLoader(getConsumerClassLoader());
+        List<E> batch = new ArrayList<E>(batchSize);
+        try {
+            while (isConsuming) {
+                batch.clear();
+                try {
+                    E first = getQueue().poll(10, TimeUnit.SECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        getQueue().drainTo(batch, batchSize - 1);
+                    }
+                } catch (InterruptedException e1) {
+                    LOGGER.warn("CELLAR HAZELCAST: consume task interrupted");
+                } catch (HazelcastInstanceNotActiveException hex) {
+                    LOGGER.debug("CELLAR HAZELCAST: instance not active, stop consuming", hex);
+                    break;
+                } catch (Exception e2) {
+                    // catch everything from Hazelcast to prevent the death of Queue Consumer task
+                    LOGGER.warn("CELLAR HAZELCAST: consumer task failed to poll the queue", e2);
+                }
+
+                // the drained events are only in memory until they are dispatched, so the batches are kept small
+                for (E event : batch) {
+                    try {
+                        consume(event);
+                    } catch (HazelcastInstanceNotActiveException hex) {
+                        LOGGER.debug("CELLAR HAZELCAST: instance not active, cluster event not consumed", hex);
+                    } catch (Exception e) {
+                        LOGGER.error("CELLAR HAZELCAST: failed to consume from queue", e);
+                    }
                 }
-            } catch (HazelcastInstanceNotActiveException hex) {
-                LOGGER.debug("CELLAR HAZELCAST: instance not active, stop consuming", hex);
-                break;
-            } catch (Exception e1) {
-                LOGGER.error("CELLAR HAZELCAST: failed to consume from queue", e1);
             }
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
         }
-        
-        Thread.currentThread().setContextClassLoader(originalClassLoader);
+    }
+
+    private ClassLoader getConsumerClassLoader() {
+        return combinedClassLoader != null ? combinedClassLoader : getClass().getClassLoader();
     }
 
     /**
@@ -183,14 +217,10 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
     public Switch getSwitch() {
         // load the switch status from the config
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.CONSUMER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+            if (nodeConfiguration.getBoolean(Configurations.CONSUMER, eventSwitch.getStatus().getValue())) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
         } catch (Exception e) {
             // ignore
@@ -214,4 +244,20 @@ public class QueueConsumer<E extends Event> implements EventConsumer<E>, ItemLis
         this.configurationAdmin = configurationAdmin;
     }
 
+    public NodeConfiguration getNodeConfiguration() {
+        return nodeConfiguration;
+    }
+
+    public void setNodeConfiguration(NodeConfiguration nodeConfiguration) {
+        this.nodeConfiguration = nodeConfiguration;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
 }
@@ -14,26 +14,45 @@
 package org.apache.karaf.cellar.hazelcast;
 
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
 import com.hazelcast.core.ITopic;
 import com.hazelcast.core.Message;
 import com.hazelcast.core.MessageListener;
+import com.hazelcast.spi.exception.DistributedObjectDestroyedException;
+import com.hazelcast.topic.ReliableMessageListener;
 import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Dispatcher;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatch;
 import org.apache.karaf.cellar.core.event.EventConsumer;
-import org.osgi.service.cm.Configuration;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Consumes messages from the Hazelcast {@code ITopic} and calls the {@code EventDispatcher}.
+ * It also consumes the control events, and the messages sent to the local node only, on the dedicated topics.
+ * In reliable mode, the events and local node topics are Hazelcast reliable topics: the consumer tracks the sequence
+ * of the last received event on each topic, and replays the missed events when it starts again. When the missed
+ * events are not in the ringbuffer anymore, the {@link EventLossListener} is notified. While the consumer switch is OFF,
+ * the sequence is not advanced anymore, and the consumer replays the events received in the meantime when the node
+ * configuration turns the switch ON again (except the forced events, already dispatched).
  */
-public class TopicConsumer<E extends Event> implements EventConsumer<E>, MessageListener<E> {
+public class TopicConsumer<E extends Event> implements EventConsumer<E>, MessageListener<E>, ConfigurationListener {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(TopicConsumer.class);
 
@@ -42,17 +61,28 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     private final Switch eventSwitch = new BasicSwitch(SWITCH_ID);
 
     private String registrationId;
+    private final Map<ITopic, String> registrations = new HashMap<ITopic, String>();
     private HazelcastInstance instance;
     private ITopic topic;
     private Dispatcher dispatcher;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private NodeConfiguration nodeConfiguration;
+    private boolean reliable;
+    private EventLossListener eventLossListener;
+    private final Map<String, Long> sequences = new ConcurrentHashMap<String, Long>();
+    // last sequence received while paused: the forced events, already dispatched, are not dispatched again on replay
+    private final Map<String, Long> replayedSequences = new ConcurrentHashMap<String, Long>();
+    private final Map<String, SequenceTrackingListener> pausedListeners = new ConcurrentHashMap<String, SequenceTrackingListener>();
+    // not the consumer monitor: the Hazelcast threads delivering the events are needed to add or remove the listeners
+    private final Object pauseLock = new Object();
+    private final AtomicLong lostEvents = new AtomicLong();
 
     private boolean isConsuming;
 
     public void init() {
         if (topic == null) {
-            topic = instance.getTopic(Constants.TOPIC);
+            topic = getTopic(Constants.TOPIC, reliable);
         }
         start();
     }
@@ -63,6 +93,12 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
 
     @Override
     public void consume(E event) {
+        if (event instanceof EventBatch) {
+            for (Event batched : ((EventBatch) event).getEvents()) {
+                consume((E) batched);
+            }
+            return;
+        }
         // check if event has a specified destination.
         if ((event.getDestination() == null || event.getDestination().contains(node)) && (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce())) {
             dispatcher.dispatch(event);
@@ -74,23 +110,100 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     }
 
     @Override
-    public void start() {
+    public synchronized void start() {
         isConsuming = true;
-        if (topic != null) {
-            registrationId = topic.addMessageListener(this);
-        } else {
-            topic = instance.getTopic(Constants.TOPIC);
-            registrationId = topic.addMessageListener(this);
+        if (topic == null) {
+            topic = getTopic(Constants.TOPIC, reliable);
+        }
+        registrationId = topic.addMessageListener(getListener(topic.getName(), reliable));
+        if (instance != null) {
+            String controlTopicName = Constants.getControlTopicName(topic.getName());
+            listen(controlTopicName, false);
+            if (node != null) {
+                listen(Constants.getNodeTopicName(topic.getName(), node.getId()), reliable);
+                listen(Constants.getNodeTopicName(controlTopicName, node.getId()), false);
+                // the other nodes can now send the events with a destination on the node topics
+                if (instance.getCluster() != null) {
+                    instance.getCluster().getLocalMember().setBooleanAttribute(Constants.NODE_TOPICS_ATTRIBUTE, true);
+                }
+            }
         }
+    }
+
+    private void listen(String topicName, boolean reliableTopic) {
+        ITopic additionalTopic = getTopic(topicName, reliableTopic);
+        registrations.put(additionalTopic, additionalTopic.addMessageListener(getListener(topicName, reliableTopic)));
+    }
+
+    private ITopic getTopic(String topicName, boolean reliableTopic) {
+        return reliableTopic ? instance.getReliableTopic(topicName) : instance.getTopic(topicName);
+    }
 
+    private MessageListener<E> getListener(String topicName, boolean reliableTopic) {
+        return reliableTopic ? new SequenceTrackingListener(topicName) : this;
     }
 
     @Override
-    public void stop() {
+    public synchronized void stop() {
         isConsuming = false;
         if (topic != null) {
             topic.removeMessageListener(registrationId);
         }
+        for (Map.Entry<ITopic, String> registration : registrations.entrySet()) {
+            registration.getKey().removeMessageListener(registration.getValue());
+        }
+        registrations.clear();
+        pausedListeners.clear();
+    }
+
+    /**
+     * Replay the cluster events received while the switch was OFF when the node configuration turns it ON again.
+     * The listeners are subscribed again from the configuration event thread, not from the Hazelcast threads
+     * delivering the cluster events.
+     *
+     * @param event the configuration event.
+     */
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.NODE.equals(event.getPid()) && nodeConfiguration != null) {
+            // the node configuration snapshot may not be refreshed yet
+            nodeConfiguration.refresh();
+            if (SwitchStatus.ON.equals(getSwitch().getStatus())) {
+                resume();
+            }
+        }
+    }
+
+    /**
+     * Subscribe again the reliable listeners paused while the switch was OFF, to replay the events from their stored
+     * sequence.
+     */
+    synchronized void resume() {
+        List<String> topicNames;
+        synchronized (pauseLock) {
+            topicNames = new ArrayList<String>(pausedListeners.keySet());
+            for (SequenceTrackingListener listener : pausedListeners.values()) {
+                listener.cancelled = true;
+            }
+            pausedListeners.clear();
+        }
+        for (String topicName : topicNames) {
+            if (!isConsuming) {
+                continue;
+            }
+            LOGGER.debug("CELLAR HAZELCAST: replaying the cluster events received on {} while {} switch was OFF", topicName, SWITCH_ID);
+            if (topic != null && topic.getName().equals(topicName)) {
+                topic.removeMessageListener(registrationId);
+                registrationId = topic.addMessageListener(getListener(topicName, true));
+            } else {
+                for (Map.Entry<ITopic, String> registration : registrations.entrySet()) {
+                    if (registration.getKey().getName().equals(topicName)) {
+                        registration.getKey().removeMessageListener(registration.getValue());
+                        registration.setValue(registration.getKey().addMessageListener(getListener(topicName, true)));
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -103,6 +216,31 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
         consume(message.getMessageObject());
     }
 
+    /**
+     * Get the number of cluster events lost (not replayed) in reliable mode.
+     *
+     * @return the number of lost events.
+     */
+    public long getLostEvents() {
+        return lostEvents.get();
+    }
+
+    public boolean isReliable() {
+        return reliable;
+    }
+
+    public void setReliable(boolean reliable) {
+        this.reliable = reliable;
+    }
+
+    public EventLossListener getEventLossListener() {
+        return eventLossListener;
+    }
+
+    public void setEventLossListener(EventLossListener eventLossListener) {
+        this.eventLossListener = eventLossListener;
+    }
+
     public Dispatcher getDispatcher() {
         return dispatcher;
     }
@@ -131,14 +269,10 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
     public Switch getSwitch() {
         // load the switch status from the config
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.CONSUMER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+            if (nodeConfiguration.getBoolean(Configurations.CONSUMER, eventSwitch.getStatus().getValue())) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
         } catch (Exception e) {
             // ignore
@@ -162,4 +296,108 @@ public class TopicConsumer<E extends Event> implements EventConsumer<E>, Message
         this.configurationAdmin = configurationAdmin;
     }
 
+    public NodeConfiguration getNodeConfiguration() {
+        return nodeConfiguration;
+    }
+
+    public void setNodeConfiguration(NodeConfiguration nodeConfiguration) {
+        this.nodeConfiguration = nodeConfiguration;
+    }
+
+    /**
+     * Reliable topic listener keeping the sequence of the last consumed event, to resume from there.
+     */
+    private class SequenceTrackingListener implements ReliableMessageListener<E> {
+
+        private final String topicName;
+        private Long last;
+        private long sequence;
+        private volatile boolean cancelled;
+
+        SequenceTrackingListener(String topicName) {
+            this.topicName = topicName;
+        }
+
+        @Override
+        public void onMessage(Message<E> message) {
+            E event = message.getMessageObject();
+            if (!pausedListeners.containsKey(topicName)) {
+                // resume() can't miss a listener paused while the switch is turned ON
+                synchronized (pauseLock) {
+                    if (SwitchStatus.OFF.equals(getSwitch().getStatus()) && !cancelled) {
+                        // keep the sequence of the last consumed event, to replay the next ones when the switch is ON
+                        pausedListeners.put(topicName, this);
+                    }
+                }
+            }
+            if (cancelled) {
+                // a new listener replays the event
+                return;
+            }
+            boolean paused = pausedListeners.get(topicName) == this;
+            Long replayed = replayedSequences.get(topicName);
+            if (replayed != null && sequence > replayed) {
+                replayedSequences.remove(topicName);
+                replayed = null;
+            }
+            if (paused) {
+                // the other events are replayed when the listener is resumed, even if the switch is already ON
+                if (event.getForce()) {
+                    consume(event);
+                }
+            } else if (replayed == null || !event.getForce()) {
+                consume(event);
+            }
+            if (paused) {
+                replayedSequences.put(topicName, sequence);
+            } else {
+                sequences.put(topicName, sequence);
+            }
+        }
+
+        @Override
+        public long retrieveInitialSequence() {
+            // replay the events published since the last consumed one, or only the new events on first start
+            last = sequences.get(topicName);
+            return last != null ? last + 1 : -1;
+        }
+
+        @Override
+        public void storeSequence(long sequence) {
+            Long previous = last;
+            last = sequence;
+            this.sequence = sequence;
+            // the ringbuffer jumps over the events which are not available anymore
+            if (previous != null && sequence > previous + 1) {
+                long lost = sequence - previous - 1;
+                lostEvents.addAndGet(lost);
+                if (eventLossListener != null) {
+                    eventLossListener.eventsLost(topicName, lost);
+                } else {
+                    LOGGER.warn("CELLAR HAZELCAST: {} cluster events lost on {}", lost, topicName);
+                }
+            }
+        }
+
+        @Override
+        public boolean isLossTolerant() {
+            return true;
+        }
+
+        @Override
+        public boolean isTerminal(Throwable failure) {
+            if (cancelled || !isConsuming || failure instanceof HazelcastInstanceNotActiveException
+                    || failure instanceof DistributedObjectDestroyedException) {
+                // the listener is replaced or the topic is not available anymore
+                LOGGER.debug("CELLAR HAZELCAST: stop consuming cluster events from {}", topicName, failure);
+                return true;
+            }
+            // a failing cluster event doesn't stop the consumption of the next ones
+            LOGGER.warn("CELLAR HAZELCAST: can't consume cluster event from {}: {}", topicName, failure.toString());
+            LOGGER.debug("CELLAR HAZELCAST: cluster event consumption failure", failure);
+            return false;
+        }
+
+    }
+
 }
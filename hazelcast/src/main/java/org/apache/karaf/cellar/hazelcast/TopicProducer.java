@@ -15,24 +15,45 @@ package org.apache.karaf.cellar.hazelcast;
 
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberAttributeEvent;
+import com.hazelcast.core.MembershipEvent;
+import com.hazelcast.core.MembershipListener;
 import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.command.Command;
 import org.apache.karaf.cellar.core.command.Result;
 import org.apache.karaf.cellar.core.control.BasicSwitch;
 import org.apache.karaf.cellar.core.control.Switch;
 import org.apache.karaf.cellar.core.control.SwitchStatus;
 import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatcher;
 import org.apache.karaf.cellar.core.event.EventProducer;
-import org.osgi.service.cm.Configuration;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Produces cluster {@code Event}s into the distributed {@code ITopic}.
+ * The events with a destination are sent on the topic of each destination node, instead of being broadcast, when all
+ * the destination nodes listen on their node topics. The events are still broadcast to the older nodes.
+ * The control events ({@link PriorityEvent}) are sent on dedicated control topics, or on the broadcast topic while
+ * older nodes, not listening on the control topics, are in the cluster.
+ * In reliable mode, the events (except the control events) are sent on Hazelcast reliable topics, so the consumers
+ * can replay the events they missed. The topics of a node are destroyed when the node leaves the cluster.
+ * The events batcher is reconfigured when the node configuration changes.
  */
-public class TopicProducer<E extends Event> implements EventProducer<E> {
+public class TopicProducer<E extends Event> implements EventProducer<E>, MembershipListener, ConfigurationListener {
 
     private static final transient Logger LOGGER = LoggerFactory.getLogger(TopicProducer.class);
 
@@ -44,15 +65,46 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
     private ITopic topic;
     private Node node;
     private ConfigurationAdmin configurationAdmin;
+    private NodeConfiguration nodeConfiguration;
+    private volatile EventBatcher batcher;
+    private boolean reliable;
+    private final ConcurrentMap<String, ITopic> topics = new ConcurrentHashMap<String, ITopic>();
+    private String membershipRegistrationId;
+    private volatile Set<String> nodeTopicsIds = Collections.emptySet();
+    private volatile boolean olderNodes;
+
+    private final EventBatcher.Publisher targetedPublisher = new EventBatcher.Publisher() {
+        @Override
+        public void publish(Event event) {
+            publishTargeted(event);
+        }
+    };
 
     public void init() {
         if (topic == null) {
-            topic = instance.getTopic(Constants.TOPIC);
+            topic = reliable ? instance.getReliableTopic(Constants.TOPIC) : instance.getTopic(Constants.TOPIC);
         }
+        if (instance.getCluster() != null) {
+            membershipRegistrationId = instance.getCluster().addMembershipListener(this);
+            refreshNodeTopicsIds();
+        }
+        configureBatcher();
     }
 
-    public void destroy() {
-        // nothing to do
+    public synchronized void destroy() {
+        EventBatcher current = batcher;
+        if (current != null) {
+            batcher = null;
+            current.destroy();
+        }
+        if (membershipRegistrationId != null) {
+            try {
+                instance.getCluster().removeMembershipListener(membershipRegistrationId);
+            } catch (Exception e) {
+                LOGGER.trace("CELLAR HAZELCAST: can't remove the topic producer membership listener", e);
+            }
+            membershipRegistrationId = null;
+        }
     }
 
     @Override
@@ -60,7 +112,33 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
         if (this.getSwitch().getStatus().equals(SwitchStatus.ON) || event.getForce() || event instanceof Result) {
             if (event instanceof Result || event instanceof Command)
                 event.setSourceNode(node);
-            topic.publish(event);
+            EventBatcher current = batcher;
+            if (event instanceof PriorityEvent) {
+                // control events are sent on the control topic, without waiting for the pending events
+                String controlTopicName = Constants.getControlTopicName(topic.getName());
+                if (event.getDestination() != null && hasNodeTopics(event.getDestination())) {
+                    publish(event, controlTopicName, event.getDestination(), false);
+                } else if (event.getDestination() != null || olderNodes) {
+                    // older nodes only listen on the broadcast topic
+                    topic.publish(event);
+                } else {
+                    getTopic(controlTopicName, false).publish(event);
+                }
+            } else if (event.getDestination() != null) {
+                if (current != null) {
+                    // targeted events are not delayed, but keep the order with the pending events
+                    current.flushAndPublish(event, targetedPublisher);
+                } else {
+                    publishTargeted(event);
+                }
+            } else if (current == null) {
+                topic.publish(event);
+            } else if (event instanceof Result || event instanceof Command) {
+                // commands and results are not delayed, but keep the order with the pending events
+                current.flushAndPublish(event);
+            } else {
+                current.add(event);
+            }
         } else {
             if (eventSwitch.getStatus().equals(SwitchStatus.OFF)) {
                 LOGGER.debug("CELLAR HAZELCAST: {} switch is OFF, don't produce the cluster event", SWITCH_ID);
@@ -72,14 +150,10 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
     public Switch getSwitch() {
         // load the switch status from the config
         try {
-            Configuration configuration = configurationAdmin.getConfiguration(Configurations.NODE, null);
-            if (configuration != null) {
-                Boolean status = new Boolean((String) configuration.getProperties().get(Configurations.PRODUCER));
-                if (status) {
-                    eventSwitch.turnOn();
-                } else {
-                    eventSwitch.turnOff();
-                }
+            if (nodeConfiguration.getBoolean(Configurations.PRODUCER, eventSwitch.getStatus().getValue())) {
+                eventSwitch.turnOn();
+            } else {
+                eventSwitch.turnOff();
             }
         } catch (Exception e) {
             // ignore
@@ -87,6 +161,162 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
         return eventSwitch;
     }
 
+    /**
+     * Send a cluster event with a destination, on the node topics if all the destination nodes listen on them.
+     *
+     * @param event the cluster event.
+     */
+    private void publishTargeted(Event event) {
+        if (hasNodeTopics(event.getDestination())) {
+            publish(event, topic.getName(), event.getDestination(), reliable);
+        } else {
+            topic.publish(event);
+        }
+    }
+
+    /**
+     * Send a cluster event to the topic of each destination node.
+     *
+     * @param event the cluster event.
+     * @param topicName the broadcast topic name.
+     * @param destination the destination nodes.
+     * @param reliableTopic true to use the reliable node topics, false else.
+     */
+    private void publish(Event event, String topicName, Set<Node> destination, boolean reliableTopic) {
+        for (Node target : destination) {
+            if (target != null) {
+                getTopic(Constants.getNodeTopicName(topicName, target.getId()), reliableTopic).publish(event);
+            }
+        }
+    }
+
+    private boolean hasNodeTopics(Set<Node> destination) {
+        Set<String> ids = nodeTopicsIds;
+        for (Node target : destination) {
+            if (target != null && !ids.contains(target.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Update the IDs of the nodes listening on their node and control topics.
+     */
+    private void refreshNodeTopicsIds() {
+        Set<String> ids = new HashSet<String>();
+        boolean older = false;
+        for (Member member : instance.getCluster().getMembers()) {
+            if (Boolean.TRUE.equals(member.getBooleanAttribute(Constants.NODE_TOPICS_ATTRIBUTE))) {
+                ids.add(new HazelcastNode(member).getId());
+            } else {
+                older = true;
+            }
+        }
+        nodeTopicsIds = ids;
+        olderNodes = older;
+    }
+
+    private ITopic getTopic(String name, boolean reliableTopic) {
+        ITopic result = topics.get(name);
+        if (result == null) {
+            result = reliableTopic ? instance.getReliableTopic(name) : instance.getTopic(name);
+            topics.putIfAbsent(name, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void memberAdded(MembershipEvent membershipEvent) {
+        refreshNodeTopicsIds();
+    }
+
+    @Override
+    public void memberRemoved(MembershipEvent membershipEvent) {
+        refreshNodeTopicsIds();
+        String nodeId = new HazelcastNode(membershipEvent.getMember()).getId();
+        // the node may have already joined again
+        for (Member member : membershipEvent.getMembers()) {
+            if (nodeId.equals(new HazelcastNode(member).getId())) {
+                return;
+            }
+        }
+        String topicName = topic.getName();
+        destroyTopic(Constants.getNodeTopicName(topicName, nodeId));
+        destroyTopic(Constants.getNodeTopicName(Constants.getControlTopicName(topicName), nodeId));
+    }
+
+    @Override
+    public void memberAttributeChanged(MemberAttributeEvent memberAttributeEvent) {
+        if (Constants.NODE_TOPICS_ATTRIBUTE.equals(memberAttributeEvent.getKey())) {
+            refreshNodeTopicsIds();
+        }
+    }
+
+    private void destroyTopic(String name) {
+        ITopic removed = topics.remove(name);
+        if (removed != null) {
+            LOGGER.debug("CELLAR HAZELCAST: destroying topic {}", name);
+            try {
+                removed.destroy();
+            } catch (Exception e) {
+                LOGGER.debug("CELLAR HAZELCAST: can't destroy topic {}", name, e);
+            }
+        }
+    }
+
+    @Override
+    public void configurationEvent(ConfigurationEvent event) {
+        if (Configurations.NODE.equals(event.getPid()) && nodeConfiguration != null) {
+            // the node configuration snapshot may not be refreshed yet
+            nodeConfiguration.refresh();
+            configureBatcher();
+        }
+    }
+
+    /**
+     * Create, update or remove the events batcher, according to the {@code producer.batch.size} and
+     * {@code producer.batch.delay} properties of the node configuration. The batching is disabled by default.
+     */
+    synchronized void configureBatcher() {
+        int size = 0;
+        long delay = EventBatcher.DEFAULT_DELAY;
+        if (nodeConfiguration != null) {
+            size = nodeConfiguration.getInt(Configurations.PRODUCER_BATCH_SIZE, 0);
+            delay = nodeConfiguration.getInt(Configurations.PRODUCER_BATCH_DELAY, EventBatcher.DEFAULT_DELAY);
+        }
+        if (size <= 1) {
+            EventBatcher current = batcher;
+            if (current != null) {
+                batcher = null;
+                // the events added after the destroy are published directly
+                current.destroy();
+            }
+        } else if (batcher == null) {
+            batcher = new EventBatcher(new EventBatcher.Publisher() {
+                @Override
+                public void publish(Event event) {
+                    topic.publish(event);
+                }
+            }, size, delay);
+        } else if (batcher.getMaxSize() != size || batcher.getDelay() != delay) {
+            batcher.setMaxSize(size);
+            batcher.setDelay(delay);
+        }
+    }
+
+    EventBatcher getBatcher() {
+        return batcher;
+    }
+
+    public boolean isReliable() {
+        return reliable;
+    }
+
+    public void setReliable(boolean reliable) {
+        this.reliable = reliable;
+    }
+
     public ITopic<? extends Event> getTopic() {
         return topic;
     }
@@ -119,4 +349,12 @@ public class TopicProducer<E extends Event> implements EventProducer<E> {
         this.configurationAdmin = configurationAdmin;
     }
 
+    public NodeConfiguration getNodeConfiguration() {
+        return nodeConfiguration;
+    }
+
+    public void setNodeConfiguration(NodeConfiguration nodeConfiguration) {
+        this.nodeConfiguration = nodeConfiguration;
+    }
+
 }
@@ -14,14 +14,18 @@
 package org.apache.karaf.cellar.hazelcast.factory;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.SerializerConfig;
 import com.hazelcast.config.TcpIpConfig;
 import com.hazelcast.config.XmlConfigBuilder;
+import org.apache.karaf.cellar.core.CompactSerializable;
 import org.apache.karaf.cellar.core.discovery.Discovery;
 import org.apache.karaf.cellar.core.utils.CellarUtils;
+import org.apache.karaf.cellar.hazelcast.serialization.CompactSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +43,7 @@ public class HazelcastConfigurationManager {
     private String xmlConfigLocation = System.getProperty("karaf.etc") + File.separator + "hazelcast.xml";
 
     private Set<String> discoveredMemberSet = new LinkedHashSet<String>();
+    private List<String> configuredMembers;
     private List<DiscoveryService> discoveryServices;
 
     /**
@@ -54,7 +59,13 @@ public class HazelcastConfigurationManager {
         } else {
             config.setInstanceName("cellar");
         }
-        
+
+        if (isCompactSerialization()) {
+            config.getSerializationConfig().addSerializerConfig(new SerializerConfig()
+                    .setTypeClass(CompactSerializable.class)
+                    .setImplementation(new CompactSerializer()));
+        }
+
         if (config.getNetworkConfig().getJoin().getTcpIpConfig().isEnabled() && discoveredMemberSet != null) {
             if (discoveryServices != null && !discoveryServices.isEmpty()) {
                 for (DiscoveryService service : discoveryServices) {
@@ -65,11 +76,25 @@ public class HazelcastConfigurationManager {
                 }
             }
             TcpIpConfig tcpIpConfig = config.getNetworkConfig().getJoin().getTcpIpConfig();
+            configuredMembers = new ArrayList<String>(tcpIpConfig.getMembers());
             tcpIpConfig.getMembers().addAll(discoveredMemberSet);
         }
         return config;
     }
 
+    /**
+     * Check if the Cellar objects use the compact serialization. It can be disabled with the
+     * {@code cellar.serialization.compact} system property, for instance when the cluster contains nodes
+     * running an older Cellar version, expecting the Java serialization. The property must be the same on all the
+     * nodes: during a rolling upgrade from an older version, set it to false on the upgraded nodes until all the nodes
+     * are upgraded.
+     *
+     * @return true if the compact serialization is enabled, false else.
+     */
+    protected boolean isCompactSerialization() {
+        return Boolean.parseBoolean(System.getProperty("cellar.serialization.compact", "true"));
+    }
+
     /**
      * Update configuration of a Hazelcast instance.
      *
@@ -89,6 +114,39 @@ public class HazelcastConfigurationManager {
         }
         return updated;
     }
+
+    /**
+     * Apply the discovered members on the tcp-ip join configuration of a running Hazelcast instance.
+     * The members from hazelcast.xml are kept, the members not discovered anymore are removed. The tcp-ip
+     * configuration is replaced as a whole, so the Hazelcast joiner never reads a partially updated member list.
+     *
+     * @param config the configuration of the running Hazelcast instance.
+     * @return the members which were not in the tcp-ip join configuration before.
+     */
+    public Set<String> applyDiscoveredMembers(Config config) {
+        Set<String> newMembers = new LinkedHashSet<String>();
+        TcpIpConfig tcpIpConfig = config.getNetworkConfig().getJoin().getTcpIpConfig();
+        if (!tcpIpConfig.isEnabled()) {
+            return newMembers;
+        }
+        if (configuredMembers == null) {
+            configuredMembers = new ArrayList<String>(tcpIpConfig.getMembers());
+        }
+        Set<String> members = new LinkedHashSet<String>(configuredMembers);
+        members.addAll(discoveredMemberSet);
+        for (String member : members) {
+            if (!tcpIpConfig.getMembers().contains(member)) {
+                newMembers.add(member);
+            }
+        }
+        TcpIpConfig updatedTcpIpConfig = new TcpIpConfig()
+                .setEnabled(true)
+                .setConnectionTimeoutSeconds(tcpIpConfig.getConnectionTimeoutSeconds())
+                .setRequiredMember(tcpIpConfig.getRequiredMember())
+                .setMembers(new ArrayList<String>(members));
+        config.getNetworkConfig().getJoin().setTcpIpConfig(updatedTcpIpConfig);
+        return newMembers;
+    }
     
     public void setDiscoveryServices(List<DiscoveryService> discoveryServices) {
         this.discoveryServices = discoveryServices;
@@ -14,18 +14,33 @@
 package org.apache.karaf.cellar.hazelcast.factory;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+import com.hazelcast.cluster.Joiner;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+import com.hazelcast.instance.HazelcastInstanceImpl;
+import com.hazelcast.instance.HazelcastInstanceProxy;
+import com.hazelcast.instance.Node;
 import org.apache.karaf.cellar.core.utils.CombinedClassLoader;
 import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Factory for Hazelcast instance, including integration with OSGi ServiceRegistry and ConfigAdmin.
+ * The members discovered while the instance is running are applied on its tcp-ip join configuration, and the
+ * instance looks for the clusters formed by the new members to merge with them, without restarting.
  */
 public class HazelcastServiceFactory {
 
+    private static final transient Logger LOGGER = LoggerFactory.getLogger(HazelcastServiceFactory.class);
+
     private BundleContext bundleContext;
     private CombinedClassLoader combinedClassLoader;
     private HazelcastConfigurationManager configurationManager;
@@ -33,22 +48,80 @@ public class HazelcastServiceFactory {
     private CountDownLatch initializationLatch = new CountDownLatch(1);
     private CountDownLatch instanceLatch = new CountDownLatch(1);
     private HazelcastInstance instance;
+    private ExecutorService joinExecutor;
 
     public void init() {
         if (combinedClassLoader != null) {
             combinedClassLoader.addBundle(bundleContext.getBundle());
         }
+        joinExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cellar-hazelcast-join");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
         initializationLatch.countDown();
     }
 
     public void destroy() {
+        if (joinExecutor != null) {
+            joinExecutor.shutdownNow();
+        }
         if (instance != null) {
             instance.getLifecycleService().shutdown();
         }
     }
 
     public void update(Map properties) throws InterruptedException {
-        configurationManager.isUpdated(properties);
+        if (configurationManager.isUpdated(properties) && instance != null) {
+            Set<String> newMembers = configurationManager.applyDiscoveredMembers(instance.getConfig());
+            if (!newMembers.isEmpty()) {
+                LOGGER.info("CELLAR HAZELCAST: new members discovered {}, looking for other clusters", newMembers);
+                joinExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            searchForOtherClusters();
+                        } catch (Exception e) {
+                            LOGGER.warn("CELLAR HAZELCAST: can't join the discovered members", e);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Ask the Hazelcast joiner to contact the members of the tcp-ip join configuration which are not part of
+     * the cluster, and to merge with their cluster if needed. As for the Hazelcast split brain handler, only
+     * the master node looks for other clusters.
+     */
+    protected void searchForOtherClusters() {
+        if (!(instance instanceof HazelcastInstanceProxy)) {
+            LOGGER.debug("CELLAR HAZELCAST: the Hazelcast joiner is not available, the discovered members are joined on the next merge run");
+            return;
+        }
+        Node node;
+        try {
+            HazelcastInstanceImpl original = ((HazelcastInstanceProxy) instance).getOriginal();
+            node = (original != null) ? original.node : null;
+        } catch (HazelcastInstanceNotActiveException e) {
+            LOGGER.debug("CELLAR HAZELCAST: Hazelcast instance is not active, no search for other clusters");
+            return;
+        } catch (LinkageError e) {
+            // the Hazelcast internals are not the expected ones
+            LOGGER.debug("CELLAR HAZELCAST: the Hazelcast joiner is not available", e);
+            return;
+        }
+        if (node == null || !node.isRunning() || !node.isMaster() || !node.getClusterService().isJoined()) {
+            return;
+        }
+        Joiner joiner = node.getJoiner();
+        if (joiner != null) {
+            joiner.searchForOtherClusters();
+        }
     }
 
     /**
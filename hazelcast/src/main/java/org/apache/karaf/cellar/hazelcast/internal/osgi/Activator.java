@@ -16,8 +16,11 @@ package org.apache.karaf.cellar.hazelcast.internal.osgi;
 import com.hazelcast.core.HazelcastInstance;
 import org.apache.aries.proxy.ProxyManager;
 import org.apache.karaf.cellar.core.ClusterManager;
+import org.apache.karaf.cellar.core.Configurations;
 import org.apache.karaf.cellar.core.GroupManager;
 import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.SyncCoordinator;
 import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.command.BasicCommandStore;
 import org.apache.karaf.cellar.core.command.ClusteredExecutionContext;
@@ -70,6 +73,7 @@ import java.util.*;
         },
         requires = {
                 @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class),
                 @RequireService(ProxyManager.class),
                 @RequireService(EventHandlerRegistry.class)
         }
@@ -82,13 +86,15 @@ public class Activator extends BaseActivator implements ManagedService {
     private CombinedClassLoader combinedClassLoader;
     private HazelcastServiceFactory hazelcastServiceFactory;
     private List<DiscoveryService> discoveryServices = new ArrayList<DiscoveryService>();
-    private List<Synchronizer> synchronizers = new ArrayList<Synchronizer>();
+    private SyncCoordinator syncCoordinator;
     private HazelcastInstance hazelcastInstance;
     private HazelcastGroupManager groupManager;
+    private HazelcastMemberIndex memberIndex;
     private DiscoveryTask discoveryTask;
     private CellarExtender extender;
     private TopicProducer producer;
     private TopicConsumer consumer;
+    private EventHandlerRegistryDispatcher dispatcher;
     private ServiceTracker<DiscoveryService, DiscoveryService> discoveryServiceTracker;
     private ServiceTracker<Synchronizer, Synchronizer> synchronizerServiceTracker;
 
@@ -104,6 +110,9 @@ public class Activator extends BaseActivator implements ManagedService {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
         EventHandlerRegistry eventHandlerRegistry = getTrackedService(EventHandlerRegistry.class);
         if (eventHandlerRegistry == null)
             return;
@@ -144,8 +153,9 @@ public class Activator extends BaseActivator implements ManagedService {
         extender.init();
 
         LOGGER.debug("CELLAR HAZELCAST: init dispatcher");
-        EventHandlerRegistryDispatcher dispatcher = new EventHandlerRegistryDispatcher();
+        dispatcher = new EventHandlerRegistryDispatcher();
         dispatcher.setHandlerRegistry(eventHandlerRegistry);
+        dispatcher.setConfigurationAdmin(configurationAdmin);
         dispatcher.init();
 
         LOGGER.debug("CELLAR HAZELCAST: create Hazelcast configuration manager");
@@ -175,8 +185,11 @@ public class Activator extends BaseActivator implements ManagedService {
         discoveryTask.init();
 
         LOGGER.debug("CELLAR HAZELCAST: register Hazelcast cluster manager");
+        memberIndex = new HazelcastMemberIndex(hazelcastInstance);
+        memberIndex.init();
         HazelcastClusterManager clusterManager = new HazelcastClusterManager();
         clusterManager.setInstance(hazelcastInstance);
+        clusterManager.setMemberIndex(memberIndex);
         clusterManager.setConfigurationAdmin(configurationAdmin);
         clusterManager.setCombinedClassLoader(combinedClassLoader);
         register(ClusterManager.class, clusterManager);
@@ -185,24 +198,41 @@ public class Activator extends BaseActivator implements ManagedService {
         HazelcastEventTransportFactory eventTransportFactory = new HazelcastEventTransportFactory();
         eventTransportFactory.setCombinedClassLoader(combinedClassLoader);
         eventTransportFactory.setConfigurationAdmin(configurationAdmin);
+        eventTransportFactory.setNodeConfiguration(nodeConfiguration);
         eventTransportFactory.setInstance(hazelcastInstance);
         eventTransportFactory.setDispatcher(dispatcher);
         register(EventTransportFactory.class, eventTransportFactory);
 
+        LOGGER.debug("CELLAR HAZELCAST: init sync coordinator");
+        syncCoordinator = new SyncCoordinator();
+        syncCoordinator.setThreads(nodeConfiguration.getInt(Configurations.SYNC_THREADS, SyncCoordinator.DEFAULT_THREADS));
+        syncCoordinator.setJitter(nodeConfiguration.getInt(Configurations.SYNC_JITTER, (int) SyncCoordinator.DEFAULT_JITTER));
+        syncCoordinator.setWindow(nodeConfiguration.getInt(Configurations.SYNC_WINDOW, (int) SyncCoordinator.DEFAULT_WINDOW));
+        syncCoordinator.setClassLoader(combinedClassLoader);
+        HazelcastSyncLeaderElection leaderElection = new HazelcastSyncLeaderElection();
+        leaderElection.setInstance(hazelcastInstance);
+        leaderElection.setMemberIndex(memberIndex);
+        syncCoordinator.setLeaderElection(leaderElection);
+        syncCoordinator.init();
+
         LOGGER.debug("CELLAR HAZELCAST: init Hazelcast group manager");
         groupManager = new HazelcastGroupManager();
         groupManager.setInstance(hazelcastInstance);
+        groupManager.setMemberIndex(memberIndex);
         groupManager.setCombinedClassLoader(combinedClassLoader);
         groupManager.setBundleContext(bundleContext);
         groupManager.setConfigurationAdmin(configurationAdmin);
         groupManager.setEventTransportFactory(eventTransportFactory);
+        groupManager.setSyncCoordinator(syncCoordinator);
+        groupManager.setConfigurationDelay(nodeConfiguration.getInt(Configurations.GROUP_CONFIG_DELAY, (int) HazelcastGroupManager.DEFAULT_CONFIGURATION_DELAY));
         groupManager.init();
         register(new Class[]{GroupManager.class, ConfigurationListener.class}, groupManager);
 
         LOGGER.debug("CELLAR HAZELCAST: create Cellar membership listener");
         CellarMembershipListener membershipListener = new CellarMembershipListener(hazelcastInstance);
-        membershipListener.setSynchronizers(synchronizers);
+        membershipListener.setSyncCoordinator(syncCoordinator);
         membershipListener.setGroupManager(groupManager);
+        eventTransportFactory.setEventLossListener(membershipListener);
 
         Node node = clusterManager.getNode();
 
@@ -212,15 +242,22 @@ public class Activator extends BaseActivator implements ManagedService {
         consumer.setDispatcher(dispatcher);
         consumer.setNode(node);
         consumer.setConfigurationAdmin(configurationAdmin);
+        consumer.setNodeConfiguration(nodeConfiguration);
+        consumer.setReliable(nodeConfiguration.getBoolean(Configurations.TOPIC_RELIABLE, false));
+        consumer.setEventLossListener(membershipListener);
         consumer.init();
+        // the paused reliable listeners are resumed when the node configuration turns the consumer switch ON
+        register(ConfigurationListener.class, consumer);
 
         LOGGER.debug("CELLAR HAZELCAST: init topic producer");
         producer = new TopicProducer();
         producer.setInstance(hazelcastInstance);
         producer.setNode(node);
         producer.setConfigurationAdmin(configurationAdmin);
+        producer.setNodeConfiguration(nodeConfiguration);
+        producer.setReliable(nodeConfiguration.getBoolean(Configurations.TOPIC_RELIABLE, false));
         producer.init();
-        register(EventProducer.class, producer);
+        register(new Class[]{EventProducer.class, ConfigurationListener.class}, producer);
 
         LOGGER.debug("CELLAR HAZELCAST: register basic command store");
         CommandStore commandStore = new BasicCommandStore();
@@ -236,6 +273,7 @@ public class Activator extends BaseActivator implements ManagedService {
         ProducerSwitchCommandHandler producerSwitchCommandHandler = new ProducerSwitchCommandHandler();
         producerSwitchCommandHandler.setProducer(producer);
         producerSwitchCommandHandler.setConfigurationAdmin(configurationAdmin);
+        producerSwitchCommandHandler.setNodeConfiguration(nodeConfiguration);
         register(EventHandler.class, producerSwitchCommandHandler);
 
         LOGGER.debug("CELLAR HAZELCAST: register producer switch result handler");
@@ -248,6 +286,7 @@ public class Activator extends BaseActivator implements ManagedService {
         consumerSwitchCommandHandler.setProducer(producer);
         consumerSwitchCommandHandler.setConsumer(consumer);
         consumerSwitchCommandHandler.setConfigurationAdmin(configurationAdmin);
+        consumerSwitchCommandHandler.setNodeConfiguration(nodeConfiguration);
         register(EventHandler.class, consumerSwitchCommandHandler);
 
         LOGGER.debug("CELLAR HAZELCAST; register consumer switch result handler");
@@ -258,6 +297,7 @@ public class Activator extends BaseActivator implements ManagedService {
         LOGGER.debug("CELLAR HAZELCAST: register manage handlers command handler");
         ManageHandlersCommandHandler manageHandlersCommandHandler = new ManageHandlersCommandHandler();
         manageHandlersCommandHandler.setConfigurationAdmin(configurationAdmin);
+        manageHandlersCommandHandler.setNodeConfiguration(nodeConfiguration);
         manageHandlersCommandHandler.setProducer(producer);
         manageHandlersCommandHandler.setProxyManager(proxyManager);
         register(EventHandler.class, manageHandlersCommandHandler);
@@ -297,7 +337,8 @@ public class Activator extends BaseActivator implements ManagedService {
             @Override
             public Synchronizer addingService(ServiceReference<Synchronizer> serviceReference) {
                 Synchronizer service = bundleContext.getService(serviceReference);
-                synchronizers.add(service);
+                Object resource = serviceReference.getProperty("resource");
+                syncCoordinator.addSynchronizer(service, resource != null ? resource.toString() : null);
                 return service;
             }
 
@@ -308,7 +349,7 @@ public class Activator extends BaseActivator implements ManagedService {
 
             @Override
             public void removedService(ServiceReference<Synchronizer> serviceReference, Synchronizer synchronizer) {
-                synchronizers.remove(synchronizer);
+                syncCoordinator.removeSynchronizer(synchronizer);
                 bundleContext.ungetService(serviceReference);
             }
         });
@@ -320,6 +361,10 @@ public class Activator extends BaseActivator implements ManagedService {
         cellarMBean.setClusterManager(clusterManager);
         cellarMBean.setGroupManager(groupManager);
         cellarMBean.setExecutionContext(executionContext);
+        cellarMBean.setEventHandlerRegistry(eventHandlerRegistry);
+        cellarMBean.setDispatcher(dispatcher);
+        cellarMBean.setCommandStore(commandStore);
+        cellarMBean.setSyncCoordinator(syncCoordinator);
         Hashtable props = new Hashtable();
         props.put("jmx.objectname", "org.apache.karaf.cellar:type=core,name=" + System.getProperty("karaf.name"));
         coreMBeanRegistration = bundleContext.registerService(getInterfaceNames(cellarMBean), cellarMBean, props);
@@ -362,6 +407,10 @@ public class Activator extends BaseActivator implements ManagedService {
             synchronizerServiceTracker.close();
             synchronizerServiceTracker = null;
         }
+        if (syncCoordinator != null) {
+            syncCoordinator.destroy();
+            syncCoordinator = null;
+        }
         if (groupManager != null) {
             try {
                 groupManager.destroy();
@@ -370,6 +419,10 @@ public class Activator extends BaseActivator implements ManagedService {
             }
             groupManager = null;
         }
+        if (memberIndex != null) {
+            memberIndex.destroy();
+            memberIndex = null;
+        }
         if (hazelcastServiceFactory != null) {
             hazelcastServiceFactory.destroy();
             hazelcastServiceFactory = null;
@@ -390,6 +443,10 @@ public class Activator extends BaseActivator implements ManagedService {
             consumer.destroy();
             consumer = null;
         }
+        if (dispatcher != null) {
+            dispatcher.destroy();
+            dispatcher = null;
+        }
         if (extender != null) {
             extender.destroy();
             extender = null;
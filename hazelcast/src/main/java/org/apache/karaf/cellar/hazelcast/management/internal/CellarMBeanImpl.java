@@ -28,8 +28,13 @@
 package org.apache.karaf.cellar.hazelcast.management.internal;
 
 import org.apache.karaf.cellar.core.*;
+import org.apache.karaf.cellar.core.command.BasicCommandStore;
+import org.apache.karaf.cellar.core.command.CommandStore;
 import org.apache.karaf.cellar.core.command.ExecutionContext;
 import org.apache.karaf.cellar.core.control.*;
+import org.apache.karaf.cellar.core.event.EventHandlerRegistry;
+import org.apache.karaf.cellar.core.event.EventHandlerRegistryDispatcher;
+import org.apache.karaf.cellar.core.event.ParkedEventStore;
 import org.apache.karaf.cellar.core.management.CellarMBean;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
@@ -49,6 +54,10 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
     private ClusterManager clusterManager;
     private ExecutionContext executionContext;
     private GroupManager groupManager;
+    private EventHandlerRegistry eventHandlerRegistry;
+    private EventHandlerRegistryDispatcher dispatcher;
+    private CommandStore commandStore;
+    private SyncCoordinator syncCoordinator;
 
     public CellarMBeanImpl() throws NotCompliantMBeanException {
         super(CellarMBean.class);
@@ -86,6 +95,38 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
         this.groupManager = groupManager;
     }
 
+    public EventHandlerRegistry getEventHandlerRegistry() {
+        return eventHandlerRegistry;
+    }
+
+    public void setEventHandlerRegistry(EventHandlerRegistry eventHandlerRegistry) {
+        this.eventHandlerRegistry = eventHandlerRegistry;
+    }
+
+    public EventHandlerRegistryDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public void setDispatcher(EventHandlerRegistryDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public CommandStore getCommandStore() {
+        return commandStore;
+    }
+
+    public void setCommandStore(CommandStore commandStore) {
+        this.commandStore = commandStore;
+    }
+
+    public SyncCoordinator getSyncCoordinator() {
+        return syncCoordinator;
+    }
+
+    public void setSyncCoordinator(SyncCoordinator syncCoordinator) {
+        this.syncCoordinator = syncCoordinator;
+    }
+
     @Override
     public void sync() throws Exception {
         Set<Group> localGroups = groupManager.listLocalGroups();
@@ -349,4 +390,67 @@ public class CellarMBeanImpl extends StandardMBean implements CellarMBean {
         executionContext.execute(command);
     }
 
+    @Override
+    public TabularData statistics() throws Exception {
+        Map<String, Long> statistics = new LinkedHashMap<String, Long>();
+        if (dispatcher != null) {
+            statistics.put("dispatcher.pending", (long) dispatcher.getPendingEvents());
+            statistics.put("dispatcher.dropped", dispatcher.getDroppedEvents());
+        }
+        if (eventHandlerRegistry != null && eventHandlerRegistry.getParkedEventStore() != null) {
+            ParkedEventStore parkedEventStore = eventHandlerRegistry.getParkedEventStore();
+            statistics.put("parked.count", (long) parkedEventStore.getParkedCount());
+            statistics.put("parked.released", parkedEventStore.getReleasedCount());
+            statistics.put("parked.expired", parkedEventStore.getExpiredCount());
+            statistics.put("parked.wait.average", parkedEventStore.getAverageWaitTime());
+            statistics.put("parked.wait.max", parkedEventStore.getMaxWaitTime());
+        }
+        if (commandStore instanceof BasicCommandStore) {
+            BasicCommandStore basicCommandStore = (BasicCommandStore) commandStore;
+            statistics.put("commands.pending", (long) basicCommandStore.getPendingCount());
+            statistics.put("commands.pending.age.max", basicCommandStore.getOldestPendingAge());
+            statistics.put("commands.completed", basicCommandStore.getCompletedCount());
+            statistics.put("commands.expired", basicCommandStore.getExpiredCount());
+            statistics.put("commands.completion.average", basicCommandStore.getAverageCompletionTime());
+        }
+
+        CompositeType compositeType = new CompositeType("Statistic", "Karaf Cellar local node statistic",
+                new String[]{"name", "value"},
+                new String[]{"Name of the statistic", "Current value of the statistic"},
+                new OpenType[]{SimpleType.STRING, SimpleType.LONG});
+        TabularType tableType = new TabularType("Statistics", "Table of Karaf Cellar local node statistics",
+                compositeType, new String[]{"name"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+        for (Map.Entry<String, Long> statistic : statistics.entrySet()) {
+            CompositeDataSupport data = new CompositeDataSupport(compositeType,
+                    new String[]{"name", "value"},
+                    new Object[]{statistic.getKey(), statistic.getValue()});
+            table.put(data);
+        }
+        return table;
+    }
+
+    @Override
+    public TabularData syncStatus() throws Exception {
+        CompositeType compositeType = new CompositeType("Sync Report", "Karaf Cellar synchronizer run on a cluster group",
+                new String[]{"group", "resource", "timestamp", "duration", "success", "error"},
+                new String[]{"Name of the cluster group", "Resource synchronized", "Start time of the synchronizer",
+                        "Time spent by the synchronizer in milliseconds", "True if the synchronizer succeeded, false else",
+                        "Error raised by the synchronizer"},
+                new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.DATE, SimpleType.LONG, SimpleType.BOOLEAN, SimpleType.STRING});
+        TabularType tableType = new TabularType("Sync Reports", "Table of Karaf Cellar synchronizer runs",
+                compositeType, new String[]{"group", "resource"});
+        TabularDataSupport table = new TabularDataSupport(tableType);
+        if (syncCoordinator != null) {
+            for (SyncReport report : syncCoordinator.getReports()) {
+                CompositeDataSupport data = new CompositeDataSupport(compositeType,
+                        new String[]{"group", "resource", "timestamp", "duration", "success", "error"},
+                        new Object[]{report.getGroup(), report.getResource(), new Date(report.getTimestamp()),
+                                report.getDuration(), report.isSuccess(), report.getError()});
+                table.put(data);
+            }
+        }
+        return table;
+    }
+
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.nio.ClassLoaderUtil;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.HazelcastSerializationException;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import org.apache.karaf.cellar.core.CompactSerializable;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializer for the {@link CompactSerializable} cluster objects (events, commands, states).
+ * It writes the format version and the class name followed by the object data, without the Java serialization class
+ * descriptors. A node reading an unknown format version fails with an explicit error instead of reading garbage.
+ */
+public class CompactSerializer implements StreamSerializer<CompactSerializable> {
+
+    public static final int TYPE_ID = 0x0CE1;
+    public static final byte FORMAT_VERSION = 1;
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public void write(ObjectDataOutput out, CompactSerializable object) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeUTF(object.getClass().getName());
+        object.writeData(new HazelcastDataOutput(out));
+    }
+
+    @Override
+    public CompactSerializable read(ObjectDataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new HazelcastSerializationException("Unsupported Cellar compact serialization format " + version
+                    + ", disable the compact serialization (cellar.serialization.compact=false) on all nodes");
+        }
+        String className = in.readUTF();
+        CompactSerializable object;
+        try {
+            object = ClassLoaderUtil.newInstance(in.getClassLoader(), className);
+        } catch (Exception e) {
+            throw new HazelcastSerializationException("Can't create an instance of " + className, e);
+        }
+        object.readData(new HazelcastDataInput(in));
+        return object;
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to do
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.hazelcast.HazelcastNode;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * {@link CompactDataInput} on top of a Hazelcast input.
+ */
+public class HazelcastDataInput implements CompactDataInput {
+
+    private final ObjectDataInput in;
+
+    public HazelcastDataInput(ObjectDataInput in) {
+        this.in = in;
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return in.readUTF();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    @Override
+    public <T> T readObject() throws IOException {
+        return in.readObject();
+    }
+
+    @Override
+    public Node readNode() throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case HazelcastDataOutput.NULL:
+                return null;
+            case HazelcastDataOutput.NODE_ID:
+                HazelcastNode node = new HazelcastNode(in.readUTF());
+                node.setAlias(in.readUTF());
+                return node;
+            case HazelcastDataOutput.NODE_OBJECT:
+                return in.readObject();
+            default:
+                throw new IOException("Invalid node reference " + kind);
+        }
+    }
+
+    @Override
+    public Set<Node> readNodes() throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        Set<Node> nodes = new LinkedHashSet<Node>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(readNode());
+        }
+        return nodes;
+    }
+
+    @Override
+    public Group readGroup() throws IOException {
+        String name = in.readUTF();
+        return (name != null) ? new Group(name) : null;
+    }
+
+}
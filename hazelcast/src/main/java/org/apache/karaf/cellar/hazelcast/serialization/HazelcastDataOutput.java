@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.nio.ObjectDataOutput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.hazelcast.HazelcastNode;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * {@link CompactDataOutput} on top of a Hazelcast output.
+ */
+public class HazelcastDataOutput implements CompactDataOutput {
+
+    static final byte NULL = 0;
+    static final byte NODE_ID = 1;
+    static final byte NODE_OBJECT = 2;
+
+    private final ObjectDataOutput out;
+
+    public HazelcastDataOutput(ObjectDataOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void writeUTF(String value) throws IOException {
+        out.writeUTF(value);
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    @Override
+    public void writeObject(Object value) throws IOException {
+        out.writeObject(value);
+    }
+
+    @Override
+    public void writeNode(Node node) throws IOException {
+        if (node == null) {
+            out.writeByte(NULL);
+        } else if (node instanceof HazelcastNode) {
+            out.writeByte(NODE_ID);
+            out.writeUTF(node.getId());
+            out.writeUTF(node.getAlias());
+        } else {
+            out.writeByte(NODE_OBJECT);
+            out.writeObject(node);
+        }
+    }
+
+    @Override
+    public void writeNodes(Set<Node> nodes) throws IOException {
+        if (nodes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(nodes.size());
+        for (Node node : nodes) {
+            writeNode(node);
+        }
+    }
+
+    @Override
+    public void writeGroup(Group group) throws IOException {
+        out.writeUTF((group != null) ? group.getName() : null);
+    }
+
+}
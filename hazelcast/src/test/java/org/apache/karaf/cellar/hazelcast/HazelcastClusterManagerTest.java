@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class HazelcastClusterManagerTest {
+
+    private HazelcastInstance instance;
+    private HazelcastClusterManager clusterManager;
+
+    @Before
+    public void setUp() {
+        Config config = new Config();
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        instance = Hazelcast.newHazelcastInstance(config);
+        clusterManager = new HazelcastClusterManager();
+        clusterManager.setInstance(instance);
+    }
+
+    @After
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    @Test
+    public void testGenerateIdIsUniqueAcrossThreads() throws Exception {
+        final Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        ids.add(clusterManager.generateId());
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(8000, ids.size());
+
+        // another cluster manager (node) reserves another prefix
+        HazelcastClusterManager otherClusterManager = new HazelcastClusterManager();
+        otherClusterManager.setInstance(instance);
+        Assert.assertFalse(ids.contains(otherClusterManager.generateId()));
+    }
+
+    @Test
+    public void testRemoveAll() {
+        Map<String, String> map = clusterManager.getMap("test");
+        for (int i = 0; i < 10; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        Set<String> keys = new HashSet<String>();
+        for (int i = 0; i < 5; i++) {
+            keys.add("key" + i);
+        }
+        keys.add("unknown");
+
+        clusterManager.removeAll("test", keys);
+
+        Assert.assertEquals(5, map.size());
+        Assert.assertFalse(map.containsKey("key0"));
+        Assert.assertTrue(map.containsKey("key5"));
+    }
+
+    @Test
+    public void testRemoveAllFallsBackWhenTheProcessorFails() {
+        IMap<String, String> map = instance.getMap("test");
+        for (int i = 0; i < 10; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        Set<String> keys = new HashSet<String>();
+        for (int i = 0; i < 5; i++) {
+            keys.add("key" + i);
+        }
+
+        // a node without the processor class fails to execute it
+        clusterManager.removeAll(map, keys, new FailingEntryProcessor());
+
+        Assert.assertEquals(5, map.size());
+        Assert.assertFalse(map.containsKey("key0"));
+        Assert.assertTrue(map.containsKey("key5"));
+    }
+
+    private static class FailingEntryProcessor extends AbstractEntryProcessor<String, String> {
+
+        @Override
+        public Object process(Map.Entry<String, String> entry) {
+            throw new IllegalStateException("processor not available");
+        }
+
+    }
+
+}
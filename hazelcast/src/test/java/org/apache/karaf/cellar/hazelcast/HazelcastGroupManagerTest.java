@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import org.apache.karaf.cellar.core.Configurations;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+
+public class HazelcastGroupManagerTest {
+
+    private static final long DELAY = 500;
+    private static final int CHANGES = 10;
+    private static final String GROUPS_CONFIG = "org.apache.karaf.cellar.groups.config";
+
+    private HazelcastInstance instance;
+    private HazelcastGroupManager groupManager;
+    private final Hashtable<String, Object> groupsProperties = new Hashtable<String, Object>();
+    private final AtomicInteger updates = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        Config config = new Config();
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        instance = Hazelcast.newHazelcastInstance(config);
+
+        groupsProperties.put(Configurations.GROUPS_KEY, "default");
+        groupsProperties.put("default.bundle.sync", "cluster");
+        Configuration groupsConfiguration = createMock(Configuration.class);
+        expect(groupsConfiguration.getProperties()).andReturn(groupsProperties).anyTimes();
+        expect(groupsConfiguration.getPid()).andReturn(Configurations.GROUP).anyTimes();
+        groupsConfiguration.update(anyObject(Dictionary.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            @Override
+            public Object answer() {
+                updates.incrementAndGet();
+                return null;
+            }
+        }).anyTimes();
+        Hashtable<String, Object> nodeProperties = new Hashtable<String, Object>();
+        nodeProperties.put(Configurations.GROUPS_KEY, "default");
+        Configuration nodeConfiguration = createMock(Configuration.class);
+        expect(nodeConfiguration.getProperties()).andReturn(nodeProperties).anyTimes();
+        ConfigurationAdmin configurationAdmin = createMock(ConfigurationAdmin.class);
+        expect(configurationAdmin.getConfiguration(Configurations.GROUP, null)).andReturn(groupsConfiguration).anyTimes();
+        expect(configurationAdmin.getConfiguration(Configurations.NODE, null)).andReturn(nodeConfiguration).anyTimes();
+        replay(groupsConfiguration, nodeConfiguration, configurationAdmin);
+
+        groupManager = new HazelcastGroupManager();
+        groupManager.setInstance(instance);
+        groupManager.setConfigurationAdmin(configurationAdmin);
+        groupManager.setConfigurationDelay(DELAY);
+        groupManager.init();
+        // the local configuration is the initial cluster configuration
+        Thread.sleep(DELAY * 2);
+        updates.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        groupManager.destroy();
+        instance.shutdown();
+    }
+
+    @Test
+    public void testClusterChangesLeadToSingleConfigurationUpdate() throws Exception {
+        IMap<String, Object> clusterConfig = instance.getMap(GROUPS_CONFIG);
+        Map<String, Object> value = new HashMap<String, Object>((Map<String, Object>) clusterConfig.get("default"));
+        for (int i = 0; i < CHANGES; i++) {
+            value.put("default.test." + i, "value" + i);
+            clusterConfig.put("default", new HashMap<String, Object>(value));
+        }
+        Thread.sleep(DELAY * 3);
+
+        Assert.assertEquals(1, updates.get());
+        for (int i = 0; i < CHANGES; i++) {
+            Assert.assertEquals("value" + i, groupsProperties.get("default.test." + i));
+        }
+    }
+
+    @Test
+    public void testLocalChangesLeadToSingleClusterPut() throws Exception {
+        IMap<String, Object> clusterConfig = instance.getMap(GROUPS_CONFIG);
+        final AtomicInteger puts = new AtomicInteger();
+        clusterConfig.addEntryListener(new EntryUpdatedListener<String, Object>() {
+            @Override
+            public void entryUpdated(EntryEvent<String, Object> event) {
+                puts.incrementAndGet();
+            }
+        }, false);
+        ServiceReference reference = createMock(ServiceReference.class);
+        replay(reference);
+
+        for (int i = 0; i < CHANGES; i++) {
+            groupsProperties.put("default.test." + i, "value" + i);
+            groupManager.configurationEvent(new ConfigurationEvent(reference, ConfigurationEvent.CM_UPDATED, null, Configurations.GROUP));
+        }
+        Thread.sleep(DELAY * 3);
+
+        Assert.assertEquals(1, puts.get());
+        Map<String, Object> value = (Map<String, Object>) clusterConfig.get("default");
+        for (int i = 0; i < CHANGES; i++) {
+            Assert.assertEquals("value" + i, value.get("default.test." + i));
+        }
+        // the cluster change sent by the node doesn't update its configuration again
+        Assert.assertEquals(0, updates.get());
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.Node;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HazelcastMemberIndexTest {
+
+    private HazelcastInstance instance;
+    private HazelcastMemberIndex memberIndex;
+
+    @Before
+    public void setUp() {
+        Config config = new Config();
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        instance = Hazelcast.newHazelcastInstance(config);
+        memberIndex = new HazelcastMemberIndex(instance);
+        memberIndex.init();
+    }
+
+    @After
+    public void tearDown() {
+        memberIndex.destroy();
+        instance.shutdown();
+    }
+
+    @Test
+    public void testLookup() {
+        Node local = memberIndex.getLocalNode();
+        Assert.assertEquals(new HazelcastNode(instance.getCluster().getLocalMember()), local);
+        Assert.assertSame(local, memberIndex.findNodeById(local.getId()));
+        Assert.assertSame(local, memberIndex.findNodeByIdOrAlias(local.getId()));
+        Assert.assertEquals(1, memberIndex.getNodes().size());
+        Assert.assertNull(memberIndex.findNodeById("unknown:5701"));
+    }
+
+    @Test
+    public void testAliasUpdate() {
+        HazelcastClusterManager clusterManager = new HazelcastClusterManager();
+        clusterManager.setInstance(instance);
+        clusterManager.setMemberIndex(memberIndex);
+        clusterManager.setNodeAlias("node1");
+
+        Node node = clusterManager.findNodeByAlias("node1");
+        Assert.assertNotNull(node);
+        Assert.assertEquals("node1", node.getAlias());
+        Assert.assertSame(node, clusterManager.findNodeByIdOrAlias("node1"));
+        Assert.assertSame(node, clusterManager.getNode());
+    }
+
+}
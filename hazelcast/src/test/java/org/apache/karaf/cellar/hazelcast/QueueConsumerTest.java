@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IQueue;
+import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.event.Event;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class QueueConsumerTest {
+
+    private HazelcastInstance instance;
+
+    @Before
+    public void setUp() {
+        Config config = new Config();
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        instance = Hazelcast.newHazelcastInstance(config);
+    }
+
+    @After
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    @Test
+    public void testEventsAreDrainedByBatchesAndDispatchedInOrder() throws Exception {
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(6);
+        final List<String> dispatched = new CopyOnWriteArrayList<String>();
+        IQueue<Event> queue = instance.getQueue(Constants.QUEUE);
+        for (int i = 0; i < 6; i++) {
+            queue.put(new Event(String.valueOf(i)));
+        }
+        QueueConsumer<Event> consumer = new QueueConsumer<Event>();
+        consumer.setQueue(queue);
+        consumer.setBatchSize(3);
+        consumer.setDispatcher(new Dispatcher<Event>() {
+            @Override
+            public void dispatch(Event event) {
+                dispatched.add(event.getId());
+                first.countDown();
+                try {
+                    blocker.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                done.countDown();
+            }
+        });
+        consumer.init();
+
+        // while the first event is dispatched, only the first batch is drained from the queue
+        Assert.assertTrue(first.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, queue.size());
+
+        blocker.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5"), dispatched);
+        Assert.assertEquals(0, queue.size());
+        consumer.destroy();
+    }
+
+}
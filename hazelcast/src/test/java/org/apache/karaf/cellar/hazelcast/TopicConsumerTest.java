@@ -0,0 +1,206 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.RingbufferConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Dispatcher;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.control.SwitchStatus;
+import org.apache.karaf.cellar.core.event.Event;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.cm.ConfigurationEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TopicConsumerTest {
+
+    private HazelcastInstance instance;
+    private final List<String> received = new CopyOnWriteArrayList<String>();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicBoolean consumerOn = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() {
+        Config config = new Config();
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.addRingBufferConfig(new RingbufferConfig(Constants.TOPIC).setCapacity(10));
+        instance = Hazelcast.newHazelcastInstance(config);
+    }
+
+    @After
+    public void tearDown() {
+        instance.shutdown();
+    }
+
+    @Test
+    public void testReplayMissedEvents() throws Exception {
+        TopicConsumer<Event> consumer = createConsumer();
+        ITopic<Event> topic = instance.getReliableTopic(Constants.TOPIC);
+
+        topic.publish(new Event("1"));
+        waitFor(1);
+        consumer.stop();
+        topic.publish(new Event("2"));
+        topic.publish(new Event("3"));
+        Thread.sleep(200);
+        Assert.assertEquals(1, received.size());
+        consumer.start();
+        waitFor(3);
+
+        Assert.assertEquals("1", received.get(0));
+        Assert.assertEquals("2", received.get(1));
+        Assert.assertEquals("3", received.get(2));
+        Assert.assertEquals(0, lost.get());
+        consumer.stop();
+    }
+
+    @Test
+    public void testEventLossWhenGapExceedsRingbuffer() throws Exception {
+        TopicConsumer<Event> consumer = createConsumer();
+        ITopic<Event> topic = instance.getReliableTopic(Constants.TOPIC);
+
+        topic.publish(new Event("0"));
+        waitFor(1);
+        consumer.stop();
+        for (int i = 1; i <= 15; i++) {
+            topic.publish(new Event(String.valueOf(i)));
+        }
+        consumer.start();
+        waitFor(11);
+
+        // the ringbuffer only keeps the last 10 events
+        Assert.assertEquals("6", received.get(1));
+        Assert.assertEquals(5, lost.get());
+        Assert.assertEquals(5, consumer.getLostEvents());
+        consumer.stop();
+    }
+
+    @Test
+    public void testReplayEventsReceivedWhileSwitchedOff() throws Exception {
+        TopicConsumer<Event> consumer = createConsumer();
+        ITopic<Event> topic = instance.getReliableTopic(Constants.TOPIC);
+
+        topic.publish(new Event("1"));
+        waitFor(1);
+        switchConsumer(consumer, false);
+        topic.publish(new Event("2"));
+        Event forced = new Event("3");
+        forced.setForce(true);
+        topic.publish(forced);
+        topic.publish(new Event("4"));
+        // only the forced event is dispatched while the switch is OFF
+        waitFor(2);
+        Thread.sleep(200);
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals("3", received.get(1));
+
+        switchConsumer(consumer, true);
+        waitFor(4);
+        topic.publish(new Event("5"));
+        waitFor(5);
+
+        Assert.assertEquals("2", received.get(2));
+        Assert.assertEquals("4", received.get(3));
+        Assert.assertEquals("5", received.get(4));
+        Assert.assertEquals(0, lost.get());
+        consumer.stop();
+    }
+
+    @Test
+    public void testSwitchTurnedOnDoesNotReplayBeforeTheConfigurationEvent() throws Exception {
+        TopicConsumer<Event> consumer = createConsumer();
+        ITopic<Event> topic = instance.getReliableTopic(Constants.TOPIC);
+
+        topic.publish(new Event("1"));
+        waitFor(1);
+        switchConsumer(consumer, false);
+        topic.publish(new Event("2"));
+        Thread.sleep(200);
+        // the switch is ON in the node configuration, but the configuration event is not delivered yet
+        consumerOn.set(true);
+        topic.publish(new Event("3"));
+        Thread.sleep(200);
+        Assert.assertEquals(1, received.size());
+
+        consumer.configurationEvent(configurationEvent());
+        waitFor(3);
+
+        Assert.assertEquals("2", received.get(1));
+        Assert.assertEquals("3", received.get(2));
+        consumer.stop();
+    }
+
+    private void switchConsumer(TopicConsumer<Event> consumer, boolean on) {
+        consumerOn.set(on);
+        consumer.configurationEvent(configurationEvent());
+        Assert.assertEquals(on ? SwitchStatus.ON : SwitchStatus.OFF, consumer.getSwitch().getStatus());
+    }
+
+    private ConfigurationEvent configurationEvent() {
+        ServiceReference<ConfigurationAdmin> reference = EasyMock.createMock(ServiceReference.class);
+        return new ConfigurationEvent(reference, ConfigurationEvent.CM_UPDATED, null, Configurations.NODE);
+    }
+
+    private TopicConsumer<Event> createConsumer() {
+        TopicConsumer<Event> consumer = new TopicConsumer<Event>();
+        consumer.setInstance(instance);
+        consumer.setReliable(true);
+        NodeConfiguration nodeConfiguration = EasyMock.createNiceMock(NodeConfiguration.class);
+        EasyMock.expect(nodeConfiguration.getBoolean(EasyMock.eq(Configurations.CONSUMER), EasyMock.anyBoolean())).andAnswer(new IAnswer<Boolean>() {
+            @Override
+            public Boolean answer() throws Throwable {
+                return consumerOn.get();
+            }
+        }).anyTimes();
+        EasyMock.replay(nodeConfiguration);
+        consumer.setNodeConfiguration(nodeConfiguration);
+        consumer.setDispatcher(new Dispatcher<Event>() {
+            @Override
+            public void dispatch(Event event) {
+                received.add(event.getId());
+            }
+        });
+        consumer.setEventLossListener(new EventLossListener() {
+            @Override
+            public void eventsLost(String topicName, long lostEvents) {
+                lost.addAndGet(lostEvents);
+            }
+        });
+        consumer.init();
+        return consumer;
+    }
+
+    private void waitFor(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && received.size() < count; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(count, received.size());
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.DistributedObject;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.apache.karaf.cellar.core.Configurations;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.NodeConfiguration;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.core.event.EventBatcher;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.ConfigurationEvent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.easymock.EasyMock.anyBoolean;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+
+public class TopicProducerTest {
+
+    private HazelcastInstance first;
+    private HazelcastInstance second;
+
+    @Before
+    public void setUp() {
+        first = Hazelcast.newHazelcastInstance(getConfig(5911));
+        second = Hazelcast.newHazelcastInstance(getConfig(5912));
+    }
+
+    @After
+    public void tearDown() {
+        second.shutdown();
+        first.shutdown();
+    }
+
+    @Test
+    public void testNodeTopicsAreDestroyedWhenNodeLeaves() throws Exception {
+        Assert.assertEquals(2, first.getCluster().getMembers().size());
+        TopicProducer<Event> producer = new TopicProducer<Event>();
+        producer.setInstance(first);
+        producer.init();
+
+        Node target = new HazelcastNode(second.getCluster().getLocalMember());
+        second.getCluster().getLocalMember().setBooleanAttribute(Constants.NODE_TOPICS_ATTRIBUTE, true);
+        Event event = new Event("test");
+        event.setDestination(Collections.singleton(target));
+        String nodeTopicName = Constants.getNodeTopicName(Constants.TOPIC, target.getId());
+        // the producer uses the node topic once it knows the target node listens on it
+        for (int i = 0; i < 100 && !exists(nodeTopicName); i++) {
+            producer.produce(event);
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(exists(nodeTopicName));
+
+        second.shutdown();
+        for (int i = 0; i < 100 && exists(nodeTopicName); i++) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertFalse(exists(nodeTopicName));
+        producer.destroy();
+    }
+
+    @Test
+    public void testBatcherIsReconfiguredOnNodeConfigurationChange() throws Exception {
+        NodeConfiguration nodeConfiguration = createMock(NodeConfiguration.class);
+        expect(nodeConfiguration.getBoolean(eq(Configurations.PRODUCER), anyBoolean())).andReturn(true).anyTimes();
+        expect(nodeConfiguration.getInt(Configurations.PRODUCER_BATCH_SIZE, 0)).andReturn(10).once();
+        expect(nodeConfiguration.getInt(Configurations.PRODUCER_BATCH_DELAY, EventBatcher.DEFAULT_DELAY)).andReturn(10).once();
+        replay(nodeConfiguration);
+        TopicProducer<Event> producer = new TopicProducer<Event>();
+        producer.setInstance(first);
+        producer.setNodeConfiguration(nodeConfiguration);
+        producer.init();
+        Assert.assertNotNull(producer.getBatcher());
+
+        // the events don't read the batching configuration
+        for (int i = 0; i < 10; i++) {
+            producer.produce(new Event(String.valueOf(i)));
+        }
+        verify(nodeConfiguration);
+
+        reset(nodeConfiguration);
+        nodeConfiguration.refresh();
+        expectLastCall().once();
+        expect(nodeConfiguration.getInt(Configurations.PRODUCER_BATCH_SIZE, 0)).andReturn(0).once();
+        expect(nodeConfiguration.getInt(Configurations.PRODUCER_BATCH_DELAY, EventBatcher.DEFAULT_DELAY)).andReturn(10).once();
+        replay(nodeConfiguration);
+        ServiceReference reference = createMock(ServiceReference.class);
+        replay(reference);
+        producer.configurationEvent(new ConfigurationEvent(reference, ConfigurationEvent.CM_UPDATED, null, Configurations.NODE));
+
+        Assert.assertNull(producer.getBatcher());
+        verify(nodeConfiguration);
+        producer.destroy();
+    }
+
+    @Test
+    public void testTargetedEventsAreBroadcastToOlderNodes() throws Exception {
+        final List<String> received = new CopyOnWriteArrayList<String>();
+        // an older node only listens on the broadcast topic
+        second.<Event>getTopic(Constants.TOPIC).addMessageListener(new MessageListener<Event>() {
+            @Override
+            public void onMessage(Message<Event> message) {
+                received.add(message.getMessageObject().getId());
+            }
+        });
+        TopicProducer<Event> producer = new TopicProducer<Event>();
+        producer.setInstance(first);
+        producer.init();
+
+        Node target = new HazelcastNode(second.getCluster().getLocalMember());
+        Event event = new Event("test");
+        event.setDestination(Collections.singleton(target));
+        producer.produce(event);
+        for (int i = 0; i < 100 && received.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertEquals(Collections.singletonList("test"), received);
+        Assert.assertFalse(exists(Constants.getNodeTopicName(Constants.TOPIC, target.getId())));
+        producer.destroy();
+    }
+
+    @Test
+    public void testBroadcastControlEventsAreSentOnTheBroadcastTopicToOlderNodes() throws Exception {
+        final List<String> broadcast = new CopyOnWriteArrayList<String>();
+        final List<String> control = new CopyOnWriteArrayList<String>();
+        second.<Event>getTopic(Constants.TOPIC).addMessageListener(new MessageListener<Event>() {
+            @Override
+            public void onMessage(Message<Event> message) {
+                broadcast.add(message.getMessageObject().getId());
+            }
+        });
+        second.<Event>getTopic(Constants.getControlTopicName(Constants.TOPIC)).addMessageListener(new MessageListener<Event>() {
+            @Override
+            public void onMessage(Message<Event> message) {
+                control.add(message.getMessageObject().getId());
+            }
+        });
+        first.getCluster().getLocalMember().setBooleanAttribute(Constants.NODE_TOPICS_ATTRIBUTE, true);
+        TopicProducer<Event> producer = new TopicProducer<Event>();
+        producer.setInstance(first);
+        producer.init();
+
+        // the second node is an older node, only listening on the broadcast topic
+        producer.produce(new ControlEvent("older"));
+        for (int i = 0; i < 100 && broadcast.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(Collections.singletonList("older"), broadcast);
+        Assert.assertTrue(control.isEmpty());
+
+        // once all the nodes listen on the control topics, the control events are sent on them
+        second.getCluster().getLocalMember().setBooleanAttribute(Constants.NODE_TOPICS_ATTRIBUTE, true);
+        for (int i = 0; i < 100 && control.isEmpty(); i++) {
+            producer.produce(new ControlEvent("upgraded"));
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(control.contains("upgraded"));
+        producer.destroy();
+    }
+
+    private static class ControlEvent extends Event implements PriorityEvent {
+
+        ControlEvent(String id) {
+            super(id);
+        }
+
+    }
+
+    private boolean exists(String name) {
+        for (DistributedObject distributedObject : first.getDistributedObjects()) {
+            if (distributedObject.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Config getConfig(int port) {
+        Config config = new Config();
+        config.getNetworkConfig().setPort(port).setPortAutoIncrement(false);
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true)
+                .addMember("127.0.0.1:5911").addMember("127.0.0.1:5912");
+        return config;
+    }
+
+}
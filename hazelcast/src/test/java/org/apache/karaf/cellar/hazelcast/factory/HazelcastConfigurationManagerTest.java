@@ -13,6 +13,7 @@
  */
 package org.apache.karaf.cellar.hazelcast.factory;
 
+import com.hazelcast.config.Config;
 import org.apache.karaf.cellar.core.discovery.Discovery;
 import org.junit.Assert;
 import org.junit.Test;
@@ -38,4 +39,24 @@ public class HazelcastConfigurationManagerTest {
         Assert.assertFalse(cm.isUpdated(p));
     }
 
+    @Test
+    public void testApplyDiscoveredMembers() {
+        HazelcastConfigurationManager cm = new HazelcastConfigurationManager();
+        Config config = new Config();
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).addMember("10.0.0.1");
+
+        Properties p = new Properties();
+        p.put(Discovery.DISCOVERED_MEMBERS_PROPERTY_NAME, "10.0.0.2,10.0.0.3");
+        Assert.assertTrue(cm.isUpdated(p));
+        Assert.assertEquals(2, cm.applyDiscoveredMembers(config).size());
+        Assert.assertEquals(3, config.getNetworkConfig().getJoin().getTcpIpConfig().getMembers().size());
+
+        // the members not discovered anymore are removed
+        p.put(Discovery.DISCOVERED_MEMBERS_PROPERTY_NAME, "10.0.0.3");
+        Assert.assertTrue(cm.isUpdated(p));
+        Assert.assertTrue(cm.applyDiscoveredMembers(config).isEmpty());
+        Assert.assertFalse(config.getNetworkConfig().getJoin().getTcpIpConfig().getMembers().contains("10.0.0.2"));
+        Assert.assertTrue(config.getNetworkConfig().getJoin().getTcpIpConfig().getMembers().contains("10.0.0.3"));
+    }
+
 }
@@ -13,19 +13,48 @@
  */
 package org.apache.karaf.cellar.hazelcast.factory;
 
+import com.hazelcast.config.Config;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import org.apache.karaf.cellar.core.discovery.Discovery;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Hazelcast service factory test.
  */
 @RunWith(JUnit4.class)
 public class HazelcastServiceFactoryTest {
 
+    private static final String[] PROPERTIES = {"karaf.etc", "javax.xml.transform.TransformerFactory"};
+
+    private final Map<String, String> properties = new HashMap<String, String>();
+
+    @Before
+    public void saveProperties() {
+        for (String property : PROPERTIES) {
+            properties.put(property, System.getProperty(property));
+        }
+    }
+
+    @After
+    public void restoreProperties() {
+        for (String property : PROPERTIES) {
+            if (properties.get(property) == null) {
+                System.clearProperty(property);
+            } else {
+                System.setProperty(property, properties.get(property));
+            }
+        }
+    }
+
     @Test
     public void testDefaultInstance() throws InterruptedException {
         // Joining a cluster may not work with the default configuration on
@@ -65,4 +94,58 @@ public class HazelcastServiceFactoryTest {
         defaultInstance.shutdown();
     }
 
+    @Test
+    public void testDiscoveredMembersAreJoinedWithoutRestart() throws InterruptedException {
+        // a single tcp-ip member, the joiner doesn't wait for the unused ports of a range
+        System.setProperty("karaf.etc", "src/test/resources/etc-join");
+        System.setProperty("javax.xml.transform.TransformerFactory", "com.sun.org.apache.xalan.internal.xsltc.trax.TransformerFactoryImpl");
+        HazelcastServiceFactory factory = new HazelcastServiceFactory();
+        factory.setConfigurationManager(new HazelcastConfigurationManager());
+        factory.init();
+        HazelcastInstance factoryInstance = factory.getInstance();
+
+        // a cluster out of the factory instance tcp-ip join range
+        HazelcastInstance first = Hazelcast.newHazelcastInstance(getConfig(5901));
+        HazelcastInstance second = Hazelcast.newHazelcastInstance(getConfig(5902));
+        try {
+            Assert.assertEquals(2, first.getCluster().getMembers().size());
+            Assert.assertEquals(1, factoryInstance.getCluster().getMembers().size());
+
+            Map<String, String> properties = new HashMap<String, String>();
+            properties.put(Discovery.DISCOVERED_MEMBERS_PROPERTY_NAME, "127.0.0.1:5901");
+            factory.update(properties);
+
+            for (int i = 0; i < 600 && first.getCluster().getMembers().size() < 3; i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertEquals(3, first.getCluster().getMembers().size());
+            Assert.assertTrue(factoryInstance.getConfig().getNetworkConfig().getJoin().getTcpIpConfig().getMembers().contains("127.0.0.1:5901"));
+        } finally {
+            factory.destroy();
+            second.shutdown();
+            first.shutdown();
+        }
+    }
+
+    private Config getConfig(int port) {
+        Config config = setFastJoin(new Config());
+        config.getNetworkConfig().setPort(port).setPortAutoIncrement(false);
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true)
+                .addMember("127.0.0.1:5901").addMember("127.0.0.1:5902");
+        return config;
+    }
+
+    /**
+     * Don't wait for other members before joining, and don't let the periodic merge run interfere with the test.
+     */
+    private Config setFastJoin(Config config) {
+        config.setProperty("hazelcast.wait.seconds.before.join", "0");
+        config.setProperty("hazelcast.max.wait.seconds.before.join", "0");
+        config.setProperty("hazelcast.merge.first.run.delay.seconds", "600");
+        config.setProperty("hazelcast.connect.all.wait.seconds", "0");
+        return config;
+    }
+
 }
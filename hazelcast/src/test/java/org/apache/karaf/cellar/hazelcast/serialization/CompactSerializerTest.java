@@ -0,0 +1,336 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.cellar.hazelcast.serialization;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.internal.serialization.impl.HeapData;
+import com.hazelcast.nio.serialization.Data;
+import com.hazelcast.nio.serialization.HazelcastSerializationException;
+import org.apache.karaf.cellar.bundle.ArtifactChunkCommand;
+import org.apache.karaf.cellar.bundle.ArtifactChunkResult;
+import org.apache.karaf.cellar.bundle.BundleState;
+import org.apache.karaf.cellar.bundle.ClusterBundleEvent;
+import org.apache.karaf.cellar.config.ClusterConfigurationEvent;
+import org.apache.karaf.cellar.core.CompactDataInput;
+import org.apache.karaf.cellar.core.CompactDataOutput;
+import org.apache.karaf.cellar.core.CompactSerializable;
+import org.apache.karaf.cellar.core.Group;
+import org.apache.karaf.cellar.core.Node;
+import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.Event;
+import org.apache.karaf.cellar.features.ClusterFeaturesEvent;
+import org.apache.karaf.cellar.features.FeatureState;
+import org.apache.karaf.cellar.hazelcast.HazelcastNode;
+import org.apache.karaf.features.FeatureEvent;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.service.cm.ConfigurationEvent;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactSerializerTest {
+
+    @Test
+    public void testEventRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+        InternalSerializationService java = createSerializationService(false);
+
+        TestEvent event = new TestEvent("my.bundle/1.0.0");
+        event.setSourceNode(new HazelcastNode("192.168.1.10:5701"));
+        Group group = new Group("default");
+        group.getNodes().add(new HazelcastNode("192.168.1.10:5701"));
+        group.getNodes().add(new HazelcastNode("192.168.1.11:5701"));
+        event.setSourceGroup(group);
+        Set<Node> destination = new HashSet<Node>();
+        destination.add(new HazelcastNode("192.168.1.11:5701"));
+        event.setDestination(destination);
+        event.setForce(true);
+        event.location = "mvn:org.foo/bar/1.0.0";
+        event.startLevel = 80;
+
+        Data data = compact.toData(event);
+        TestEvent copy = compact.toObject(data);
+
+        assertEquals(event.getId(), copy.getId());
+        assertEquals(event.getSourceNode(), copy.getSourceNode());
+        assertEquals("192.168.1.10", copy.getSourceNode().getHost());
+        assertEquals(5701, copy.getSourceNode().getPort());
+        assertEquals("default", copy.getSourceGroup().getName());
+        assertEquals(destination, copy.getDestination());
+        assertTrue(copy.getForce());
+        assertEquals(event.location, copy.location);
+        assertEquals(event.startLevel, copy.startLevel);
+
+        assertTrue(data.totalSize() < java.toData(event).totalSize());
+    }
+
+    @Test
+    public void testNodeAliasRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        HazelcastNode node = new HazelcastNode("192.168.1.10:5701");
+        node.setAlias("node1");
+        HazelcastNode nodeCopy = compact.toObject(compact.toData(node));
+
+        assertEquals(node, nodeCopy);
+        assertEquals("node1", nodeCopy.getAlias());
+
+        TestEvent event = new TestEvent("test");
+        event.setSourceNode(node);
+        event.setDestination(Collections.<Node>singleton(node));
+        TestEvent eventCopy = compact.toObject(compact.toData(event));
+
+        assertEquals("node1", eventCopy.getSourceNode().getAlias());
+        assertEquals("node1", eventCopy.getDestination().iterator().next().getAlias());
+    }
+
+    @Test(expected = HazelcastSerializationException.class)
+    public void testUnknownFormatVersionIsRejected() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        byte[] bytes = compact.toData(new TestEvent("test")).toByteArray();
+        // the format version is the first byte of the payload
+        bytes[HeapData.DATA_OFFSET] = CompactSerializer.FORMAT_VERSION + 1;
+        compact.toObject(new HeapData(bytes));
+    }
+
+    @Test
+    public void testGroupIsSentByName() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        TestEvent event = new TestEvent("test");
+        Group group = new Group("default");
+        group.getNodes().add(new HazelcastNode("192.168.1.10:5701"));
+        event.setSourceGroup(group);
+        TestEvent copy = compact.toObject(compact.toData(event));
+
+        // the receiver resolves the group nodes with its group manager
+        assertEquals("default", copy.getSourceGroup().getName());
+        assertTrue(copy.getSourceGroup().getNodes().isEmpty());
+    }
+
+    @Test
+    public void testClusterBundleEventRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        ClusterBundleEvent event = new ClusterBundleEvent("my.bundle", "1.0.0", "mvn:org.foo/bar/1.0.0", 80, Bundle.ACTIVE);
+        initEvent(event);
+        event.setLocal(new HazelcastNode("192.168.1.10:5701"));
+        ClusterBundleEvent copy = compact.toObject(compact.toData(event));
+
+        assertEventEquals(event, copy);
+        assertEquals("my.bundle", copy.getSymbolicName());
+        assertEquals("1.0.0", copy.getVersion());
+        assertEquals("mvn:org.foo/bar/1.0.0", copy.getLocation());
+        assertEquals(Integer.valueOf(80), copy.getStartLevel());
+        assertEquals(Bundle.ACTIVE, copy.getType());
+        assertEquals(event.getLocal(), copy.getLocal());
+    }
+
+    @Test
+    public void testBundleStateRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        BundleState state = new BundleState();
+        state.setId(42);
+        state.setName("My Bundle");
+        state.setSymbolicName("my.bundle");
+        state.setVersion("1.0.0");
+        state.setLocation("mvn:org.foo/bar/1.0.0");
+        state.setStartLevel(80);
+        state.setStatus(Bundle.RESOLVED);
+        state.setData(new byte[]{1, 2, 3});
+        BundleState copy = compact.toObject(compact.toData(state));
+
+        assertEquals(42, copy.getId());
+        assertEquals("My Bundle", copy.getName());
+        assertEquals("my.bundle", copy.getSymbolicName());
+        assertEquals("1.0.0", copy.getVersion());
+        assertEquals("mvn:org.foo/bar/1.0.0", copy.getLocation());
+        assertEquals(Integer.valueOf(80), copy.getStartLevel());
+        assertEquals(Bundle.RESOLVED, copy.getStatus());
+        assertArrayEquals(new byte[]{1, 2, 3}, copy.getData());
+    }
+
+    @Test
+    public void testClusterConfigurationEventRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        ClusterConfigurationEvent event = new ClusterConfigurationEvent("org.foo.bar");
+        initEvent(event);
+        event.setType(ConfigurationEvent.CM_UPDATED);
+        event.setLocal(new HazelcastNode("192.168.1.10:5701"));
+        ClusterConfigurationEvent copy = compact.toObject(compact.toData(event));
+
+        assertEventEquals(event, copy);
+        assertEquals(Integer.valueOf(ConfigurationEvent.CM_UPDATED), copy.getType());
+        assertEquals(event.getLocal(), copy.getLocal());
+    }
+
+    @Test
+    public void testClusterFeaturesEventRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        ClusterFeaturesEvent event = new ClusterFeaturesEvent("my-feature", "1.0.0", true, false, null, true, FeatureEvent.EventType.FeatureInstalled);
+        initEvent(event);
+        event.setLocal(new HazelcastNode("192.168.1.10:5701"));
+        ClusterFeaturesEvent copy = compact.toObject(compact.toData(event));
+
+        assertEventEquals(event, copy);
+        assertEquals("my-feature", copy.getName());
+        assertEquals("1.0.0", copy.getVersion());
+        assertEquals(Boolean.TRUE, copy.getNoRefresh());
+        assertEquals(Boolean.FALSE, copy.getNoStart());
+        assertNull(copy.getNoManage());
+        assertEquals(Boolean.TRUE, copy.getUpgrade());
+        assertEquals(FeatureEvent.EventType.FeatureInstalled, copy.getType());
+        assertEquals(event.getLocal(), copy.getLocal());
+    }
+
+    @Test
+    public void testFeatureStateRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        FeatureState state = new FeatureState();
+        state.setName("my-feature");
+        state.setVersion("1.0.0");
+        state.setInstalled(true);
+        FeatureState copy = compact.toObject(compact.toData(state));
+
+        assertEquals("my-feature", copy.getName());
+        assertEquals("1.0.0", copy.getVersion());
+        assertTrue(copy.getInstalled());
+    }
+
+    @Test
+    public void testCommandAndResultRoundTrip() {
+        // the commands and results are not compact serializable, they still go through the Java serialization
+        InternalSerializationService compact = createSerializationService(true);
+
+        Command<Result> command = new Command<Result>("command");
+        initEvent(command);
+        command.setTimeout(5000);
+        Command<Result> commandCopy = compact.toObject(compact.toData(command));
+
+        assertEventEquals(command, commandCopy);
+        assertEquals(5000, commandCopy.getTimeout());
+
+        Result result = new Result("command");
+        result.setSourceNode(new HazelcastNode("192.168.1.11:5701"));
+        Result resultCopy = compact.toObject(compact.toData(result));
+
+        assertEquals("command", resultCopy.getId());
+        assertEquals(result.getSourceNode(), resultCopy.getSourceNode());
+    }
+
+    @Test
+    public void testArtifactChunkRoundTrip() {
+        InternalSerializationService compact = createSerializationService(true);
+
+        ArtifactChunkCommand command = new ArtifactChunkCommand("chunk");
+        initEvent(command);
+        command.setDigest("0a1b2c");
+        command.setOffset(65536);
+        command.setLength(65536);
+        Data commandData = compact.toData(command);
+        ArtifactChunkCommand commandCopy = compact.toObject(commandData);
+
+        assertEquals(CompactSerializer.TYPE_ID, commandData.getType());
+        assertEventEquals(command, commandCopy);
+        assertEquals(command.getTimeout(), commandCopy.getTimeout());
+        assertEquals("0a1b2c", commandCopy.getDigest());
+        assertEquals(65536, commandCopy.getOffset());
+        assertEquals(65536, commandCopy.getLength());
+
+        ArtifactChunkResult result = new ArtifactChunkResult("chunk");
+        result.setSourceNode(new HazelcastNode("192.168.1.11:5701"));
+        result.setData(new byte[]{1, 2, 3});
+        result.setSize(131072);
+        Data resultData = compact.toData(result);
+        ArtifactChunkResult resultCopy = compact.toObject(resultData);
+
+        assertEquals(CompactSerializer.TYPE_ID, resultData.getType());
+        assertEquals("chunk", resultCopy.getId());
+        assertTrue(resultCopy.getForce());
+        assertEquals(result.getSourceNode(), resultCopy.getSourceNode());
+        assertArrayEquals(new byte[]{1, 2, 3}, resultCopy.getData());
+        assertEquals(131072, resultCopy.getSize());
+    }
+
+    private void initEvent(Event event) {
+        event.setSourceNode(new HazelcastNode("192.168.1.10:5701"));
+        event.setSourceGroup(new Group("default"));
+        Set<Node> destination = new HashSet<Node>();
+        destination.add(new HazelcastNode("192.168.1.11:5701"));
+        event.setDestination(destination);
+    }
+
+    private void assertEventEquals(Event event, Event copy) {
+        assertEquals(event.getId(), copy.getId());
+        assertEquals(event.getSourceNode(), copy.getSourceNode());
+        assertEquals(event.getSourceGroup().getName(), copy.getSourceGroup().getName());
+        assertEquals(event.getDestination(), copy.getDestination());
+    }
+
+    private InternalSerializationService createSerializationService(boolean compact) {
+        SerializationConfig config = new SerializationConfig();
+        if (compact) {
+            config.addSerializerConfig(new SerializerConfig()
+                    .setTypeClass(CompactSerializable.class)
+                    .setImplementation(new CompactSerializer()));
+        }
+        return new DefaultSerializationServiceBuilder().setConfig(config).build();
+    }
+
+    public static class TestEvent extends Event implements CompactSerializable {
+
+        private String location;
+        private Integer startLevel;
+
+        public TestEvent() {
+        }
+
+        public TestEvent(String id) {
+            super(id);
+        }
+
+        @Override
+        public void writeData(CompactDataOutput out) throws IOException {
+            writeEventData(out);
+            out.writeUTF(location);
+            out.writeObject(startLevel);
+        }
+
+        @Override
+        public void readData(CompactDataInput in) throws IOException {
+            readEventData(in);
+            location = in.readUTF();
+            startLevel = in.readObject();
+        }
+
+    }
+
+}
@@ -16,6 +16,7 @@ package org.apache.karaf.cellar.obr.internal.osgi;
 import org.apache.felix.bundlerepository.RepositoryAdmin;
 import org.apache.karaf.cellar.core.ClusterManager;
 import org.apache.karaf.cellar.core.GroupManager;
+import org.apache.karaf.cellar.core.NodeConfiguration;
 import org.apache.karaf.cellar.core.Synchronizer;
 import org.apache.karaf.cellar.core.event.EventHandler;
 import org.apache.karaf.cellar.core.event.EventProducer;
@@ -46,6 +47,7 @@ import java.util.Hashtable;
                 @RequireService(ClusterManager.class),
                 @RequireService(GroupManager.class),
                 @RequireService(ConfigurationAdmin.class),
+                @RequireService(NodeConfiguration.class),
                 @RequireService(EventProducer.class)
         }
 )
@@ -73,6 +75,9 @@ public class Activator extends BaseActivator {
         ConfigurationAdmin configurationAdmin = getTrackedService(ConfigurationAdmin.class);
         if (configurationAdmin == null)
             return;
+        NodeConfiguration nodeConfiguration = getTrackedService(NodeConfiguration.class);
+        if (nodeConfiguration == null)
+            return;
         EventProducer eventProducer = getTrackedService(EventProducer.class);
         if (eventProducer == null)
             return;
@@ -82,6 +87,7 @@ public class Activator extends BaseActivator {
         urlEventHandler.setClusterManager(clusterManager);
         urlEventHandler.setGroupManager(groupManager);
         urlEventHandler.setConfigurationAdmin(configurationAdmin);
+        urlEventHandler.setNodeConfiguration(nodeConfiguration);
         urlEventHandler.setObrService(repositoryAdmin);
         urlEventHandler.init(bundleContext);
         Hashtable props = new Hashtable();
@@ -94,6 +100,7 @@ public class Activator extends BaseActivator {
         bundleEventHandler.setClusterManager(clusterManager);
         bundleEventHandler.setGroupManager(groupManager);
         bundleEventHandler.setConfigurationAdmin(configurationAdmin);
+        bundleEventHandler.setNodeConfiguration(nodeConfiguration);
         bundleEventHandler.init(bundleContext);
         register(EventHandler.class, bundleEventHandler, props);
 
@@ -104,6 +111,7 @@ public class Activator extends BaseActivator {
         urlSynchronizer.setGroupManager(groupManager);
         urlSynchronizer.setEventProducer(eventProducer);
         urlSynchronizer.setConfigurationAdmin(configurationAdmin);
+        urlSynchronizer.setNodeConfiguration(nodeConfiguration);
         urlSynchronizer.init(bundleContext);
         props = new Hashtable();
         props.put("resource", "obr.urls");
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.utils.ping;
 
 import org.apache.karaf.cellar.core.command.Command;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Cluster ping event.
  */
-public class Ping extends Command<Pong> {
+public class Ping extends Command<Pong> implements PriorityEvent {
 
     public Ping(String id) {
         super(id);
@@ -14,11 +14,12 @@
 package org.apache.karaf.cellar.utils.ping;
 
 import org.apache.karaf.cellar.core.command.Result;
+import org.apache.karaf.cellar.core.event.PriorityEvent;
 
 /**
  * Cluster pong event.
  */
-public class Pong extends Result {
+public class Pong extends Result implements PriorityEvent {
 
     public Pong(String id) {
         super(id);